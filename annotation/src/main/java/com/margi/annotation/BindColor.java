@@ -0,0 +1,18 @@
+package com.margi.annotation;
+
+import android.support.annotation.ColorRes;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Created by allen on 10/18/16.
+ * 绑定颜色资源，字段类型为 int 或 ColorStateList
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.CLASS)
+public @interface BindColor {
+    @ColorRes int value();
+}
@@ -0,0 +1,18 @@
+package com.margi.annotation;
+
+import android.support.annotation.DimenRes;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Created by allen on 10/18/16.
+ * 绑定尺寸资源，字段类型为 int（像素大小）或 float（精确尺寸）
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.CLASS)
+public @interface BindDimen {
+    @DimenRes int value();
+}
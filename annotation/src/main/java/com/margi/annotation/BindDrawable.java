@@ -0,0 +1,18 @@
+package com.margi.annotation;
+
+import android.support.annotation.DrawableRes;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Created by allen on 10/18/16.
+ * 绑定图片资源，字段类型必须为 Drawable，每次注入都得到一个新的 Drawable 实例
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.CLASS)
+public @interface BindDrawable {
+    @DrawableRes int value();
+}
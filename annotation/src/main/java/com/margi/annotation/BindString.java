@@ -0,0 +1,18 @@
+package com.margi.annotation;
+
+import android.support.annotation.StringRes;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Created by allen on 10/18/16.
+ * 绑定字符串资源，字段类型必须为 String
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.CLASS)
+public @interface BindString {
+    @StringRes int value();
+}
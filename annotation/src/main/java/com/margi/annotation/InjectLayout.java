@@ -0,0 +1,19 @@
+package com.margi.annotation;
+
+import android.support.annotation.LayoutRes;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Created by allen on 10/18/16.
+ * 声明目标类使用的布局。开启 apt 参数 viewinject.resDirs 后，编译时读取该布局检查绑定的 ID 和字段类型，
+ * 并按布局中的层级生成直接定位 View 的代码
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.CLASS)
+public @interface InjectLayout {
+    @LayoutRes int value();
+}
@@ -14,4 +14,15 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.CLASS)
 public @interface InjectView {
     @IdRes int[] value();
+
+    /**
+     * 延迟绑定，字段类型必须为 com.margi.core.LazyView，第一次调用 get() 时才查找View
+     */
+    boolean lazy() default false;
+
+    /**
+     * View 所在 ViewStub 的 ID，设置后为延迟绑定，字段类型必须为 com.margi.core.LazyView。
+     * 第一次调用 get() 时如果 View 还不存在，先 inflate 该 ViewStub 再查找，不显示的 ViewStub 不会被 inflate
+     */
+    @IdRes int stub() default 0;
 }
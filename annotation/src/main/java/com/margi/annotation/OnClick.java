@@ -0,0 +1,18 @@
+package com.margi.annotation;
+
+import android.support.annotation.IdRes;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Created by allen on 10/18/16.
+ * 绑定点击事件，方法可以没有参数或者只有一个 View 类型的参数
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.CLASS)
+public @interface OnClick {
+    @IdRes int[] value();
+}
@@ -0,0 +1,18 @@
+package com.margi.annotation;
+
+import android.support.annotation.IdRes;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Created by allen on 10/18/16.
+ * 绑定长按事件，方法可以没有参数或者只有一个 View 类型的参数，返回 boolean 表示是否消费了事件，返回 void 时视为未消费
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.CLASS)
+public @interface OnLongClick {
+    @IdRes int[] value();
+}
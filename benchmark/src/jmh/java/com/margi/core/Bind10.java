@@ -0,0 +1,21 @@
+package com.margi.core;
+
+import android.view.View;
+
+import com.margi.annotation.InjectView;
+
+/**
+ * 绑定 10 个 View 的目标类，ID 与 ViewTrees.BINDING_ID_BASE 对应
+ */
+public class Bind10 {
+    @InjectView(100000) View view0;
+    @InjectView(100001) View view1;
+    @InjectView(100002) View view2;
+    @InjectView(100003) View view3;
+    @InjectView(100004) View view4;
+    @InjectView(100005) View view5;
+    @InjectView(100006) View view6;
+    @InjectView(100007) View view7;
+    @InjectView(100008) View view8;
+    @InjectView(100009) View view9;
+}
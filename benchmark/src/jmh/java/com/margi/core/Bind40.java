@@ -0,0 +1,51 @@
+package com.margi.core;
+
+import android.view.View;
+
+import com.margi.annotation.InjectView;
+
+/**
+ * 绑定 40 个 View 的目标类，ID 与 ViewTrees.BINDING_ID_BASE 对应
+ */
+public class Bind40 {
+    @InjectView(100000) View view0;
+    @InjectView(100001) View view1;
+    @InjectView(100002) View view2;
+    @InjectView(100003) View view3;
+    @InjectView(100004) View view4;
+    @InjectView(100005) View view5;
+    @InjectView(100006) View view6;
+    @InjectView(100007) View view7;
+    @InjectView(100008) View view8;
+    @InjectView(100009) View view9;
+    @InjectView(100010) View view10;
+    @InjectView(100011) View view11;
+    @InjectView(100012) View view12;
+    @InjectView(100013) View view13;
+    @InjectView(100014) View view14;
+    @InjectView(100015) View view15;
+    @InjectView(100016) View view16;
+    @InjectView(100017) View view17;
+    @InjectView(100018) View view18;
+    @InjectView(100019) View view19;
+    @InjectView(100020) View view20;
+    @InjectView(100021) View view21;
+    @InjectView(100022) View view22;
+    @InjectView(100023) View view23;
+    @InjectView(100024) View view24;
+    @InjectView(100025) View view25;
+    @InjectView(100026) View view26;
+    @InjectView(100027) View view27;
+    @InjectView(100028) View view28;
+    @InjectView(100029) View view29;
+    @InjectView(100030) View view30;
+    @InjectView(100031) View view31;
+    @InjectView(100032) View view32;
+    @InjectView(100033) View view33;
+    @InjectView(100034) View view34;
+    @InjectView(100035) View view35;
+    @InjectView(100036) View view36;
+    @InjectView(100037) View view37;
+    @InjectView(100038) View view38;
+    @InjectView(100039) View view39;
+}
@@ -0,0 +1,186 @@
+package com.margi.core;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在 JVM 上用替身 View 树测量注入的各个环节，raw findViewById 为基线
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class InjectBenchmark {
+
+    @Param({"50", "300", "1000"})
+    public int views;
+
+    @Param({"10", "40"})
+    public int bindings;
+
+    private ViewGroup root;
+    private int[] ids;
+    private int[][] paths;
+    private Object target;
+    private final Map<Class<?>, Object> map = new ConcurrentHashMap<>();
+
+    @Setup
+    public void setUp() {
+        if (bindings != 10 && bindings != 40) {
+            throw new IllegalArgumentException("bindings must match a generated target: 10 or 40");
+        }
+        root = ViewTrees.build(views, bindings);
+        ids = ViewTrees.bindingIds(bindings);
+        paths = ViewTrees.paths(root, ids);
+        target = bindings == 10 ? new Bind10() : new Bind40();
+        // 预热缓存，lookup 基准测的是命中缓存的开销
+        Injector.inject(target, root);
+        map.put(target.getClass(), Injector.findViewInjecterForClass(target.getClass()));
+    }
+
+    @Benchmark
+    public void rawFindViewById(Blackhole blackhole) {
+        for (int id : ids) {
+            blackhole.consume(root.findViewById(id));
+        }
+    }
+
+    @Benchmark
+    public void finderFindRequiredView(Blackhole blackhole) {
+        for (int id : ids) {
+            View view = Finder.VIEW.findRequiredView(root, id, "field");
+            blackhole.consume(view);
+        }
+    }
+
+    @Benchmark
+    public void finderFindRequiredViewAsType(Blackhole blackhole) {
+        for (int id : ids) {
+            blackhole.consume(Finder.VIEW.findRequiredViewAsType(root, id, "field", ViewGroup.class));
+        }
+    }
+
+    @Benchmark
+    public View[] finderFindViewsSinglePass() {
+        return Finder.VIEW.findViews(root, ids);
+    }
+
+    @Benchmark
+    public void finderFindViewByPath(Blackhole blackhole) {
+        View layoutRoot = Finder.VIEW.getLayoutRoot(root, false);
+        for (int i = 0; i < ids.length; i++) {
+            blackhole.consume(Finder.VIEW.findViewByPath(root, layoutRoot, paths[i], ids[i]));
+        }
+    }
+
+    /**
+     * injectorLookup 的基线：预热后的查找应该和一次 map 读取处于同一量级
+     */
+    @Benchmark
+    public Object mapRead() {
+        return map.get(target.getClass());
+    }
+
+    @Benchmark
+    public ViewInjector<Object> injectorLookup() {
+        return Injector.findViewInjecterForClass(target.getClass());
+    }
+
+    @Benchmark
+    public Object inject() {
+        Injector.inject(target, root);
+        return target;
+    }
+
+    /**
+     * 同一个 source 上注入三个目标，例如 Activity、presenter 和辅助对象，每个目标各自查找
+     */
+    @Benchmark
+    public Object injectThreeTargets() {
+        Injector.inject(target, root);
+        Injector.inject(target, root);
+        Injector.inject(target, root);
+        return target;
+    }
+
+    /**
+     * 同上，在会话中注入，后两个目标直接复用第一个目标找到的 View
+     */
+    @Benchmark
+    public Object injectThreeTargetsWithSession() {
+        LookupSession session = Injector.openSession(root);
+        Injector.inject(target, session);
+        Injector.inject(target, session);
+        Injector.inject(target, session);
+        session.release();
+        return target;
+    }
+
+    /**
+     * 开启监控后的注入，与 inject 对比即为监控的开销
+     */
+    @Benchmark
+    public Object injectMonitored(CountingMonitor monitor) {
+        Injector.inject(target, root);
+        return target;
+    }
+
+    /**
+     * 只累加计数的监控，相当于按次上报到监控系统前的最小开销
+     */
+    @State(Scope.Benchmark)
+    public static class CountingMonitor implements InjectorMonitor {
+        long hits;
+        long misses;
+        long injects;
+        long nanos;
+        long lookups;
+        long failures;
+
+        @Setup
+        public void install() {
+            Injector.setMonitor(this);
+        }
+
+        @TearDown
+        public void uninstall() {
+            Injector.setMonitor(null);
+        }
+
+        @Override
+        public void onCacheHit(Class<?> targetClass) {
+            hits++;
+        }
+
+        @Override
+        public void onCacheMiss(Class<?> targetClass, long elapsedNanos) {
+            misses++;
+        }
+
+        @Override
+        public void onInject(Class<?> targetClass, long elapsedNanos, int lookupCount) {
+            injects++;
+            nanos += elapsedNanos;
+            lookups += lookupCount;
+        }
+
+        @Override
+        public void onInjectFailed(Class<?> targetClass, Throwable error) {
+            failures++;
+        }
+    }
+}
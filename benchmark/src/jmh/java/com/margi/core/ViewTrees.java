@@ -0,0 +1,95 @@
+package com.margi.core;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 构造用于基准测试的 View 树
+ */
+final class ViewTrees {
+
+    /** 绑定的 ID 从这里开始连续分配，与 Bind10 / Bind40 中的注解一致 */
+    static final int BINDING_ID_BASE = 100000;
+
+    private static final int FAN_OUT = 4;
+
+    private ViewTrees() {
+        throw new AssertionError("No instances.");
+    }
+
+    /**
+     * 按层序构造一棵有 viewCount 个节点、每个节点最多 4 个子节点的树，
+     * 非绑定节点使用 1..viewCount 作为 ID，绑定的 ID 均匀分布在先序遍历的各个位置
+     */
+    static ViewGroup build(int viewCount, int bindingCount) {
+        Context context = new Context();
+        ViewGroup root = new ViewGroup(context);
+        ArrayDeque<ViewGroup> parents = new ArrayDeque<>();
+        parents.add(root);
+        for (int created = 1; created < viewCount; created++) {
+            ViewGroup parent = parents.peek();
+            ViewGroup child = new ViewGroup(context);
+            parent.addView(child);
+            parents.add(child);
+            if (parent.getChildCount() == FAN_OUT) {
+                parents.poll();
+            }
+        }
+
+        List<View> preOrder = new ArrayList<>(viewCount);
+        _collect(root, preOrder);
+        for (int i = 0; i < preOrder.size(); i++) {
+            preOrder.get(i).setId(i + 1);
+        }
+        for (int i = 0; i < bindingCount; i++) {
+            preOrder.get((i + 1) * preOrder.size() / (bindingCount + 1)).setId(BINDING_ID_BASE + i);
+        }
+        return root;
+    }
+
+    static int[] bindingIds(int bindingCount) {
+        int[] ids = new int[bindingCount];
+        for (int i = 0; i < bindingCount; i++) {
+            ids[i] = BINDING_ID_BASE + i;
+        }
+        return ids;
+    }
+
+    /**
+     * 计算每个 ID 从 root 开始的子 View 下标路径，对应布局分析模式生成的 VIEW_PATHS
+     */
+    static int[][] paths(ViewGroup root, int[] ids) {
+        int[][] paths = new int[ids.length][];
+        for (int i = 0; i < ids.length; i++) {
+            List<Integer> path = new ArrayList<>();
+            for (View view = root.findViewById(ids[i]); view != root; view = (View) view.getParent()) {
+                ViewGroup parent = (ViewGroup) view.getParent();
+                int index = 0;
+                while (parent.getChildAt(index) != view) {
+                    index++;
+                }
+                path.add(0, index);
+            }
+            paths[i] = new int[path.size()];
+            for (int j = 0; j < path.size(); j++) {
+                paths[i][j] = path.get(j);
+            }
+        }
+        return paths;
+    }
+
+    private static void _collect(View view, List<View> out) {
+        out.add(view);
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                _collect(group.getChildAt(i), out);
+            }
+        }
+    }
+}
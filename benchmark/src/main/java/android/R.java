@@ -0,0 +1,11 @@
+package android;
+
+/**
+ * JVM 替身，只实现 core-lib 用到的部分
+ */
+public final class R {
+
+    public static final class id {
+        public static final int content = 0x01020002;
+    }
+}
@@ -0,0 +1,24 @@
+package android.app;
+
+import android.content.Context;
+import android.view.View;
+import android.view.Window;
+
+/**
+ * JVM 替身，findViewById 委托给 Window 的 DecorView
+ */
+public class Activity extends Context {
+    private Window window;
+
+    public void setContentView(View view) {
+        window = new Window(view);
+    }
+
+    public Window getWindow() {
+        return window;
+    }
+
+    public View findViewById(int id) {
+        return window.getDecorView().findViewById(id);
+    }
+}
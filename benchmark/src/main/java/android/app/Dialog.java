@@ -0,0 +1,33 @@
+package android.app;
+
+import android.content.Context;
+import android.view.View;
+import android.view.Window;
+
+/**
+ * JVM 替身，findViewById 委托给 Window 的 DecorView
+ */
+public class Dialog {
+    private final Context context;
+    private Window window;
+
+    public Dialog(Context context) {
+        this.context = context;
+    }
+
+    public void setContentView(View view) {
+        window = new Window(view);
+    }
+
+    public Context getContext() {
+        return context;
+    }
+
+    public Window getWindow() {
+        return window;
+    }
+
+    public View findViewById(int id) {
+        return window.getDecorView().findViewById(id);
+    }
+}
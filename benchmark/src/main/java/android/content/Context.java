@@ -0,0 +1,18 @@
+package android.content;
+
+import android.content.res.Resources;
+
+/**
+ * JVM 替身，只实现 core-lib 用到的部分
+ */
+public class Context {
+    private final Resources resources = new Resources();
+
+    public Resources getResources() {
+        return resources;
+    }
+
+    public Resources.Theme getTheme() {
+        return null;
+    }
+}
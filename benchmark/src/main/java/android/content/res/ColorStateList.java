@@ -0,0 +1,7 @@
+package android.content.res;
+
+/**
+ * JVM 替身，只实现 core-lib 用到的部分
+ */
+public class ColorStateList {
+}
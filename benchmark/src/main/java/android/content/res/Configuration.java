@@ -0,0 +1,25 @@
+package android.content.res;
+
+/**
+ * JVM 替身，只实现 core-lib 用到的部分
+ */
+public class Configuration {
+    public int orientation;
+
+    public Configuration() {
+    }
+
+    public Configuration(Configuration o) {
+        orientation = o.orientation;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Configuration && ((Configuration) o).orientation == orientation;
+    }
+
+    @Override
+    public int hashCode() {
+        return orientation;
+    }
+}
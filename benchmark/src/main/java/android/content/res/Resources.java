@@ -0,0 +1,37 @@
+package android.content.res;
+
+import android.graphics.drawable.Drawable;
+
+/**
+ * JVM 替身，只实现 core-lib 用到的部分
+ */
+public class Resources {
+    private final Configuration configuration = new Configuration();
+
+    public String getResourceEntryName(int resid) {
+        return "id_" + resid;
+    }
+
+    public Configuration getConfiguration() {
+        return configuration;
+    }
+
+    public String getString(int id) {
+        return "string_" + id;
+    }
+
+    public float getDimension(int id) {
+        return id;
+    }
+
+    public int getDimensionPixelSize(int id) {
+        return id;
+    }
+
+    public Drawable getDrawable(int id) {
+        return new Drawable();
+    }
+
+    public final class Theme {
+    }
+}
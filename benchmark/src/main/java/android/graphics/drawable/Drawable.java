@@ -0,0 +1,24 @@
+package android.graphics.drawable;
+
+import android.content.res.Resources;
+
+/**
+ * JVM 替身，只实现 core-lib 用到的部分
+ */
+public class Drawable {
+    private final ConstantState state = new ConstantState();
+
+    public ConstantState getConstantState() {
+        return state;
+    }
+
+    public static class ConstantState {
+        public Drawable newDrawable(Resources res) {
+            return new Drawable();
+        }
+
+        public Drawable newDrawable(Resources res, Resources.Theme theme) {
+            return new Drawable();
+        }
+    }
+}
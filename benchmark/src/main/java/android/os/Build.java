@@ -0,0 +1,15 @@
+package android.os;
+
+/**
+ * JVM 替身，只实现 core-lib 用到的部分
+ */
+public class Build {
+
+    public static class VERSION {
+        public static final int SDK_INT = 24;
+    }
+
+    public static class VERSION_CODES {
+        public static final int LOLLIPOP = 21;
+    }
+}
@@ -0,0 +1,15 @@
+package android.os;
+
+/**
+ * JVM 替身，没有消息循环，直接在调用线程执行
+ */
+public class Handler {
+
+    public Handler(Looper looper) {
+    }
+
+    public boolean post(Runnable runnable) {
+        runnable.run();
+        return true;
+    }
+}
@@ -0,0 +1,20 @@
+package android.os;
+
+/**
+ * JVM 替身
+ */
+public final class Looper {
+    private static final Looper MAIN = new Looper();
+    private static final MessageQueue QUEUE = new MessageQueue();
+
+    private Looper() {
+    }
+
+    public static Looper getMainLooper() {
+        return MAIN;
+    }
+
+    public static MessageQueue myQueue() {
+        return QUEUE;
+    }
+}
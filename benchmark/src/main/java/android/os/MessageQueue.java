@@ -0,0 +1,17 @@
+package android.os;
+
+/**
+ * JVM 替身，没有消息循环，空闲任务不会执行
+ */
+public final class MessageQueue {
+
+    MessageQueue() {
+    }
+
+    public interface IdleHandler {
+        boolean queueIdle();
+    }
+
+    public void addIdleHandler(IdleHandler handler) {
+    }
+}
@@ -0,0 +1,23 @@
+package android.support.v4.content;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.graphics.drawable.Drawable;
+
+/**
+ * JVM 替身，只实现 core-lib 用到的部分
+ */
+public class ContextCompat {
+
+    public static int getColor(Context context, int id) {
+        return id;
+    }
+
+    public static ColorStateList getColorStateList(Context context, int id) {
+        return new ColorStateList();
+    }
+
+    public static Drawable getDrawable(Context context, int id) {
+        return context.getResources().getDrawable(id);
+    }
+}
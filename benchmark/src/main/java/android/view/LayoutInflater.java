@@ -0,0 +1,19 @@
+package android.view;
+
+import android.content.Context;
+
+/**
+ * JVM 替身
+ */
+public abstract class LayoutInflater {
+
+    public Context getContext() {
+        return null;
+    }
+
+    public abstract LayoutInflater cloneInContext(Context context);
+
+    public View inflate(int resource, ViewGroup root, boolean attachToRoot) {
+        throw new UnsupportedOperationException("Layout inflation is not available on the JVM");
+    }
+}
@@ -0,0 +1,64 @@
+package android.view;
+
+import android.content.Context;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JVM 替身，findViewById 与 Android 一致：先判断自己，再由 ViewGroup 按顺序深度优先查找子 View
+ */
+public class View {
+    public static final int NO_ID = -1;
+
+    private final Context context;
+    private int id = NO_ID;
+    ViewParent parent;
+    private Map<Integer, Object> keyedTags;
+
+    public View(Context context) {
+        this.context = context;
+    }
+
+    public final View findViewById(int id) {
+        if (id == NO_ID) {
+            return null;
+        }
+        return findViewTraversal(id);
+    }
+
+    View findViewTraversal(int id) {
+        return id == this.id ? this : null;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public final ViewParent getParent() {
+        return parent;
+    }
+
+    public final Context getContext() {
+        return context;
+    }
+
+    public Object getTag(int key) {
+        return keyedTags == null ? null : keyedTags.get(key);
+    }
+
+    public void setTag(int key, Object tag) {
+        if (keyedTags == null) {
+            keyedTags = new HashMap<>();
+        }
+        keyedTags.put(key, tag);
+    }
+
+    public boolean isInEditMode() {
+        return false;
+    }
+}
@@ -0,0 +1,48 @@
+package android.view;
+
+import android.content.Context;
+
+import java.util.Arrays;
+
+/**
+ * JVM 替身，子 View 保存在数组中，与 Android 的 mChildren 一致
+ */
+public class ViewGroup extends View implements ViewParent {
+    private View[] children = new View[4];
+    private int childCount;
+
+    public ViewGroup(Context context) {
+        super(context);
+    }
+
+    public void addView(View child) {
+        if (childCount == children.length) {
+            children = Arrays.copyOf(children, childCount * 2);
+        }
+        children[childCount++] = child;
+        child.parent = this;
+    }
+
+    public int getChildCount() {
+        return childCount;
+    }
+
+    public View getChildAt(int index) {
+        return index < 0 || index >= childCount ? null : children[index];
+    }
+
+    @Override
+    View findViewTraversal(int id) {
+        if (id == getId()) {
+            return this;
+        }
+        View[] where = children;
+        for (int i = 0, count = childCount; i < count; i++) {
+            View v = where[i].findViewTraversal(id);
+            if (v != null) {
+                return v;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,7 @@
+package android.view;
+
+/**
+ * JVM 替身
+ */
+public interface ViewParent {
+}
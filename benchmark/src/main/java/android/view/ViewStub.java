@@ -0,0 +1,17 @@
+package android.view;
+
+import android.content.Context;
+
+/**
+ * JVM 替身
+ */
+public final class ViewStub extends View {
+
+    public ViewStub(Context context) {
+        super(context);
+    }
+
+    public View inflate() {
+        throw new UnsupportedOperationException("Layout inflation is not available on the JVM");
+    }
+}
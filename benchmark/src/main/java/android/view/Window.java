@@ -0,0 +1,16 @@
+package android.view;
+
+/**
+ * JVM 替身
+ */
+public class Window {
+    private final View decorView;
+
+    public Window(View decorView) {
+        this.decorView = decorView;
+    }
+
+    public View getDecorView() {
+        return decorView;
+    }
+}
@@ -0,0 +1,11 @@
+package com.margi.core;
+
+/**
+ * JVM 替身，Android 构建时由 core-lib 的资源生成
+ */
+public final class R {
+
+    public static final class id {
+        public static final int viewinject_listener_binding = 0x7f0b0001;
+    }
+}
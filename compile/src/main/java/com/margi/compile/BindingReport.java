@@ -0,0 +1,173 @@
+package com.margi.compile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Created by allen on 10/18/16.
+ * 构建报告，通过 apt 参数 viewinject.report=true 开启，记录每个目标类的绑定、注入器继承链和估算的运行时查找次数，
+ * 供构建脚本检查查找次数或继承层级是否超出预算。输出 JSON，结构见 {@link #toJson()}
+ */
+final class BindingReport {
+
+    /** 报告格式版本，字段有不兼容的改动时递增 */
+    static final int VERSION = 1;
+
+    /** 生成的注入器完全限定名称 -> 目标，按名称排序保证输出稳定 */
+    private final Map<String, Target> targets = new TreeMap<>();
+
+    /**
+     * 添加目标类，同一个注入器重复添加时以最后一次为准
+     *
+     * @param targetName 目标类的二进制名称
+     * @param injector   生成的注入器完全限定名称
+     * @param parents    父类注入器的完全限定名称，从直接父类开始
+     */
+    Target addTarget(String targetName, String injector, List<String> parents) {
+        Target target = new Target(targetName, injector, parents);
+        targets.put(injector, target);
+        return target;
+    }
+
+    boolean isEmpty() {
+        return targets.isEmpty();
+    }
+
+    /**
+     * 生成 JSON：
+     * <pre>
+     * {
+     *   "version": 1,
+     *   "targets": [{
+     *     "target": "com.sample.MainActivity",
+     *     "injector": "com.sample.MainActivity$$ViewInjector",
+     *     "parents": ["com.sample.BaseActivity$$ViewInjector"],
+     *     "bindingCount": 2,
+     *     "lookups": 1,
+     *     "totalLookups": 3,
+     *     "bindings": [{"kind": "view", "name": "title", "ids": [2131230720], "type": "android.widget.TextView"}, ...]
+     *   }]
+     * }
+     * </pre>
+     * lookups 是本类一次注入中 Finder 查找 View 的次数，与运行时 InjectorMonitor 的计数方式一致，不包括延迟绑定；
+     * totalLookups 包括 super.inject 中父类的查找，父类注入器不在本报告中（例如来自其他模块）时省略
+     */
+    String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"version\": ").append(VERSION).append(",\n  \"targets\": [");
+        boolean firstTarget = true;
+        for (Target target : targets.values()) {
+            json.append(firstTarget ? "\n" : ",\n");
+            firstTarget = false;
+            json.append("    {\n");
+            json.append("      \"target\": ").append(_quote(target.targetName)).append(",\n");
+            json.append("      \"injector\": ").append(_quote(target.injector)).append(",\n");
+            json.append("      \"parents\": [");
+            for (int i = 0; i < target.parents.size(); i++) {
+                json.append(i == 0 ? "" : ", ").append(_quote(target.parents.get(i)));
+            }
+            json.append("],\n");
+            json.append("      \"bindingCount\": ").append(target.bindings.size()).append(",\n");
+            json.append("      \"lookups\": ").append(target.lookups).append(",\n");
+            Integer totalLookups = _totalLookups(target);
+            if (totalLookups != null) {
+                json.append("      \"totalLookups\": ").append(totalLookups).append(",\n");
+            }
+            json.append("      \"bindings\": [");
+            boolean firstBinding = true;
+            for (Binding binding : target.bindings) {
+                json.append(firstBinding ? "\n" : ",\n");
+                firstBinding = false;
+                json.append("        {\"kind\": ").append(_quote(binding.kind))
+                        .append(", \"name\": ").append(_quote(binding.name))
+                        .append(", \"ids\": [");
+                for (int i = 0; i < binding.ids.length; i++) {
+                    json.append(i == 0 ? "" : ", ").append(binding.ids[i]);
+                }
+                json.append("], \"type\": ").append(_quote(binding.type)).append('}');
+            }
+            json.append(firstBinding ? "]\n" : "\n      ]\n");
+            json.append("    }");
+        }
+        json.append(firstTarget ? "]\n}\n" : "\n  ]\n}\n");
+        return json.toString();
+    }
+
+    /**
+     * @return 本类和所有父类的查找次数之和，继承链中有不在报告中的注入器时返回 null
+     */
+    private Integer _totalLookups(Target target) {
+        int total = target.lookups;
+        for (String parent : target.parents) {
+            Target parentTarget = targets.get(parent);
+            if (parentTarget == null) {
+                return null;
+            }
+            total += parentTarget.lookups;
+        }
+        return total;
+    }
+
+    private static String _quote(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * 一个目标类的报告
+     */
+    static final class Target {
+        private final String targetName;
+        private final String injector;
+        private final List<String> parents;
+        private final List<Binding> bindings = new ArrayList<>();
+        private int lookups;
+
+        private Target(String targetName, String injector, List<String> parents) {
+            this.targetName = targetName;
+            this.injector = injector;
+            this.parents = Collections.unmodifiableList(new ArrayList<>(parents));
+        }
+
+        /**
+         * @param kind view、lazy、stub、array、list、资源类型（string、color 等）或事件类型（click、long_click）
+         * @param name 字段名或方法名
+         * @param ids  绑定的资源ID，stub 为 View 和所在 ViewStub 的 ID
+         * @param type 字段类型，数组和 List 为元素类型，事件方法为监听接口
+         */
+        void addBinding(String kind, String name, int[] ids, String type) {
+            bindings.add(new Binding(kind, name, ids, type));
+        }
+
+        void setLookups(int lookups) {
+            this.lookups = lookups;
+        }
+    }
+
+    private static final class Binding {
+        final String kind;
+        final String name;
+        final int[] ids;
+        final String type;
+
+        Binding(String kind, String name, int[] ids, String type) {
+            this.kind = kind;
+            this.name = name;
+            this.ids = ids;
+            this.type = type;
+        }
+    }
+}
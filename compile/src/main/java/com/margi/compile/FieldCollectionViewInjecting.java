@@ -0,0 +1,52 @@
+package com.margi.compile;
+
+import com.squareup.javapoet.TypeName;
+
+/**
+ * Created by allen on 10/18/16.
+ * 多个 ID 绑定到一个数组或 List 字段的信息
+ */
+final class FieldCollectionViewInjecting implements ViewInjecting {
+
+    enum Kind {
+        ARRAY,
+        LIST
+    }
+
+    private final String name;
+    private final TypeName elementType;
+    private final Kind kind;
+    private final int[] ids;
+
+    /**
+     * @param elementType 数组或 List 的元素类型
+     * @param ids         按声明顺序排列的资源ID
+     */
+    FieldCollectionViewInjecting(String name, TypeName elementType, Kind kind, int[] ids) {
+        this.name = name;
+        this.elementType = elementType;
+        this.kind = kind;
+        this.ids = ids;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public TypeName getElementType() {
+        return elementType;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int[] getIds() {
+        return ids;
+    }
+
+    @Override
+    public String getDescription() {
+        return "field '" + name + "'";
+    }
+}
@@ -0,0 +1,60 @@
+package com.margi.compile;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.TypeName;
+
+/**
+ * Created by allen on 10/18/16.
+ * 资源绑定信息
+ */
+final class FieldResourceInjecting implements ViewInjecting {
+
+    /**
+     * 资源类型，名称与 com.margi.core.ResourceCache 中的常量一致
+     */
+    enum Kind {
+        STRING("getString", ClassName.get(String.class)),
+        COLOR("getInt", TypeName.INT),
+        COLOR_STATE_LIST("getColorStateList", ClassName.get("android.content.res", "ColorStateList")),
+        DIMEN("getFloat", TypeName.FLOAT),
+        DIMEN_PIXEL_SIZE("getInt", TypeName.INT),
+        DRAWABLE("getDrawable", ClassName.get("android.graphics.drawable", "Drawable"));
+
+        /** ResourceCache.Values 中读取该类型的方法 */
+        final String getter;
+        /** 字段类型 */
+        final TypeName type;
+
+        Kind(String getter, TypeName type) {
+            this.getter = getter;
+            this.type = type;
+        }
+    }
+
+    private final int id;
+    private final String name;
+    private final Kind kind;
+
+    FieldResourceInjecting(int id, String name, Kind kind) {
+        this.id = id;
+        this.name = name;
+        this.kind = kind;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    @Override
+    public String getDescription() {
+        return "field '" + name + "'";
+    }
+}
@@ -11,11 +11,19 @@ final class FieldViewInjecting implements ViewInjecting {
     private final String name;
     private final TypeName type;
     private final boolean required;
+    private final boolean lazy;
+    private final int stubId;
 
     FieldViewInjecting(String name, TypeName type, boolean required) {
+        this(name, type, required, false, 0);
+    }
+
+    FieldViewInjecting(String name, TypeName type, boolean required, boolean lazy, int stubId) {
         this.name = name;
         this.type = type;
         this.required = required;
+        this.lazy = lazy;
+        this.stubId = stubId;
     }
 
     public String getName() {
@@ -35,6 +43,20 @@ final class FieldViewInjecting implements ViewInjecting {
         return required;
     }
 
+    /**
+     * 是否延迟绑定，字段类型为 LazyView
+     */
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    /**
+     * @return View 所在 ViewStub 的 ID，不在 ViewStub 中时为 0，此时一定是延迟绑定
+     */
+    public int getStubId() {
+        return stubId;
+    }
+
     public boolean requiresCast() {
         return !VIEW_TYPE.equals(type.toString());
     }
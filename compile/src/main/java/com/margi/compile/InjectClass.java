@@ -1,18 +1,30 @@
 package com.margi.compile;
 
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ArrayTypeName;
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 import com.squareup.javapoet.TypeVariableName;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
 
 /**
  * Created by margi on 2016/8/11.
@@ -23,13 +35,26 @@ public final class InjectClass {
     private static final ClassName FINDER = ClassName.get("com.margi.core", "Finder");
     private static final ClassName VIEW_BINDER = ClassName.get("com.margi.core", "ViewInjector");
     private static final ClassName VIEW = ClassName.get("android.view", "View");
+    private static final ClassName LAZY_VIEW = ClassName.get("com.margi.core", "LazyView");
     private static final ClassName UTILS = ClassName.get("com.margi.core", "Utils");
     private static final ClassName CONTEXT = ClassName.get("android.content", "Context");
+    private static final ClassName RESOURCE_CACHE = ClassName.get("com.margi.core", "ResourceCache");
+    private static final ClassName LISTENER_BINDING = ClassName.get("com.margi.core", "ListenerBinding");
+    private static final String DISPATCHER = "ListenerDispatcher";
     private static final ClassName CONTEXT_COMPAT = ClassName.get("android.support.v4.content", "ContextCompat");
 //
     private final List<FieldViewInjecting> viewBindings = new ArrayList<>();
     private final Map<Integer, FieldViewInjecting> viewIdMap = new LinkedHashMap<>();
+    private final List<FieldCollectionViewInjecting> collectionBindings = new ArrayList<>();
+    private final List<FieldResourceInjecting> resourceBindings = new ArrayList<>();
+    private final Map<Integer, Map<MethodListenerInjecting.Type, MethodListenerInjecting>> listenerIdMap =
+            new LinkedHashMap<>();
     private InjectClass parentInjecting;
+    private boolean singlePass;
+    private boolean compact;
+    private boolean mergeRoot;
+    private Map<Integer, int[]> viewPaths = Collections.emptyMap();
+    private TypeElement originatingElement;
     private final String classPackage;
     private final String className;
     private final String targetClass;
@@ -61,6 +86,10 @@ public final class InjectClass {
                 .addModifiers(Modifier.PUBLIC)
                 .addTypeVariable(TypeVariableName.get("T", ClassName.bestGuess(targetClass)));
 
+        if (originatingElement != null) {
+            result.addOriginatingElement(originatingElement);
+        }
+
         if (_hasParentBinding()) {
             result.superclass(ParameterizedTypeName.get(ClassName.bestGuess(parentInjecting.classFqcn),
                     TypeVariableName.get("T")));
@@ -68,13 +97,51 @@ public final class InjectClass {
             result.addSuperinterface(ParameterizedTypeName.get(VIEW_BINDER, TypeVariableName.get("T")));
         }
 
+        result.addField(_createInstanceField());
+
+        if (_hasLookupArray()) {
+            result.addField(_createViewIdsField());
+        }
+        if (compact && _hasLookupArray()) {
+            result.addField(_createViewNamesField());
+        }
+
+        if (!_pathIndexes().isEmpty()) {
+            result.addField(_createViewPathsField());
+        }
+
+        if (_hasListenerBinding()) {
+            result.addType(_createDispatcherType());
+        }
+
+        if (_hasResourceBinding()) {
+            result.addField(_createResourcesField());
+        }
+
         result.addMethod(_createBindMethod());
+        result.addMethod(_createUnbindMethod());
 
         return JavaFile.builder(classPackage, result.build())
                 .addFileComment("Generated code from Butter Knife. Do not modify!")
                 .build();
     }
 
+    /**
+     * 创建单例常量。注入器无状态，每个类只需要一个实例；实例由注入器类持有，
+     * 插件等其他 ClassLoader 加载的注入器随这个 ClassLoader 一起回收，见 InjectorCache
+     *
+     * @return FieldSpec
+     */
+    private FieldSpec _createInstanceField() {
+        ClassName injector = ClassName.get(classPackage, className);
+        return FieldSpec.builder(injector, "INSTANCE", Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+                        .addMember("value", "$S", "rawtypes")
+                        .build())
+                .initializer("new $T()", injector)
+                .build();
+    }
+
     /**
      * 创建方法
      *
@@ -93,20 +160,656 @@ public final class InjectClass {
             result.addStatement("super.inject(finder, target, source)");
         }
 
-        if (_hasViewBinding()) {
-            // View
-            for (Map.Entry<Integer, FieldViewInjecting> entry : viewIdMap.entrySet()) {
-                int id = entry.getKey();
-                FieldViewInjecting fieldViewInjecting = entry.getValue();
-                result.addStatement("target.$L = finder.findRequiredView(source, $L, $S)",
-                        fieldViewInjecting.getName(), id, fieldViewInjecting.getDescription());
+        if (_hasListenerBinding()) {
+            // 所有事件共用一个分发对象，在锚点 View 上创建或复用，见 _listenerAnchorId
+            result.addStatement("$T view", VIEW);
+        }
+
+        if (_hasEagerViewLookup()) {
+            Map<Integer, Integer> pathIndexes = _pathIndexes();
+            if (!pathIndexes.isEmpty()) {
+                // 按编译时布局中的层级直接定位，层级不一致时 findViewByPath 回退到 findViewById
+                result.addStatement("$T root = finder.getLayoutRoot(source, $L)", VIEW, mergeRoot);
+            }
+            Map<Integer, Integer> indexes = null;
+            if (_hasLookupArray()) {
+                if (compact) {
+                    // 紧凑模式：在 Finder 中循环查找并检查，下标与排序后的 VIEW_IDS 一致
+                    result.addStatement("$T[] views = finder.findRequiredViews(source, VIEW_IDS, VIEW_NAMES, $L)",
+                            VIEW, singlePass);
+                } else {
+                    // 一次遍历找到其余的 View，下标与排序后的 VIEW_IDS 一致
+                    result.addStatement("$T[] views = finder.findViews(source, VIEW_IDS)", VIEW);
+                }
+                indexes = new LinkedHashMap<>();
+                for (Integer id : _sortedLookupIds()) {
+                    indexes.put(id, indexes.size());
+                }
+            }
+            Integer anchorId = _hasListenerBinding() ? _listenerAnchorId() : null;
+            for (Integer id : _eagerIds()) {
+                boolean anchor = anchorId != null && anchorId.equals(id);
+                _addViewLookup(result, id, anchor, _createLookup(id, compact && !anchor ? _fieldType(id) : null,
+                        _describeId(id), pathIndexes, indexes));
+            }
+            for (FieldCollectionViewInjecting binding : collectionBindings) {
+                CodeBlock.Builder views = CodeBlock.builder();
+                boolean first = true;
+                for (int id : binding.getIds()) {
+                    views.add(first ? "\n" : ",\n");
+                    first = false;
+                    views.add(_createLookup(id, binding.getElementType(), binding.getDescription(), pathIndexes,
+                            indexes));
+                }
+                _addCollection(result, binding, views.build());
             }
+        }
 
+        // 延迟绑定的 View，只保存查找参数，第一次 get() 时才查找；ViewStub 中的 View 查找前先 inflate
+        for (Map.Entry<Integer, FieldViewInjecting> entry : viewIdMap.entrySet()) {
+            FieldViewInjecting fieldViewInjecting = entry.getValue();
+            if (fieldViewInjecting.getStubId() != 0) {
+                result.addStatement("target.$L = new $T<>(finder, source, $L, $L, $S)", fieldViewInjecting.getName(),
+                        LAZY_VIEW, entry.getKey(), fieldViewInjecting.getStubId(),
+                        fieldViewInjecting.getDescription());
+            } else if (fieldViewInjecting.isLazy()) {
+                result.addStatement("target.$L = new $T<>(finder, source, $L, $S)", fieldViewInjecting.getName(),
+                        LAZY_VIEW, entry.getKey(), fieldViewInjecting.getDescription());
+            }
+        }
+
+        if (_hasResourceBinding()) {
+            // 资源按配置批量解析并缓存，下标与 RESOURCES 中的顺序一致
+            result.addStatement("$T context = finder.getContext(source)", CONTEXT);
+            result.addStatement("$T.Values resources = RESOURCES.resolve(context)", RESOURCE_CACHE);
+            for (int i = 0; i < resourceBindings.size(); i++) {
+                FieldResourceInjecting binding = resourceBindings.get(i);
+                if (binding.getKind() == FieldResourceInjecting.Kind.DRAWABLE) {
+                    result.addStatement("target.$L = resources.$L($L, context)", binding.getName(),
+                            binding.getKind().getter, i);
+                } else {
+                    result.addStatement("target.$L = resources.$L($L)", binding.getName(),
+                            binding.getKind().getter, i);
+                }
+            }
         }
 
         return result.build();
     }
 
+    /**
+     * 给查找到的 View 赋值字段、设置监听
+     *
+     * @param anchor 是否为分发对象的锚点，在这里创建或复用分发对象
+     * @param lookup 查找 View 的表达式
+     */
+    private void _addViewLookup(MethodSpec.Builder result, int id, boolean anchor, CodeBlock lookup) {
+        FieldViewInjecting field = viewIdMap.get(id);
+        if (field != null && field.isLazy()) {
+            field = null;
+        }
+        Map<MethodListenerInjecting.Type, MethodListenerInjecting> listeners = listenerIdMap.get(id);
+        if (listeners == null && !anchor) {
+            result.addStatement("target.$L = $L", field.getName(), lookup);
+            return;
+        }
+        result.addStatement("view = $L", lookup);
+        if (field != null && compact) {
+            result.addStatement("target.$L = $L", field.getName(), _cast(field.getType(), CodeBlock.of("view")));
+        } else if (field != null) {
+            result.addStatement("target.$L = finder.castView(view, $L, $S)", field.getName(), id,
+                    field.getDescription());
+        }
+        if (anchor) {
+            // 重新注入同一组 View 时复用之前的分发对象，不再分配
+            result.addStatement("$L dispatcher = $T.reuse(view, $L.class, target)", DISPATCHER, LISTENER_BINDING,
+                    DISPATCHER);
+            result.beginControlFlow("if (dispatcher == null)");
+            result.addStatement("dispatcher = new $L(target)", DISPATCHER);
+            result.addStatement("$T.attach(view, dispatcher)", LISTENER_BINDING);
+            result.endControlFlow();
+        }
+        if (listeners == null) {
+            return;
+        }
+        for (MethodListenerInjecting.Type type : listeners.keySet()) {
+            result.addStatement("view.$L(dispatcher)", type.setter);
+        }
+        result.addStatement("dispatcher.$L = view", _listenerViewName(id));
+    }
+
+    /**
+     * 分发对象挂在哪个 View 上：优先选绑定了事件且有字段的 ID，其次任一字段，unbind 通过这个字段取到分发对象；
+     * 都没有时为第一个绑定了事件的 ID，此时 unbind 无法从目标对象找到 View，监听随 View 一起回收。
+     * _eagerIds 中字段在前，锚点总是第一个设置监听的 View 或者在它之前
+     */
+    private int _listenerAnchorId() {
+        Integer firstField = null;
+        for (Integer id : _eagerIds()) {
+            FieldViewInjecting field = viewIdMap.get(id);
+            if (field == null || field.isLazy()) {
+                continue;
+            }
+            if (listenerIdMap.containsKey(id)) {
+                return id;
+            }
+            if (firstField == null) {
+                firstField = id;
+            }
+        }
+        return firstField != null ? firstField : listenerIdMap.keySet().iterator().next();
+    }
+
+    /**
+     * @return 分发对象中记录设置了监听的 View 的字段名，按 listenerIdMap 中的顺序编号
+     */
+    private String _listenerViewName(int id) {
+        int index = 0;
+        for (Integer listenerId : listenerIdMap.keySet()) {
+            if (listenerId == id) {
+                break;
+            }
+            index++;
+        }
+        return "view" + index;
+    }
+
+    /**
+     * 创建查找一个 View 的表达式：布局路径、单次遍历的结果或 findViewById
+     *
+     * @param type        显式的类型参数，数组和 List 元素需要，其他为 null
+     * @param pathIndexes ID -> VIEW_PATHS 下标
+     * @param indexes     ID -> views 下标，不是单次遍历模式时为 null
+     */
+    private CodeBlock _createLookup(int id, TypeName type, String description, Map<Integer, Integer> pathIndexes,
+                                    Map<Integer, Integer> indexes) {
+        if (compact && indexes != null && !pathIndexes.containsKey(id)) {
+            // findRequiredViews 已经检查过，类型不符时直接抛出 ClassCastException
+            return _cast(type, CodeBlock.of("views[$L]", indexes.get(id)));
+        }
+        CodeBlock.Builder lookup = CodeBlock.builder();
+        lookup.add(type == null ? "finder." : "finder.<$T>", type);
+        if (pathIndexes.containsKey(id)) {
+            lookup.add("requireView(source, finder.findViewByPath(source, root, VIEW_PATHS[$L], $L), $L, $S)",
+                    pathIndexes.get(id), id, id, description);
+        } else if (indexes != null) {
+            lookup.add("requireView(source, views[$L], $L, $S)", indexes.get(id), id, description);
+        } else {
+            lookup.add("findRequiredView(source, $L, $S)", id, description);
+        }
+        return lookup.build();
+    }
+
+    /**
+     * 紧凑模式下的显式类型转换，目标类型为 View 或未知时不转换
+     */
+    private static CodeBlock _cast(TypeName type, CodeBlock expression) {
+        if (type == null || VIEW.equals(type)) {
+            return expression;
+        }
+        return CodeBlock.of("($T) $L", type, expression);
+    }
+
+    /**
+     * @return 直接赋值给字段的 View 类型，字段延迟绑定或者该 ID 还绑定了事件时为 null
+     */
+    private TypeName _fieldType(int id) {
+        FieldViewInjecting field = viewIdMap.get(id);
+        if (field == null || field.isLazy() || listenerIdMap.containsKey(id)) {
+            return null;
+        }
+        return field.getType();
+    }
+
+    /**
+     * 按绑定数量精确创建数组，List 直接包装该数组
+     *
+     * @param views 逗号分隔的查找表达式
+     */
+    private void _addCollection(MethodSpec.Builder result, FieldCollectionViewInjecting binding, CodeBlock views) {
+        if (binding.getKind() == FieldCollectionViewInjecting.Kind.ARRAY) {
+            result.addStatement("target.$L = new $T[] {$L}", binding.getName(), binding.getElementType(), views);
+        } else {
+            result.addStatement("target.$L = $T.listOf($L)", binding.getName(), UTILS, views);
+        }
+    }
+
+    /**
+     * 查找失败时的描述，例：field 'title' and method 'onTitleClick'
+     */
+    private String _describeId(int id) {
+        StringBuilder description = new StringBuilder();
+        FieldViewInjecting field = viewIdMap.get(id);
+        if (field != null && !field.isLazy()) {
+            description.append(field.getDescription());
+        }
+        Map<MethodListenerInjecting.Type, MethodListenerInjecting> listeners = listenerIdMap.get(id);
+        if (listeners != null) {
+            for (MethodListenerInjecting listener : listeners.values()) {
+                if (description.length() > 0) {
+                    description.append(" and ");
+                }
+                description.append(listener.getDescription());
+            }
+        }
+        return description.toString();
+    }
+
+    /**
+     * 创建事件分发类，实现用到的所有监听接口，按 View ID 直接调用目标方法；
+     * 同时记录设置了监听的 View，解绑时移除监听
+     *
+     * @return TypeSpec
+     */
+    private TypeSpec _createDispatcherType() {
+        ClassName target = ClassName.bestGuess(targetClass);
+        TypeSpec.Builder result = TypeSpec.classBuilder(DISPATCHER)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .superclass(ParameterizedTypeName.get(LISTENER_BINDING, target))
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addParameter(target, "target")
+                        .addStatement("super(target)")
+                        .build());
+
+        MethodSpec.Builder removeListeners = MethodSpec.methodBuilder("removeListeners")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PROTECTED);
+        for (Map.Entry<Integer, Map<MethodListenerInjecting.Type, MethodListenerInjecting>> entry
+                : listenerIdMap.entrySet()) {
+            String name = _listenerViewName(entry.getKey());
+            // 包内可见，注入器直接赋值，不需要合成访问方法
+            result.addField(VIEW, name);
+            for (MethodListenerInjecting.Type type : entry.getValue().keySet()) {
+                removeListeners.addStatement("$L.$L(null)", name, type.setter);
+            }
+            removeListeners.addStatement("$L = null", name);
+        }
+        result.addMethod(removeListeners.build());
+
+        for (MethodListenerInjecting.Type type : MethodListenerInjecting.Type.values()) {
+            // 同一个方法绑定多个 ID 时合并 case
+            Map<MethodListenerInjecting, List<Integer>> methodIds = new LinkedHashMap<>();
+            for (Map.Entry<Integer, Map<MethodListenerInjecting.Type, MethodListenerInjecting>> entry
+                    : listenerIdMap.entrySet()) {
+                MethodListenerInjecting listener = entry.getValue().get(type);
+                if (listener == null) {
+                    continue;
+                }
+                List<Integer> ids = methodIds.get(listener);
+                if (ids == null) {
+                    ids = new ArrayList<>();
+                    methodIds.put(listener, ids);
+                }
+                ids.add(entry.getKey());
+            }
+            if (methodIds.isEmpty()) {
+                continue;
+            }
+
+            boolean returnsValue = !TypeName.VOID.equals(type.returnType);
+            MethodSpec.Builder callback = MethodSpec.methodBuilder(type.callback)
+                    .addAnnotation(Override.class)
+                    .addModifiers(Modifier.PUBLIC)
+                    .returns(type.returnType)
+                    .addParameter(VIEW, "view");
+            callback.beginControlFlow("switch (view.getId())");
+            for (Map.Entry<MethodListenerInjecting, List<Integer>> entry : methodIds.entrySet()) {
+                for (Integer id : entry.getValue()) {
+                    callback.addCode("case $L:\n", id);
+                }
+                callback.addCode("$>");
+                CodeBlock call = _createListenerCall(entry.getKey());
+                if (entry.getKey().returnsValue()) {
+                    callback.addStatement("return $L", call);
+                } else {
+                    callback.addStatement("$L", call);
+                    callback.addStatement(returnsValue ? "return false" : "break");
+                }
+                callback.addCode("$<");
+            }
+            if (returnsValue) {
+                callback.addCode("default:\n$>").addStatement("return false").addCode("$<");
+            }
+            callback.endControlFlow();
+
+            result.addSuperinterface(type.listener);
+            result.addMethod(callback.build());
+        }
+        return result.build();
+    }
+
+    private CodeBlock _createListenerCall(MethodListenerInjecting listener) {
+        TypeName parameterType = listener.getParameterType();
+        if (parameterType == null) {
+            return CodeBlock.of("target.$L()", listener.getName());
+        } else if (VIEW.equals(parameterType)) {
+            return CodeBlock.of("target.$L(view)", listener.getName());
+        }
+        // 类型不符时报告方法名和 ID，而不是直接抛出 ClassCastException
+        TypeName rawType = parameterType instanceof ParameterizedTypeName
+                ? ((ParameterizedTypeName) parameterType).rawType : parameterType;
+        return CodeBlock.of("target.$L(castParam(view, $T.class, $S))", listener.getName(), rawType,
+                listener.getName());
+    }
+
+    /**
+     * 创建解绑方法，移除本类设置的监听、置空本类绑定的字段，父类的交给父类的 unbind
+     *
+     * @return MethodSpec
+     */
+    private MethodSpec _createUnbindMethod() {
+        MethodSpec.Builder result = MethodSpec.methodBuilder("unbind")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(TypeVariableName.get("T"), "target");
+
+        if (_hasParentBinding()) {
+            result.addStatement("super.unbind(target)");
+        }
+
+        if (_hasListenerBinding()) {
+            FieldViewInjecting anchor = viewIdMap.get(_listenerAnchorId());
+            if (anchor != null) {
+                // 在置空字段之前通过锚点取到分发对象
+                result.addStatement("$T.unbind(target, target.$L, $L.class)", LISTENER_BINDING, anchor.getName(),
+                        DISPATCHER);
+            }
+        }
+        for (FieldViewInjecting fieldViewInjecting : viewIdMap.values()) {
+            result.addStatement("target.$L = null", fieldViewInjecting.getName());
+        }
+        for (FieldCollectionViewInjecting binding : collectionBindings) {
+            result.addStatement("target.$L = null", binding.getName());
+        }
+
+        return result.build();
+    }
+
+    /**
+     * 创建升序排列的 ID 数组常量，供 Finder.findViews 二分查找
+     *
+     * @return FieldSpec
+     */
+    private FieldSpec _createViewIdsField() {
+        CodeBlock.Builder ids = CodeBlock.builder().add("{");
+        boolean first = true;
+        for (Integer id : _sortedLookupIds()) {
+            ids.add(first ? " $L" : ", $L", id);
+            first = false;
+        }
+        ids.add(" }");
+        return FieldSpec.builder(ArrayTypeName.of(TypeName.INT), "VIEW_IDS",
+                Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .initializer(ids.build())
+                .build();
+    }
+
+    /**
+     * 创建紧凑模式的名称常量，与 VIEW_IDS 一一对应、以换行分隔。字符串常量不需要静态初始化，
+     * 整个类只有这一个，只存名称不存完整描述，查找失败时由 Finder 拼出描述
+     *
+     * @return FieldSpec
+     */
+    private FieldSpec _createViewNamesField() {
+        StringBuilder names = new StringBuilder();
+        for (Integer id : _sortedLookupIds()) {
+            if (names.length() > 0) {
+                names.append('\n');
+            }
+            names.append(_nameId(id));
+        }
+        return FieldSpec.builder(String.class, "VIEW_NAMES", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .initializer("$S", names.toString())
+                .build();
+    }
+
+    /**
+     * 紧凑模式下查找失败时报告的名称：字段名，只绑定了事件时为方法名加 "()"，只被数组或 List 绑定时为集合字段名
+     */
+    private String _nameId(int id) {
+        FieldViewInjecting field = viewIdMap.get(id);
+        if (field != null && !field.isLazy()) {
+            return field.getName();
+        }
+        Map<MethodListenerInjecting.Type, MethodListenerInjecting> listeners = listenerIdMap.get(id);
+        if (listeners != null) {
+            return listeners.values().iterator().next().getName() + "()";
+        }
+        for (FieldCollectionViewInjecting binding : collectionBindings) {
+            for (int bindingId : binding.getIds()) {
+                if (bindingId == id) {
+                    return binding.getName();
+                }
+            }
+        }
+        throw new AssertionError("Unbound ID " + id);
+    }
+
+    /**
+     * 创建布局路径常量，每一项是从布局根节点开始的子 View 下标
+     *
+     * @return FieldSpec
+     */
+    private FieldSpec _createViewPathsField() {
+        CodeBlock.Builder paths = CodeBlock.builder().add("{");
+        boolean first = true;
+        for (Integer id : _pathIndexes().keySet()) {
+            paths.add(first ? " {" : ", {");
+            first = false;
+            int[] path = viewPaths.get(id);
+            for (int i = 0; i < path.length; i++) {
+                paths.add(i == 0 ? " $L" : ", $L", path[i]);
+            }
+            paths.add(" }");
+        }
+        paths.add(" }");
+        return FieldSpec.builder(ArrayTypeName.of(ArrayTypeName.of(TypeName.INT)), "VIEW_PATHS",
+                Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .initializer(paths.build())
+                .build();
+    }
+
+    /**
+     * 创建资源缓存常量，所有实例共享同一份解析结果
+     *
+     * @return FieldSpec
+     */
+    private FieldSpec _createResourcesField() {
+        CodeBlock.Builder kinds = CodeBlock.builder().add("{");
+        CodeBlock.Builder ids = CodeBlock.builder().add("{");
+        for (int i = 0; i < resourceBindings.size(); i++) {
+            FieldResourceInjecting binding = resourceBindings.get(i);
+            kinds.add(i == 0 ? " $T.$L" : ", $T.$L", RESOURCE_CACHE, binding.getKind().name());
+            ids.add(i == 0 ? " $L" : ", $L", binding.getId());
+        }
+        kinds.add(" }");
+        ids.add(" }");
+        return FieldSpec.builder(RESOURCE_CACHE, "RESOURCES", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .initializer("new $T(new int[] $L, new int[] $L)", RESOURCE_CACHE, kinds.build(), ids.build())
+                .build();
+    }
+
+    /**
+     * @return 需要在注入时查找的 ID：非延迟绑定的字段和事件方法
+     */
+    private Set<Integer> _eagerIds() {
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (Map.Entry<Integer, FieldViewInjecting> entry : viewIdMap.entrySet()) {
+            if (!entry.getValue().isLazy()) {
+                ids.add(entry.getKey());
+            }
+        }
+        ids.addAll(listenerIdMap.keySet());
+        return ids;
+    }
+
+    /**
+     * @return 按升序排列的所有需要在注入时查找的 ID，包括数组和 List 绑定
+     */
+    private Set<Integer> _sortedViewIds() {
+        Set<Integer> ids = new TreeSet<>(_eagerIds());
+        for (FieldCollectionViewInjecting binding : collectionBindings) {
+            for (int id : binding.getIds()) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * @return 按升序排列的、没有布局路径需要查找的 ID
+     */
+    private Set<Integer> _sortedLookupIds() {
+        Set<Integer> ids = _sortedViewIds();
+        ids.removeAll(viewPaths.keySet());
+        return ids;
+    }
+
+    /**
+     * @return 有布局路径的 ID -> VIEW_PATHS 下标
+     */
+    private Map<Integer, Integer> _pathIndexes() {
+        Map<Integer, Integer> indexes = new LinkedHashMap<>();
+        for (Integer id : _sortedViewIds()) {
+            if (viewPaths.containsKey(id)) {
+                indexes.put(id, indexes.size());
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * 估算一次注入中本类的 View 查找次数，与 _createBindMethod 生成的代码一一对应：
+     * 单次遍历算一次，每个布局路径和 findRequiredView 各算一次，延迟绑定和父类的查找不计入
+     *
+     * @return 查找次数
+     */
+    public int getLookupCount() {
+        if (!_hasEagerViewLookup()) {
+            return 0;
+        }
+        Map<Integer, Integer> pathIndexes = _pathIndexes();
+        boolean lookupArray = _hasLookupArray();
+        List<Integer> ids = new ArrayList<>(_eagerIds());
+        for (FieldCollectionViewInjecting binding : collectionBindings) {
+            for (int id : binding.getIds()) {
+                ids.add(id);
+            }
+        }
+        // 单次遍历算一次；紧凑模式不单次遍历时 VIEW_IDS 中每个 ID 只查找一次
+        int count = !lookupArray ? 0 : singlePass ? 1 : _sortedLookupIds().size();
+        for (Integer id : ids) {
+            if (pathIndexes.containsKey(id) || !lookupArray) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 把本类的绑定写入构建报告
+     *
+     * @param target 报告中的目标类
+     */
+    void reportBindings(BindingReport.Target target) {
+        for (Map.Entry<Integer, FieldViewInjecting> entry : viewIdMap.entrySet()) {
+            FieldViewInjecting binding = entry.getValue();
+            if (binding.getStubId() != 0) {
+                target.addBinding("stub", binding.getName(), new int[]{entry.getKey(), binding.getStubId()},
+                        binding.getType().toString());
+                continue;
+            }
+            target.addBinding(binding.isLazy() ? "lazy" : "view", binding.getName(), new int[]{entry.getKey()},
+                    binding.getType().toString());
+        }
+        for (FieldCollectionViewInjecting binding : collectionBindings) {
+            target.addBinding(binding.getKind().name().toLowerCase(Locale.US), binding.getName(), binding.getIds(),
+                    binding.getElementType().toString());
+        }
+        for (FieldResourceInjecting binding : resourceBindings) {
+            target.addBinding(binding.getKind().name().toLowerCase(Locale.US), binding.getName(),
+                    new int[]{binding.getId()}, binding.getKind().type.toString());
+        }
+        // 同一个方法绑定多个 ID 时合并为一项
+        Map<MethodListenerInjecting, List<Integer>> methodIds = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Map<MethodListenerInjecting.Type, MethodListenerInjecting>> entry
+                : listenerIdMap.entrySet()) {
+            for (MethodListenerInjecting listener : entry.getValue().values()) {
+                List<Integer> ids = methodIds.get(listener);
+                if (ids == null) {
+                    ids = new ArrayList<>();
+                    methodIds.put(listener, ids);
+                }
+                ids.add(entry.getKey());
+            }
+        }
+        for (Map.Entry<MethodListenerInjecting, List<Integer>> entry : methodIds.entrySet()) {
+            MethodListenerInjecting listener = entry.getKey();
+            int[] ids = new int[entry.getValue().size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = entry.getValue().get(i);
+            }
+            target.addBinding(listener.getType().name().toLowerCase(Locale.US), listener.getName(), ids,
+                    listener.getType().listener.toString());
+        }
+        target.setLookups(getLookupCount());
+    }
+
+    /**
+     * 设置布局分析的结果
+     *
+     * @param mergeRoot 布局根节点是否为 merge
+     * @param viewPaths ID -> 从布局根节点开始的子 View 下标
+     */
+    public void setViewPaths(boolean mergeRoot, Map<Integer, int[]> viewPaths) {
+        this.mergeRoot = mergeRoot;
+        this.viewPaths = viewPaths;
+    }
+
+    /**
+     * 设置是否使用单次遍历模式：一次遍历 View 树找到所有 ID，而不是每个字段调用一次 findViewById
+     *
+     * @param singlePass 是否单次遍历
+     */
+    public void setSinglePass(boolean singlePass) {
+        this.singlePass = singlePass;
+    }
+
+    /**
+     * 设置是否使用紧凑模式：ID 和名称保存在静态数组和一个字符串常量中，由 Finder 循环查找，
+     * 减少生成代码的字节码和字符串常量，类型不符时抛出的是 ClassCastException
+     *
+     * @param compact 是否紧凑模式
+     */
+    public void setCompact(boolean compact) {
+        this.compact = compact;
+    }
+
+    /**
+     * 设置生成文件的来源元素，供 Filer 记录增量编译依赖
+     *
+     * @param originatingElement 目标类元素
+     */
+    public void setOriginatingElement(TypeElement originatingElement) {
+        this.originatingElement = originatingElement;
+    }
+
+    /**
+     * @return 目标类元素
+     */
+    public TypeElement getOriginatingElement() {
+        return originatingElement;
+    }
+
+    /**
+     * 生成Class的完全限定名称
+     *
+     * @return com.butterknife.MainActivity$$ViewBinder
+     */
+    public String getClassFqcn() {
+        return classFqcn;
+    }
+
     /**
      * 添加 ViewBinding
      *
@@ -120,8 +823,102 @@ public final class InjectClass {
         }
     }
 
-    private boolean _hasViewBinding() {
-        return !(viewBindings.isEmpty());
+    /**
+     * 添加资源绑定
+     *
+     * @param injecting 资源信息
+     */
+    public void addResourceBinding(FieldResourceInjecting injecting) {
+        resourceBindings.add(injecting);
+    }
+
+    /**
+     * 添加数组或 List 绑定
+     *
+     * @param injecting 绑定信息
+     */
+    public void addCollectionBinding(FieldCollectionViewInjecting injecting) {
+        collectionBindings.add(injecting);
+    }
+
+    private boolean _hasResourceBinding() {
+        return !resourceBindings.isEmpty();
+    }
+
+    /**
+     * 添加事件方法绑定
+     *
+     * @param id        资源ID
+     * @param injecting 方法信息
+     */
+    public void addListenerBinding(int id, MethodListenerInjecting injecting) {
+        Map<MethodListenerInjecting.Type, MethodListenerInjecting> listeners = listenerIdMap.get(id);
+        if (listeners == null) {
+            listeners = new EnumMap<>(MethodListenerInjecting.Type.class);
+            listenerIdMap.put(id, listeners);
+        }
+        if (!listeners.containsKey(injecting.getType())) {
+            listeners.put(injecting.getType(), injecting);
+        }
+    }
+
+    /**
+     * 判断 id 是否已经绑定同类型的事件
+     */
+    public MethodListenerInjecting isExistListenerBinding(MethodListenerInjecting.Type type, int id) {
+        Map<MethodListenerInjecting.Type, MethodListenerInjecting> listeners = listenerIdMap.get(id);
+        return listeners == null ? null : listeners.get(type);
+    }
+
+    /**
+     * 检查是否与父类在同一个 ID 上绑定了同类事件：子类的分发对象会替换父类设置的监听，父类的方法不会再被调用。
+     * 只能检查本轮一起处理的父类，来自其他模块的父类没有绑定信息
+     *
+     * @return 冲突的描述，没有冲突时为 null
+     */
+    public String findParentListenerConflict() {
+        for (Map.Entry<Integer, Map<MethodListenerInjecting.Type, MethodListenerInjecting>> entry
+                : listenerIdMap.entrySet()) {
+            for (MethodListenerInjecting listener : entry.getValue().values()) {
+                for (InjectClass parent = parentInjecting; parent != null; parent = parent.parentInjecting) {
+                    MethodListenerInjecting parentListener =
+                            parent.isExistListenerBinding(listener.getType(), entry.getKey());
+                    if (parentListener != null) {
+                        return String.format(Locale.US, "%s for ID %d replaces %s declared in parent %s. "
+                                        + "Override '%s' instead of binding the ID again.",
+                                listener.getDescription(), entry.getKey(), parentListener.getDescription(),
+                                parent.targetClass, parentListener.getName());
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean _hasListenerBinding() {
+        return !listenerIdMap.isEmpty();
+    }
+
+    /**
+     * @return 是否通过 VIEW_IDS 数组查找：单次遍历或紧凑模式，并且有布局路径以外的 ID
+     */
+    private boolean _hasLookupArray() {
+        return (singlePass || compact) && !_sortedLookupIds().isEmpty();
+    }
+
+    /**
+     * @return 是否有需要在注入时查找的 View
+     */
+    private boolean _hasEagerViewLookup() {
+        if (_hasListenerBinding() || !collectionBindings.isEmpty()) {
+            return true;
+        }
+        for (FieldViewInjecting binding : viewBindings) {
+            if (!binding.isLazy()) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -0,0 +1,164 @@
+package com.margi.compile;
+
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.WildcardTypeName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+
+/**
+ * Created by allen on 10/18/16.
+ * 注册表生成类，一个模块对应一个注册表，记录该模块中所有目标类与生成的注入器的映射
+ */
+final class InjectRegistry {
+
+    static final String DEFAULT_REGISTRY = "com.margi.core.InjectorRegistry$$Generated";
+
+    private static final ClassName REGISTRY = ClassName.get("com.margi.core", "InjectorRegistry", "Preloadable");
+    private static final ClassName AUTHORITATIVE = ClassName.get("com.margi.core", "InjectorRegistry",
+            "Authoritative");
+    private static final ClassName VIEW_INJECTOR = ClassName.get("com.margi.core", "ViewInjector");
+
+    /** 目标类的二进制名称 -> 生成的注入器完全限定名称，按名称排序保证输出稳定 */
+    private final Map<String, String> injectors = new TreeMap<>();
+    /** 模块中编译的所有类所在的包，包括没有注解的类 */
+    private final Set<String> packages = new TreeSet<>();
+    private final List<TypeElement> originatingElements = new ArrayList<>();
+    private final String classPackage;
+    private final String className;
+
+    /**
+     * @param registryFqcn 注册表的完全限定名称：com.margi.core.InjectorRegistry$$Generated
+     */
+    InjectRegistry(String registryFqcn) {
+        int lastDot = registryFqcn.lastIndexOf('.');
+        this.classPackage = lastDot == -1 ? "" : registryFqcn.substring(0, lastDot);
+        this.className = registryFqcn.substring(lastDot + 1);
+    }
+
+    /**
+     * 添加映射
+     *
+     * @param targetBinaryName 目标类的二进制名称，与运行时 Class.getName() 一致：com.butterknife.MainActivity$Holder
+     * @param injectorFqcn     生成的注入器完全限定名称：com.butterknife.MainActivity$Holder$$ViewInjector
+     * @param originatingElement 目标类元素，注册表依赖所有目标类
+     */
+    void addInjector(String targetBinaryName, String injectorFqcn, TypeElement originatingElement) {
+        injectors.put(targetBinaryName, injectorFqcn);
+        int lastDot = targetBinaryName.lastIndexOf('.');
+        packages.add(lastDot == -1 ? "" : targetBinaryName.substring(0, lastDot));
+        if (originatingElement != null) {
+            originatingElements.add(originatingElement);
+        }
+    }
+
+    /**
+     * 记录模块编译了该包中的类，运行时这些包中注册表找不到的类不再反射探测
+     *
+     * @param packageName 包名，默认包为空字符串
+     */
+    void addPackage(String packageName) {
+        packages.add(packageName);
+    }
+
+    boolean ownsPackage(String packageName) {
+        return packages.contains(packageName);
+    }
+
+    boolean isEmpty() {
+        return injectors.isEmpty();
+    }
+
+    /**
+     * 生成Java类
+     *
+     * @return JavaFile
+     */
+    JavaFile brewJava() {
+        TypeName injectorOfObject = ParameterizedTypeName.get(VIEW_INJECTOR, TypeName.OBJECT);
+        TypeName classOfAny = ParameterizedTypeName.get(ClassName.get(Class.class),
+                WildcardTypeName.subtypeOf(Object.class));
+
+        MethodSpec.Builder findInjector = MethodSpec.methodBuilder("findInjector")
+                .addAnnotation(Override.class)
+                .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+                        .addMember("value", "$S", "unchecked")
+                        .build())
+                .addModifiers(Modifier.PUBLIC)
+                .returns(injectorOfObject)
+                .addParameter(classOfAny, "cls");
+
+        // 注入器类都是 public 的，目标类可能是包访问权限，所以用类名 switch 而不是 Class 比较
+        findInjector.beginControlFlow("switch (cls.getName())");
+        for (Map.Entry<String, String> entry : injectors.entrySet()) {
+            findInjector.addStatement("case $S: return ($T) $T.INSTANCE", entry.getKey(), injectorOfObject,
+                    _bestGuess(entry.getValue()));
+        }
+        findInjector.addStatement("default: return null");
+        findInjector.endControlFlow();
+
+        // 供 Injector.preloadAll 在后台线程加载，每次返回新数组，调用方修改也不影响注册表
+        CodeBlock.Builder names = CodeBlock.builder();
+        String separator = "";
+        for (String targetName : injectors.keySet()) {
+            names.add(separator + "$S", targetName);
+            separator = ", ";
+        }
+        MethodSpec getTargetNames = MethodSpec.methodBuilder("getTargetNames")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .returns(String[].class)
+                .addStatement("return new String[] { $L }", names.build())
+                .build();
+
+        MethodSpec.Builder ownsPackage = MethodSpec.methodBuilder("ownsPackage")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .returns(boolean.class)
+                .addParameter(String.class, "packageName");
+        ownsPackage.beginControlFlow("switch (packageName)");
+        for (String packageName : packages) {
+            ownsPackage.addCode("case $S:\n", packageName);
+        }
+        ownsPackage.addCode("$>").addStatement("return true").addCode("$<");
+        ownsPackage.addStatement("default: return false");
+        ownsPackage.endControlFlow();
+
+        TypeSpec.Builder registry = TypeSpec.classBuilder(className)
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .addSuperinterface(REGISTRY)
+                .addSuperinterface(AUTHORITATIVE)
+                .addMethod(findInjector.build())
+                .addMethod(getTargetNames)
+                .addMethod(ownsPackage.build());
+        for (TypeElement originatingElement : originatingElements) {
+            registry.addOriginatingElement(originatingElement);
+        }
+
+        return JavaFile.builder(classPackage, registry.build())
+                .addFileComment("Generated code from Butter Knife. Do not modify!")
+                .build();
+    }
+
+    /**
+     * 注入器类名中包含 '$'，不能直接用 ClassName.bestGuess 按嵌套类解析
+     */
+    private static ClassName _bestGuess(String fqcn) {
+        int lastDot = fqcn.lastIndexOf('.');
+        return ClassName.get(lastDot == -1 ? "" : fqcn.substring(0, lastDot), fqcn.substring(lastDot + 1));
+    }
+}
@@ -1,22 +1,42 @@
 package com.margi.compile;
 
 import com.google.auto.service.AutoService;
+import com.margi.annotation.BindColor;
+import com.margi.annotation.BindDimen;
+import com.margi.annotation.BindDrawable;
+import com.margi.annotation.BindString;
+import com.margi.annotation.InjectLayout;
 import com.margi.annotation.InjectView;
+import com.margi.annotation.OnClick;
+import com.margi.annotation.OnLongClick;
+import com.squareup.javapoet.JavaFile;
 
 import java.io.IOException;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.processing.AbstractProcessor;
 import javax.annotation.processing.Filer;
-import javax.annotation.processing.Messager;
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.annotation.processing.Processor;
 import javax.annotation.processing.RoundEnvironment;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeKind;
@@ -24,6 +44,9 @@ import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
 
 /**
  * Created by allen on 8/24/16.
@@ -55,7 +78,82 @@ public class InjectorProcessor  extends AbstractProcessor{
     private Types typeUtils;
     private Elements elementUtils;
     private Filer filer;
-    private Messager messager;
+    private ProcessorLog messager;
+    private ProcessorStats stats;
+    private boolean printStats;
+    // 模块注册表，跨 round 收集，在第一个没有新目标类的 round 生成
+    private InjectRegistry injectRegistry;
+    private boolean registryWritten;
+    private boolean singlePass;
+    private boolean compact;
+    private boolean isolating;
+    private int parallelism;
+    // 布局分析，未设置 viewinject.resDirs 时为 null
+    private LayoutHelper layoutHelper;
+    // 构建报告，跨 round 收集，未设置 viewinject.report 时为 null
+    private BindingReport report;
+    private final List<TypeElement> reportElements = new ArrayList<>();
+
+    /**
+     * apt 参数：生成的注册表类名，多个模块都使用注解时，library 模块需要指定不同的类名
+     */
+    static final String OPTION_REGISTRY = "viewinject.registry";
+    /**
+     * apt 参数：为 true 时生成单次遍历 View 树的注入代码，适合绑定数量多、View 树大的页面
+     */
+    static final String OPTION_SINGLE_PASS = "viewinject.singlePass";
+    /**
+     * apt 参数：为 true 时生成紧凑的注入代码，ID 保存在静态数组中由 Finder 循环查找，
+     * 每个类只有一个描述字符串常量，减少 dex 大小，适合开启了 multiDex 的大型应用
+     */
+    static final String OPTION_COMPACT = "viewinject.compact";
+    /**
+     * apt 参数：生成代码的并行线程数，默认 1 即顺序生成。大于 1 时在固定大小的线程池中并行构建 JavaFile，
+     * Filer 写入仍然按目标类顺序串行执行，输出与顺序生成完全一致
+     */
+    static final String OPTION_PARALLELISM = "viewinject.parallelism";
+    /**
+     * apt 参数：为 true 时按 Gradle 隔离模式（isolating）增量处理，每个生成文件只依赖目标类，
+     * 此时不生成汇总所有目标类的注册表，运行时回退到反射查找注入器
+     */
+    static final String OPTION_ISOLATING = "viewinject.isolating";
+    /**
+     * apt 参数：日志级别 quiet（默认）、info、debug
+     */
+    static final String OPTION_LOG_LEVEL = "viewinject.logLevel";
+    /**
+     * apt 参数：为 true 时在编译结束时输出各阶段耗时以及元素、目标类数量
+     */
+    static final String OPTION_STATS = "viewinject.stats";
+    /**
+     * apt 参数：模块的 res 目录，多个目录用路径分隔符分隔。设置后读取 @InjectLayout 声明的布局，
+     * 检查绑定的 ID 和字段类型，并生成按布局层级直接定位 View 的代码。
+     * 布局文件不经过 Filer 读取，此时不参与 Gradle 增量编译
+     */
+    static final String OPTION_RES_DIRS = "viewinject.resDirs";
+    /**
+     * apt 参数：为 true 时在生成源码目录输出 JSON 格式的构建报告 viewinject-report.json，
+     * 记录每个目标类的绑定、注入器继承链和估算的运行时查找次数。报告汇总所有目标类，隔离模式下不输出
+     */
+    static final String OPTION_REPORT = "viewinject.report";
+
+    /** 构建报告文件名，位于 StandardLocation.SOURCE_OUTPUT 根目录，不会被打包 */
+    static final String REPORT_FILE = "viewinject-report.json";
+
+    /**
+     * 资源绑定注解
+     */
+    private static final List<Class<? extends Annotation>> RESOURCE_ANNOTATIONS =
+            Arrays.<Class<? extends Annotation>>asList(BindString.class, BindColor.class, BindDimen.class,
+                    BindDrawable.class);
+    /**
+     * 事件方法注解
+     */
+    private static final List<Class<? extends Annotation>> LISTENER_ANNOTATIONS =
+            Arrays.<Class<? extends Annotation>>asList(OnClick.class, OnLongClick.class);
+
+    private static final String GRADLE_ISOLATING = "org.gradle.annotation.processing.isolating";
+    private static final String GRADLE_AGGREGATING = "org.gradle.annotation.processing.aggregating";
 
     @Override
     public synchronized void init(ProcessingEnvironment processingEnv) {
@@ -63,25 +161,135 @@ public class InjectorProcessor  extends AbstractProcessor{
         typeUtils = processingEnv.getTypeUtils();
         elementUtils = processingEnv.getElementUtils();
         filer = processingEnv.getFiler();
-        messager = processingEnv.getMessager();
+        ProcessorLog.Level level;
+        try {
+            level = ProcessorLog.Level.parse(processingEnv.getOptions().get(OPTION_LOG_LEVEL));
+        } catch (IllegalArgumentException e) {
+            level = ProcessorLog.Level.QUIET;
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Unknown " + OPTION_LOG_LEVEL
+                    + " '" + processingEnv.getOptions().get(OPTION_LOG_LEVEL) + "', expected quiet, info or debug.");
+        }
+        messager = new ProcessorLog(processingEnv.getMessager(), level);
+        stats = new ProcessorStats();
+        printStats = Boolean.parseBoolean(processingEnv.getOptions().get(OPTION_STATS));
+
+        String registryFqcn = processingEnv.getOptions().get(OPTION_REGISTRY);
+        if (registryFqcn == null || registryFqcn.isEmpty()) {
+            registryFqcn = InjectRegistry.DEFAULT_REGISTRY;
+        }
+        injectRegistry = new InjectRegistry(registryFqcn);
+        singlePass = Boolean.parseBoolean(processingEnv.getOptions().get(OPTION_SINGLE_PASS));
+        compact = Boolean.parseBoolean(processingEnv.getOptions().get(OPTION_COMPACT));
+        String parallelismOption = processingEnv.getOptions().get(OPTION_PARALLELISM);
+        try {
+            parallelism = parallelismOption == null ? 1 : Math.max(1, Integer.parseInt(parallelismOption));
+        } catch (NumberFormatException e) {
+            parallelism = 1;
+            messager.printMessage(Diagnostic.Kind.WARNING, "Unknown " + OPTION_PARALLELISM + " '"
+                    + parallelismOption + "', expected a thread count.");
+        }
+        isolating = Boolean.parseBoolean(processingEnv.getOptions().get(OPTION_ISOLATING));
+        String resDirs = processingEnv.getOptions().get(OPTION_RES_DIRS);
+        if (resDirs != null && !resDirs.isEmpty()) {
+            layoutHelper = new LayoutHelper(resDirs, elementUtils, typeUtils, messager);
+        }
+        if (Boolean.parseBoolean(processingEnv.getOptions().get(OPTION_REPORT))) {
+            if (isolating) {
+                messager.printMessage(Diagnostic.Kind.WARNING, OPTION_REPORT + " aggregates all targets and is "
+                        + "ignored when " + OPTION_ISOLATING + " is enabled.");
+            } else {
+                report = new BindingReport();
+            }
+        }
     }
 
     @Override
     public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            _writeRegistry();
+            _writeReport();
+            if (printStats) {
+                messager.printMessage(Diagnostic.Kind.NOTE, stats.report());
+            }
+            return true;
+        }
+        stats.addRound();
+
+        if (!isolating && !registryWritten) {
+            // 注册表声明模块编译的包，运行时这些包中没有注解的类（例如子类）不再反射探测注入器
+            for (Element element : roundEnv.getRootElements()) {
+                if (element instanceof TypeElement) {
+                    injectRegistry.addPackage(elementUtils.getPackageOf(element).getQualifiedName().toString());
+                }
+            }
+        }
+
         // 保存包含注解元素的目标类，注意是使用注解的外围类，主要用来处理父类继承，例：MainActivity
         Set<TypeElement> erasedTargetNames = new LinkedHashSet<>();
         // TypeElement 使用注解的外围类， 对应一个要生成的类
         Map<TypeElement, InjectClass> targetClassMap = new LinkedHashMap<>();
 
+        // 比对用的类型每轮只解析一次
+        TypeHelper typeHelper = new TypeHelper(elementUtils, typeUtils);
+
+        Set<? extends Element> elements = roundEnv.getElementsAnnotatedWith(InjectView.class);
+        if (elements.isEmpty() && !_hasElements(roundEnv, RESOURCE_ANNOTATIONS)
+                && !_hasElements(roundEnv, LISTENER_ANNOTATIONS)) {
+            // 上一轮生成的注入器已经处理完，在这里生成注册表，避免在最后一轮生成文件产生警告
+            _writeRegistry();
+            return true;
+        }
+
         // 处理Bind
-        for (Element element : roundEnv.getElementsAnnotatedWith(InjectView.class)) {
-            if (VerifyHelper.verifyView(element, messager)) {
+        for (Element element : elements) {
+            stats.addElement();
+            long start = System.nanoTime();
+            boolean valid = VerifyHelper.verifyView(element, messager);
+            stats.addTime(ProcessorStats.Phase.VALIDATION, start);
+            if (valid) {
+                start = System.nanoTime();
                 ParseHelper.parseViewBind(element, targetClassMap, erasedTargetNames,
-                        elementUtils, typeUtils, messager);
+                        elementUtils, typeUtils, typeHelper, messager);
+                stats.addTime(ProcessorStats.Phase.PARSING, start);
                 _log(element, "element getSimpleName =  %s  getEnclosingElement = %s ",element.getSimpleName(),element.getEnclosingElement());
             }
         }
 
+        // 处理资源绑定
+        for (Class<? extends Annotation> annotationClass : RESOURCE_ANNOTATIONS) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotationClass)) {
+                stats.addElement();
+                long start = System.nanoTime();
+                boolean valid = VerifyHelper.verifyResource(element, annotationClass, messager);
+                stats.addTime(ProcessorStats.Phase.VALIDATION, start);
+                if (valid) {
+                    start = System.nanoTime();
+                    ParseHelper.parseResourceBind(element, annotationClass, targetClassMap, erasedTargetNames,
+                            elementUtils, messager);
+                    stats.addTime(ProcessorStats.Phase.PARSING, start);
+                }
+            }
+        }
+
+        // 处理事件方法
+        for (Class<? extends Annotation> annotationClass : LISTENER_ANNOTATIONS) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotationClass)) {
+                stats.addElement();
+                long start = System.nanoTime();
+                boolean valid = VerifyHelper.verifyListener(element, annotationClass, messager);
+                stats.addTime(ProcessorStats.Phase.VALIDATION, start);
+                if (valid) {
+                    start = System.nanoTime();
+                    ParseHelper.parseListenerBind(element, annotationClass, targetClassMap, erasedTargetNames,
+                            elementUtils, typeHelper, messager);
+                    stats.addTime(ProcessorStats.Phase.PARSING, start);
+                }
+            }
+        }
+
+        // 第一步按顺序处理需要访问 javac 模型的部分，Elements、Types 和 Messager 都不是线程安全的
+        List<TypeElement> generatedTypes = new ArrayList<>();
+        List<InjectClass> generatedClasses = new ArrayList<>();
         for (Map.Entry<TypeElement, InjectClass> entry : targetClassMap.entrySet()) {
             TypeElement typeElement = entry.getKey();
             InjectClass injectClass = entry.getValue();
@@ -89,16 +297,71 @@ public class InjectorProcessor  extends AbstractProcessor{
             _log(typeElement,"second step type element = %s ",typeElement);
             _log(typeElement,"second step type element simple name = %s ",typeElement.getSimpleName());
 
+            stats.addTarget();
+            long start = System.nanoTime();
             // 查看是否父类也进行注解绑定，有则添加到BindingClass
             TypeElement parentType = _findParentType(typeElement, erasedTargetNames);
             if (parentType != null) {
                 InjectClass parentBinding = targetClassMap.get(parentType);
+                if (parentBinding == null) {
+                    // 父类不在本轮处理范围内（增量编译或来自其他模块），只需要它的注入器类名
+                    parentBinding = ParseHelper.createInjectClass(parentType, elementUtils, messager);
+                }
                 injectClass.setParentBinding(parentBinding);
+                String conflict = injectClass.findParentListenerConflict();
+                if (conflict != null) {
+                    _error(typeElement, "%s (%s)", conflict, typeElement.getQualifiedName());
+                }
             }
+            stats.addTime(ProcessorStats.Phase.PARENT_RESOLUTION, start);
 
+            injectClass.setSinglePass(singlePass);
+            injectClass.setCompact(compact);
+
+            InjectLayout injectLayout = typeElement.getAnnotation(InjectLayout.class);
+            if (layoutHelper != null && injectLayout != null) {
+                start = System.nanoTime();
+                layoutHelper.applyLayout(typeElement, injectLayout.value(), injectClass);
+                stats.addTime(ProcessorStats.Phase.LAYOUT_ANALYSIS, start);
+            }
+
+            if (report != null) {
+                _reportTarget(typeElement, injectClass, parentType, erasedTargetNames);
+            }
+
+            // 记录到注册表，运行时优先通过注册表查找注入器
+            if (registryWritten) {
+                String packageName = elementUtils.getPackageOf(typeElement).getQualifiedName().toString();
+                if (injectRegistry.ownsPackage(packageName)) {
+                    // 注册表声明了这个包，运行时不会再反射查找，只能报错
+                    _error(typeElement, "Injector registry was already written and owns package %s, "
+                            + "%s would not be found at runtime. (%s)", packageName, typeElement.getSimpleName(),
+                            typeElement.getQualifiedName());
+                } else {
+                    messager.printMessage(Diagnostic.Kind.WARNING, String.format("Injector registry was already "
+                            + "written, %s will be looked up reflectively at runtime.", typeElement), typeElement);
+                }
+            } else if (!isolating) {
+                injectRegistry.addInjector(elementUtils.getBinaryName(typeElement).toString(),
+                        injectClass.getClassFqcn(), typeElement);
+            }
+
+            generatedTypes.add(typeElement);
+            generatedClasses.add(injectClass);
+        }
+
+        // 第二步生成Java文件，可以并行；写入按目标类顺序串行
+        long start = System.nanoTime();
+        List<GeneratedFile> generatedFiles = _brewJava(generatedClasses);
+        stats.addTime(ProcessorStats.Phase.CODE_GENERATION, start);
+        for (int i = 0; i < generatedFiles.size(); i++) {
+            TypeElement typeElement = generatedTypes.get(i);
             try {
-                // 生成Java文件
-                injectClass.brewJava().writeTo(filer);
+                start = System.nanoTime();
+                generatedFiles.get(i).writeTo(filer);
+                stats.addTime(ProcessorStats.Phase.FILER_WRITES, start);
+                stats.addFile();
+                messager.info(typeElement, "Generated %s", generatedClasses.get(i).getClassFqcn());
             } catch (IOException e) {
                 _error(typeElement, "Unable to write view binder for type %s: %s", typeElement,
                         e.getMessage());
@@ -112,18 +375,53 @@ public class InjectorProcessor  extends AbstractProcessor{
     public Set<String> getSupportedAnnotationTypes() {
         Set<String> annotations = new LinkedHashSet<>();
         annotations.add(InjectView.class.getCanonicalName());
+        annotations.add(InjectLayout.class.getCanonicalName());
+        for (Class<? extends Annotation> annotationClass : RESOURCE_ANNOTATIONS) {
+            annotations.add(annotationClass.getCanonicalName());
+        }
+        for (Class<? extends Annotation> annotationClass : LISTENER_ANNOTATIONS) {
+            annotations.add(annotationClass.getCanonicalName());
+        }
         return annotations;
     }
 
+    @Override
+    public Set<String> getSupportedOptions() {
+        Set<String> options = new LinkedHashSet<>();
+        options.add(OPTION_REGISTRY);
+        options.add(OPTION_SINGLE_PASS);
+        options.add(OPTION_COMPACT);
+        options.add(OPTION_PARALLELISM);
+        options.add(OPTION_ISOLATING);
+        options.add(OPTION_LOG_LEVEL);
+        options.add(OPTION_STATS);
+        options.add(OPTION_RES_DIRS);
+        options.add(OPTION_REPORT);
+        // 在 META-INF/gradle/incremental.annotation.processors 中声明为 dynamic，由这里决定增量类型；
+        // 布局分析读取的文件 Gradle 无法追踪，不声明增量类型
+        if (layoutHelper == null) {
+            options.add(isolating ? GRADLE_ISOLATING : GRADLE_AGGREGATING);
+        }
+        return options;
+    }
+
     @Override
     public SourceVersion getSupportedSourceVersion() {
         return SourceVersion.latestSupported();
     }
 
+    /**
+     * @return 各阶段耗时统计，供测试在编译结束后读取
+     */
+    ProcessorStats getStats() {
+        return stats;
+    }
+
 
 
     /**
-     * 查找父类型
+     * 查找父类型，除了本轮处理的目标类，还会检查父类自身是否有 @InjectView、资源绑定字段或事件方法，
+     * 这样增量编译只重新处理子类时也能找到已经编译好的父类
      * @param typeElement   类元素
      * @param erasedTargetNames 存在的类元素
      * @return
@@ -142,10 +440,202 @@ public class InjectorProcessor  extends AbstractProcessor{
                 // 如果父类元素存在则返回
                 return typeElement;
             }
+            String qualifiedName = typeElement.getQualifiedName().toString();
+            if (qualifiedName.startsWith("android.") || qualifiedName.startsWith("java.")) {
+                // 框架类不会有绑定
+                return null;
+            }
+            if (_hasBindingField(typeElement)) {
+                return typeElement;
+            }
+        }
+    }
+
+    private static boolean _hasBindingField(TypeElement typeElement) {
+        for (Element enclosed : typeElement.getEnclosedElements()) {
+            if (enclosed.getKind() == ElementKind.METHOD) {
+                for (Class<? extends Annotation> annotationClass : LISTENER_ANNOTATIONS) {
+                    if (enclosed.getAnnotation(annotationClass) != null) {
+                        return true;
+                    }
+                }
+                continue;
+            }
+            if (enclosed.getKind() != ElementKind.FIELD) {
+                continue;
+            }
+            if (enclosed.getAnnotation(InjectView.class) != null) {
+                return true;
+            }
+            for (Class<? extends Annotation> annotationClass : RESOURCE_ANNOTATIONS) {
+                if (enclosed.getAnnotation(annotationClass) != null) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean _hasElements(RoundEnvironment roundEnv, List<Class<? extends Annotation>> annotations) {
+        for (Class<? extends Annotation> annotationClass : annotations) {
+            if (!roundEnv.getElementsAnnotatedWith(annotationClass).isEmpty()) {
+                return true;
+            }
         }
+        return false;
     }
 
 
+    /**
+     * 生成模块注册表，没有任何注入目标时不生成
+     */
+    private void _writeRegistry() {
+        if (isolating || registryWritten || injectRegistry.isEmpty()) {
+            return;
+        }
+        registryWritten = true;
+        try {
+            long start = System.nanoTime();
+            JavaFile javaFile = injectRegistry.brewJava();
+            stats.addTime(ProcessorStats.Phase.CODE_GENERATION, start);
+            start = System.nanoTime();
+            javaFile.writeTo(filer);
+            stats.addTime(ProcessorStats.Phase.FILER_WRITES, start);
+            stats.addFile();
+        } catch (IOException e) {
+            _error(null, "Unable to write injector registry: %s", e.getMessage());
+        }
+    }
+
+    /**
+     * 构建并格式化所有注入器的源码，InjectClass.brewJava 只使用解析阶段得到的数据和 JavaPoet，不访问 javac 模型，
+     * 可以在多个线程中同时执行
+     *
+     * @return 与 injectClasses 顺序一致
+     */
+    private List<GeneratedFile> _brewJava(List<InjectClass> injectClasses) {
+        List<GeneratedFile> generatedFiles = new ArrayList<>(injectClasses.size());
+        int threads = Math.min(parallelism, injectClasses.size());
+        if (threads <= 1) {
+            for (InjectClass injectClass : injectClasses) {
+                generatedFiles.add(new GeneratedFile(injectClass.brewJava()));
+            }
+            return generatedFiles;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "ViewInject-codegen-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            List<Future<GeneratedFile>> futures = new ArrayList<>(injectClasses.size());
+            for (final InjectClass injectClass : injectClasses) {
+                futures.add(executor.submit(new Callable<GeneratedFile>() {
+                    @Override
+                    public GeneratedFile call() {
+                        return new GeneratedFile(injectClass.brewJava());
+                    }
+                }));
+            }
+            for (Future<GeneratedFile> future : futures) {
+                generatedFiles.add(future.get());
+            }
+            return generatedFiles;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while generating view binders", e);
+        } catch (ExecutionException e) {
+            // 与顺序生成一样把异常抛给 javac
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 记录目标类到构建报告，继承链继续向上查找，包括不在本轮处理范围内的父类
+     *
+     * @param parentType 直接父类，没有时为 null
+     */
+    private void _reportTarget(TypeElement typeElement, InjectClass injectClass, TypeElement parentType,
+                               Set<TypeElement> erasedTargetNames) {
+        List<String> parents = new ArrayList<>();
+        for (TypeElement type = parentType; type != null; type = _findParentType(type, erasedTargetNames)) {
+            parents.add(ParseHelper.createInjectClass(type, elementUtils, messager).getClassFqcn());
+        }
+        BindingReport.Target target = report.addTarget(elementUtils.getBinaryName(typeElement).toString(),
+                injectClass.getClassFqcn(), parents);
+        injectClass.reportBindings(target);
+        reportElements.add(typeElement);
+    }
+
+    /**
+     * 在最后一个 round 输出构建报告，报告依赖所有目标类
+     */
+    private void _writeReport() {
+        if (report == null || report.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            FileObject file = filer.createResource(StandardLocation.SOURCE_OUTPUT, "", REPORT_FILE,
+                    reportElements.toArray(new Element[reportElements.size()]));
+            try (Writer writer = file.openWriter()) {
+                writer.write(report.toJson());
+            }
+            stats.addFile();
+            messager.info(null, "Wrote binding report %s", file.toUri());
+        } catch (IOException e) {
+            _error(null, "Unable to write binding report: %s", e.getMessage());
+        }
+        stats.addTime(ProcessorStats.Phase.FILER_WRITES, start);
+        report = null;
+    }
+
+    /**
+     * 已经格式化好的源码，格式化是生成中最耗时的部分，在构建时完成，写入时只剩 Filer 的 IO
+     */
+    private static final class GeneratedFile {
+        private final JavaFile javaFile;
+        private final String source;
+
+        GeneratedFile(JavaFile javaFile) {
+            this.javaFile = javaFile;
+            this.source = javaFile.toString();
+        }
+
+        /**
+         * 与 JavaFile.writeTo(Filer) 相同，只是直接写入格式化好的源码
+         */
+        void writeTo(Filer filer) throws IOException {
+            String fileName = javaFile.packageName.isEmpty()
+                    ? javaFile.typeSpec.name
+                    : javaFile.packageName + "." + javaFile.typeSpec.name;
+            List<Element> originatingElements = javaFile.typeSpec.originatingElements;
+            JavaFileObject sourceFile = filer.createSourceFile(fileName,
+                    originatingElements.toArray(new Element[originatingElements.size()]));
+            try (Writer writer = sourceFile.openWriter()) {
+                writer.write(source);
+            } catch (IOException e) {
+                sourceFile.delete();
+                throw e;
+            }
+        }
+    }
+
     /**
      * 输出错误信息
      * @param element
@@ -156,15 +646,12 @@ public class InjectorProcessor  extends AbstractProcessor{
         if (args.length > 0) {
             message = String.format(message, args);
         }
-        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+        messager.printMessage(Diagnostic.Kind.ERROR, message, element);
     }
 
 
     private void _log(Element element, String message, Object... args) {
-        if (args.length > 0) {
-            message = String.format(message, args);
-        }
-        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, message, element);
+        messager.debug(element, message, args);
     }
 
 }
@@ -0,0 +1,545 @@
+package com.margi.compile;
+
+import com.margi.annotation.InjectView;
+import com.margi.annotation.OnClick;
+import com.margi.annotation.OnLongClick;
+
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+/**
+ * Created by allen on 10/18/16.
+ *
+ * 布局分析帮助类，读取 res/layout* 下的布局文件：
+ * <ul>
+ * <li>通过 R 类把注解中的整数 ID 还原成 R.id / R.layout 名称</li>
+ * <li>检查绑定的 ID 是否在布局中声明、View 类型能否赋值给字段</li>
+ * <li>计算每个 ID 从布局根节点开始的子 View 下标路径，所有布局变体（layout-land 等）一致且 ID 唯一时才生成路径</li>
+ * </ul>
+ * 布局和 R 类在整个编译过程中只解析一次
+ */
+final class LayoutHelper {
+
+    private static final String ANDROID_NS = "http://schemas.android.com/apk/res/android";
+    private static final int MAX_INCLUDE_DEPTH = 10;
+    private static final String VIEW_STUB_TYPE = "android.view.ViewStub";
+    /** 不带包名的标签，按 LayoutInflater 的顺序尝试这些包 */
+    private static final String[] TAG_PACKAGES = {"android.widget.", "android.webkit.", "android.app.",
+            "android.view."};
+
+    private final List<File> resDirs;
+    private final Elements elementUtils;
+    private final Types typeUtils;
+    private final ProcessorLog messager;
+    private final Map<String, Layout> layouts = new HashMap<>();
+    private final Map<String, RClass> rClasses = new HashMap<>();
+    private DocumentBuilder documentBuilder;
+
+    /**
+     * @param resDirs res 目录，多个目录用 File.pathSeparator 分隔
+     */
+    LayoutHelper(String resDirs, Elements elementUtils, Types typeUtils, ProcessorLog messager) {
+        this.resDirs = new ArrayList<>();
+        for (String dir : resDirs.split(File.pathSeparator)) {
+            if (!dir.trim().isEmpty()) {
+                this.resDirs.add(new File(dir.trim()));
+            }
+        }
+        this.elementUtils = elementUtils;
+        this.typeUtils = typeUtils;
+        this.messager = messager;
+    }
+
+    /**
+     * 读取目标类 @InjectLayout 对应的布局，检查绑定的 ID 和类型，并把可以直接定位的 ID 交给 InjectClass
+     *
+     * @param layoutId @InjectLayout 中的布局ID
+     */
+    void applyLayout(TypeElement typeElement, int layoutId, InjectClass injectClass) {
+        RClass rClass = _findRClass(typeElement);
+        if (rClass == null) {
+            messager.printMessage(Diagnostic.Kind.WARNING, String.format("Unable to find the R class for %s, "
+                    + "layout analysis skipped.", typeElement.getQualifiedName()), typeElement);
+            return;
+        }
+        String layoutName = rClass.layouts.get(layoutId);
+        Layout layout = layoutName == null ? null : _getLayout(layoutName);
+        if (layout == null) {
+            messager.printMessage(Diagnostic.Kind.WARNING, String.format("Unable to find layout %s for %s in %s, "
+                            + "layout analysis skipped.", layoutName == null ? String.valueOf(layoutId) : layoutName,
+                    typeElement.getQualifiedName(), resDirs), typeElement);
+            return;
+        }
+
+        _verifyBindings(typeElement, rClass, layout);
+
+        Map<Integer, int[]> viewPaths = new LinkedHashMap<>();
+        for (Map.Entry<Integer, String> entry : rClass.ids.entrySet()) {
+            int[] path = layout.paths.get(entry.getValue());
+            if (path != null) {
+                viewPaths.put(entry.getKey(), path);
+            }
+        }
+        messager.debug(typeElement, "layout %s: %d of %d IDs have a fixed path", layoutName, viewPaths.size(),
+                layout.declaredIds.size());
+        injectClass.setViewPaths(layout.merge, viewPaths);
+    }
+
+    /**
+     * 检查字段和事件方法绑定的 ID：未在布局中声明时警告，View 类型不能赋值给字段时报错
+     */
+    private void _verifyBindings(TypeElement typeElement, RClass rClass, Layout layout) {
+        for (Element enclosed : typeElement.getEnclosedElements()) {
+            if (enclosed.getKind() == ElementKind.FIELD && enclosed.getAnnotation(InjectView.class) != null) {
+                int stubId = enclosed.getAnnotation(InjectView.class).stub();
+                if (stubId != 0) {
+                    // View 在 ViewStub 的布局中，只检查 ViewStub 本身
+                    TypeElement viewStub = elementUtils.getTypeElement(VIEW_STUB_TYPE);
+                    _verifyId(enclosed, stubId, viewStub == null ? null : viewStub.asType(), rClass, layout);
+                    continue;
+                }
+                TypeMirror viewType = _viewTypeOf((VariableElement) enclosed);
+                for (int id : enclosed.getAnnotation(InjectView.class).value()) {
+                    _verifyId(enclosed, id, viewType, rClass, layout);
+                }
+            } else if (enclosed.getKind() == ElementKind.METHOD) {
+                OnClick onClick = enclosed.getAnnotation(OnClick.class);
+                OnLongClick onLongClick = enclosed.getAnnotation(OnLongClick.class);
+                for (int id : onClick == null ? new int[0] : onClick.value()) {
+                    _verifyId(enclosed, id, null, rClass, layout);
+                }
+                for (int id : onLongClick == null ? new int[0] : onLongClick.value()) {
+                    _verifyId(enclosed, id, null, rClass, layout);
+                }
+            }
+        }
+    }
+
+    private void _verifyId(Element element, int id, TypeMirror viewType, RClass rClass, Layout layout) {
+        String name = rClass.ids.get(id);
+        if (name == null) {
+            // 不是 R.id 中的常量，例如代码中用 View.generateViewId 创建的 ID
+            return;
+        }
+        if (!layout.declaredIds.contains(name)) {
+            if (layout.opaque) {
+                // 可能在无法解析的 include 中，不能确定没有声明
+                messager.debug(element, "R.id.%s may be declared in an unresolved include of layout %s", name,
+                        layout.name);
+            } else {
+                messager.printMessage(Diagnostic.Kind.WARNING, String.format("R.id.%s bound by %s is not declared "
+                        + "in layout %s.", name, element.getSimpleName(), layout.name), element);
+            }
+            return;
+        }
+        if (viewType == null || viewType.getKind() != TypeKind.DECLARED) {
+            return;
+        }
+        Set<String> viewTypes = layout.viewTypes.get(name);
+        if (viewTypes == null) {
+            // ViewStub 的 inflatedId，类型未知
+            return;
+        }
+        TypeMirror fieldType = typeUtils.erasure(viewType);
+        for (String className : viewTypes) {
+            TypeElement viewElement = elementUtils.getTypeElement(className);
+            if (viewElement == null) {
+                // 自定义 View 不在 classpath 上，无法检查
+                continue;
+            }
+            if (!typeUtils.isAssignable(typeUtils.erasure(viewElement.asType()), fieldType)) {
+                messager.printMessage(Diagnostic.Kind.ERROR, String.format("R.id.%s in layout %s is a %s, which "
+                                + "cannot be assigned to %s of type %s.", name, layout.name, className,
+                        element.getSimpleName(), fieldType), element);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return 字段对应的 View 类型：LazyView&lt;V&gt;、V[]、List&lt;? extends V&gt; 取 V，无法确定时返回 null
+     */
+    private TypeMirror _viewTypeOf(VariableElement field) {
+        TypeMirror type = field.asType();
+        if (type.getKind() == TypeKind.ARRAY) {
+            return ((ArrayType) type).getComponentType();
+        }
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        String erased = typeUtils.erasure(type).toString();
+        if (ParseHelper.LAZY_VIEW_TYPE.equals(erased) || List.class.getName().equals(erased)) {
+            List<? extends TypeMirror> typeArguments = ((DeclaredType) type).getTypeArguments();
+            if (typeArguments.size() != 1) {
+                return null;
+            }
+            type = typeArguments.get(0);
+            if (type.getKind() == TypeKind.WILDCARD) {
+                type = ((WildcardType) type).getExtendsBound();
+            }
+        }
+        return type;
+    }
+
+    /*************************************************************************/
+
+    /**
+     * 从目标类所在的包开始向上查找 R 类
+     */
+    private RClass _findRClass(TypeElement typeElement) {
+        String packageName = elementUtils.getPackageOf(typeElement).getQualifiedName().toString();
+        while (true) {
+            if (rClasses.containsKey(packageName)) {
+                return rClasses.get(packageName);
+            }
+            TypeElement id = elementUtils.getTypeElement(packageName.isEmpty() ? "R.id" : packageName + ".R.id");
+            TypeElement layout = elementUtils.getTypeElement(packageName.isEmpty()
+                    ? "R.layout" : packageName + ".R.layout");
+            if (id != null && layout != null) {
+                RClass rClass = new RClass(_readConstants(id), _readConstants(layout));
+                rClasses.put(packageName, rClass);
+                return rClass;
+            }
+            if (packageName.isEmpty()) {
+                return null;
+            }
+            int lastDot = packageName.lastIndexOf('.');
+            packageName = lastDot == -1 ? "" : packageName.substring(0, lastDot);
+        }
+    }
+
+    private static Map<Integer, String> _readConstants(TypeElement rType) {
+        Map<Integer, String> constants = new HashMap<>();
+        for (VariableElement field : ElementFilter.fieldsIn(rType.getEnclosedElements())) {
+            // library 模块的 R 不是常量，注解中也无法使用
+            Object value = field.getConstantValue();
+            if (value instanceof Integer) {
+                constants.put((Integer) value, field.getSimpleName().toString());
+            }
+        }
+        return constants;
+    }
+
+    /**
+     * @return 合并所有变体后的布局，找不到布局文件时返回 null
+     */
+    private Layout _getLayout(String name) {
+        if (layouts.containsKey(name)) {
+            return layouts.get(name);
+        }
+        Layout layout = null;
+        for (File layoutDir : _layoutDirs()) {
+            File file = new File(layoutDir, name + ".xml");
+            if (!file.isFile()) {
+                continue;
+            }
+            ViewNode root = _parse(file, layoutDir.getName(), 0);
+            if (root == null) {
+                continue;
+            }
+            if (layout == null) {
+                layout = new Layout(name, root.merge);
+            }
+            layout.addVariant(root);
+        }
+        layouts.put(name, layout);
+        return layout;
+    }
+
+    private List<File> _layoutDirs() {
+        List<File> layoutDirs = new ArrayList<>();
+        for (File resDir : resDirs) {
+            File[] children = resDir.listFiles();
+            if (children == null) {
+                continue;
+            }
+            Arrays.sort(children);
+            for (File child : children) {
+                String dirName = child.getName();
+                if (child.isDirectory() && (dirName.equals("layout") || dirName.startsWith("layout-"))) {
+                    layoutDirs.add(child);
+                }
+            }
+        }
+        return layoutDirs;
+    }
+
+    /**
+     * 解析布局文件，展开 include
+     *
+     * @param variant 布局所在目录名，include 优先从同名目录查找：layout-land
+     * @return 根节点，解析失败返回 null
+     */
+    private ViewNode _parse(File file, String variant, int depth) {
+        org.w3c.dom.Element root;
+        try {
+            if (documentBuilder == null) {
+                DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+                factory.setNamespaceAware(true);
+                documentBuilder = factory.newDocumentBuilder();
+            }
+            root = documentBuilder.parse(file).getDocumentElement();
+        } catch (ParserConfigurationException | SAXException | IOException e) {
+            messager.printMessage(Diagnostic.Kind.WARNING, "Unable to parse layout " + file + ": " + e.getMessage());
+            return null;
+        }
+        if ("layout".equals(root.getTagName())) {
+            // data binding 布局，真正的根节点是 <data> 之外的第一个元素
+            for (org.w3c.dom.Element child : _childElements(root)) {
+                if (!"data".equals(child.getTagName())) {
+                    root = child;
+                    break;
+                }
+            }
+        }
+        return _toNode(root, variant, depth);
+    }
+
+    private ViewNode _toNode(org.w3c.dom.Element element, String variant, int depth) {
+        String tag = element.getTagName();
+        ViewNode node = new ViewNode(_viewClass(element), _idName(element, "id"), "merge".equals(tag));
+        if ("ViewStub".equals(tag)) {
+            // ViewStub 展开后由 inflatedId 对应的 View 替换，层级无法确定，只记录 ID 已声明
+            String inflatedId = _idName(element, "inflatedId");
+            if (inflatedId != null) {
+                node.opaqueIds.add(inflatedId);
+            }
+            return node;
+        }
+        for (org.w3c.dom.Element child : _childElements(element)) {
+            String childTag = child.getTagName();
+            if ("requestFocus".equals(childTag) || "tag".equals(childTag)) {
+                continue;
+            }
+            if (!"include".equals(childTag)) {
+                node.children.add(_toNode(child, variant, depth));
+                continue;
+            }
+            String includeId = _idName(child, "id");
+            ViewNode included = _include(child.getAttribute("layout"), variant, depth + 1);
+            if (included == null) {
+                // 无法解析的 include 当作一个层级未知的 View
+                ViewNode unknown = new ViewNode(null, includeId, false);
+                unknown.opaque = true;
+                node.children.add(unknown);
+            } else if (included.merge) {
+                node.children.addAll(included.children);
+            } else {
+                if (includeId != null) {
+                    included.id = includeId;
+                }
+                node.children.add(included);
+            }
+        }
+        return node;
+    }
+
+    private ViewNode _include(String layout, String variant, int depth) {
+        if (!layout.startsWith("@layout/") || depth > MAX_INCLUDE_DEPTH) {
+            return null;
+        }
+        String name = layout.substring("@layout/".length());
+        for (String dirName : new String[]{variant, "layout"}) {
+            for (File resDir : resDirs) {
+                File file = new File(new File(resDir, dirName), name + ".xml");
+                if (file.isFile()) {
+                    return _parse(file, variant, depth);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 标签对应的 View 类名，fragment 等无法确定时返回 null
+     */
+    private String _viewClass(org.w3c.dom.Element element) {
+        String tag = element.getTagName();
+        if ("view".equals(tag)) {
+            String className = element.getAttribute("class");
+            return className.isEmpty() ? null : className;
+        }
+        if ("merge".equals(tag) || "fragment".equals(tag) || "blink".equals(tag)) {
+            return null;
+        }
+        if (tag.indexOf('.') != -1) {
+            return tag;
+        }
+        for (String prefix : TAG_PACKAGES) {
+            if (elementUtils.getTypeElement(prefix + tag) != null) {
+                return prefix + tag;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return @+id/name 或 @id/name 中的 name，系统 ID 和未设置时返回 null
+     */
+    private static String _idName(org.w3c.dom.Element element, String attribute) {
+        String value = element.getAttributeNS(ANDROID_NS, attribute);
+        if (value.startsWith("@+id/")) {
+            return value.substring("@+id/".length());
+        }
+        if (value.startsWith("@id/")) {
+            return value.substring("@id/".length());
+        }
+        return null;
+    }
+
+    private static List<org.w3c.dom.Element> _childElements(org.w3c.dom.Element element) {
+        List<org.w3c.dom.Element> children = new ArrayList<>();
+        NodeList nodes = element.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            if (nodes.item(i).getNodeType() == Node.ELEMENT_NODE) {
+                children.add((org.w3c.dom.Element) nodes.item(i));
+            }
+        }
+        return children;
+    }
+
+    /**
+     * 布局中的一个 View，include 已经展开
+     */
+    private static final class ViewNode {
+        final String viewClass;
+        final boolean merge;
+        final List<ViewNode> children = new ArrayList<>();
+        /** 层级未知但已声明的 ID，例如 ViewStub 的 inflatedId */
+        final Set<String> opaqueIds = new LinkedHashSet<>();
+        String id;
+        /** 无法解析的 include，子节点未知 */
+        boolean opaque;
+
+        ViewNode(String viewClass, String id, boolean merge) {
+            this.viewClass = viewClass;
+            this.id = id;
+            this.merge = merge;
+        }
+    }
+
+    /**
+     * R 类中的 ID 和布局常量
+     */
+    private static final class RClass {
+        final Map<Integer, String> ids;
+        final Map<Integer, String> layouts;
+
+        RClass(Map<Integer, String> ids, Map<Integer, String> layouts) {
+            this.ids = ids;
+            this.layouts = layouts;
+        }
+    }
+
+    /**
+     * 合并所有变体后的布局
+     */
+    static final class Layout {
+        final String name;
+        /** 根节点是否为 merge，变体之间不一致时不生成任何路径 */
+        final boolean merge;
+        /** ID 名称 -> 子 View 下标路径 */
+        final Map<String, int[]> paths = new HashMap<>();
+        /** ID 名称 -> 各变体中的 View 类名 */
+        final Map<String, Set<String>> viewTypes = new HashMap<>();
+        final Set<String> declaredIds = new LinkedHashSet<>();
+        /** 某个变体中有无法解析的 include，declaredIds 不完整 */
+        boolean opaque;
+        private boolean consistent = true;
+        private boolean firstVariant = true;
+
+        Layout(String name, boolean merge) {
+            this.name = name;
+            this.merge = merge;
+        }
+
+        void addVariant(ViewNode root) {
+            Map<String, int[]> variantPaths = new HashMap<>();
+            Set<String> duplicates = new LinkedHashSet<>();
+            if (root.merge) {
+                for (int i = 0; i < root.children.size(); i++) {
+                    _collect(root.children.get(i), new int[]{i}, variantPaths, duplicates);
+                }
+            } else {
+                _collect(root, new int[0], variantPaths, duplicates);
+            }
+            for (String duplicate : duplicates) {
+                variantPaths.remove(duplicate);
+            }
+
+            consistent &= root.merge == merge;
+            if (!consistent) {
+                paths.clear();
+            } else if (firstVariant) {
+                paths.putAll(variantPaths);
+            } else {
+                // 只保留所有变体中路径相同的 ID
+                paths.keySet().retainAll(variantPaths.keySet());
+                for (Map.Entry<String, int[]> entry : new ArrayList<>(paths.entrySet())) {
+                    if (!Arrays.equals(entry.getValue(), variantPaths.get(entry.getKey()))) {
+                        paths.remove(entry.getKey());
+                    }
+                }
+            }
+            firstVariant = false;
+        }
+
+        private void _collect(ViewNode node, int[] path, Map<String, int[]> variantPaths, Set<String> duplicates) {
+            declaredIds.addAll(node.opaqueIds);
+            if (node.id != null) {
+                declaredIds.add(node.id);
+                Set<String> types = viewTypes.get(node.id);
+                if (types == null) {
+                    types = new LinkedHashSet<>();
+                    viewTypes.put(node.id, types);
+                }
+                if (node.viewClass != null) {
+                    types.add(node.viewClass);
+                }
+                if (variantPaths.containsKey(node.id)) {
+                    duplicates.add(node.id);
+                } else {
+                    variantPaths.put(node.id, path);
+                }
+            }
+            if (node.opaque) {
+                opaque = true;
+                return;
+            }
+            for (int i = 0; i < node.children.size(); i++) {
+                int[] childPath = Arrays.copyOf(path, path.length + 1);
+                childPath[path.length] = i;
+                _collect(node.children.get(i), childPath, variantPaths, duplicates);
+            }
+        }
+    }
+}
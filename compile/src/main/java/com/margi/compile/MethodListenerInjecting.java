@@ -0,0 +1,79 @@
+package com.margi.compile;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.TypeName;
+
+/**
+ * Created by allen on 10/18/16.
+ * 事件方法绑定信息
+ */
+final class MethodListenerInjecting implements ViewInjecting {
+
+    /**
+     * 监听类型
+     */
+    enum Type {
+        CLICK("setOnClickListener", ClassName.get("android.view", "View", "OnClickListener"), "onClick",
+                TypeName.VOID),
+        LONG_CLICK("setOnLongClickListener", ClassName.get("android.view", "View", "OnLongClickListener"),
+                "onLongClick", TypeName.BOOLEAN);
+
+        /** 设置监听的 View 方法 */
+        final String setter;
+        /** 监听接口 */
+        final ClassName listener;
+        /** 监听接口中的回调方法 */
+        final String callback;
+        /** 回调方法的返回类型 */
+        final TypeName returnType;
+
+        Type(String setter, ClassName listener, String callback, TypeName returnType) {
+            this.setter = setter;
+            this.listener = listener;
+            this.callback = callback;
+            this.returnType = returnType;
+        }
+    }
+
+    private final String name;
+    private final Type type;
+    private final TypeName parameterType;
+    private final boolean returnsValue;
+
+    /**
+     * @param name          方法名
+     * @param type          监听类型
+     * @param parameterType View 参数类型，方法没有参数时为 null
+     * @param returnsValue  方法的返回值是否作为回调的返回值，否则回调返回默认值
+     */
+    MethodListenerInjecting(String name, Type type, TypeName parameterType, boolean returnsValue) {
+        this.name = name;
+        this.type = type;
+        this.parameterType = parameterType;
+        this.returnsValue = returnsValue;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return View 参数类型，方法没有参数时为 null
+     */
+    public TypeName getParameterType() {
+        return parameterType;
+    }
+
+    public boolean returnsValue() {
+        return returnsValue;
+    }
+
+    @Override
+    public String getDescription() {
+        return "method '" + name + "'";
+    }
+}
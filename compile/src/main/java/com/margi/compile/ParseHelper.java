@@ -1,22 +1,32 @@
 package com.margi.compile;
 
+import com.margi.annotation.BindColor;
+import com.margi.annotation.BindDimen;
+import com.margi.annotation.BindDrawable;
+import com.margi.annotation.BindString;
 import com.margi.annotation.InjectView;
+import com.margi.annotation.OnClick;
+import com.margi.annotation.OnLongClick;
 import com.squareup.javapoet.TypeName;
 
+import java.lang.annotation.Annotation;
 import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import javax.annotation.processing.Messager;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
 import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.type.TypeVariable;
+import javax.lang.model.type.WildcardType;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 import javax.tools.Diagnostic;
@@ -29,9 +39,9 @@ import javax.tools.Diagnostic;
 public final class ParseHelper {
 
     private static final String INJECTING_CLASS_SUFFIX = "$$ViewInjector";
-    private static final String LIST_TYPE = List.class.getCanonicalName();
-    private static final String ITERABLE_TYPE = "java.lang.Iterable<?>";
     static final String VIEW_TYPE = "android.view.View";
+    static final String LAZY_VIEW_TYPE = "com.margi.core.LazyView";
+    private static final String LIST_TYPE = "java.util.List";
     static final int NO_ID = -1;
 
 
@@ -46,22 +56,161 @@ public final class ParseHelper {
      * @param element        使用注解的元素
      * @param targetClassMap 映射表
      * @param elementUtils   元素工具类
+     * @param typeHelper     本轮的类型判断缓存
      */
     public static void parseViewBind(Element element, Map<TypeElement, InjectClass> targetClassMap,
                                      Set<TypeElement> erasedTargetNames,
-                                     Elements elementUtils, Types typeUtils, Messager messager) {
+                                     Elements elementUtils, Types typeUtils, TypeHelper typeHelper,
+                                     ProcessorLog messager) {
         TypeMirror elementType = element.asType();
         // 判断是一个 View 还是列表
-        if (_isSubtypeOfType(elementType, ITERABLE_TYPE)) {
+        if (elementType.getKind() == TypeKind.ARRAY) {
+            _parseBindMany(element, FieldCollectionViewInjecting.Kind.ARRAY, targetClassMap, erasedTargetNames,
+                    elementUtils, typeHelper, messager);
+        } else if (LIST_TYPE.equals(_doubleErasure(elementType, typeUtils))) {
+            _parseBindMany(element, FieldCollectionViewInjecting.Kind.LIST, targetClassMap, erasedTargetNames,
+                    elementUtils, typeHelper, messager);
+        } else if (typeHelper.isIterable(elementType)) {
             _error(messager, element, "@%s must be a List or array. (%s.%s)", InjectView.class.getSimpleName(),
                     ((TypeElement) element.getEnclosingElement()).getQualifiedName(),
                     element.getSimpleName());
         } else {
-            _parseBindOne(element, targetClassMap, erasedTargetNames, elementUtils, messager);
+            _parseBindOne(element, targetClassMap, erasedTargetNames, elementUtils, typeUtils, typeHelper, messager);
             _log(messager,element,"parsebindOne getEnclosingElement getQualifiedName = %s  getSimpleName = %s",((TypeElement) element.getEnclosingElement()).getQualifiedName(),element.getSimpleName());
         }
     }
 
+    /**
+     * 解析资源绑定，元素类型已由 VerifyHelper 检查
+     *
+     * @param element         使用注解的元素
+     * @param annotationClass @BindString、@BindColor、@BindDimen 或 @BindDrawable
+     * @param targetClassMap  映射表
+     * @param elementUtils    元素工具类
+     */
+    public static void parseResourceBind(Element element, Class<? extends Annotation> annotationClass,
+                                         Map<TypeElement, InjectClass> targetClassMap,
+                                         Set<TypeElement> erasedTargetNames, Elements elementUtils,
+                                         ProcessorLog messager) {
+        TypeKind typeKind = element.asType().getKind();
+        int id;
+        FieldResourceInjecting.Kind kind;
+        if (annotationClass == BindString.class) {
+            id = element.getAnnotation(BindString.class).value();
+            kind = FieldResourceInjecting.Kind.STRING;
+        } else if (annotationClass == BindColor.class) {
+            id = element.getAnnotation(BindColor.class).value();
+            kind = typeKind == TypeKind.INT
+                    ? FieldResourceInjecting.Kind.COLOR : FieldResourceInjecting.Kind.COLOR_STATE_LIST;
+        } else if (annotationClass == BindDimen.class) {
+            id = element.getAnnotation(BindDimen.class).value();
+            kind = typeKind == TypeKind.INT
+                    ? FieldResourceInjecting.Kind.DIMEN_PIXEL_SIZE : FieldResourceInjecting.Kind.DIMEN;
+        } else if (annotationClass == BindDrawable.class) {
+            id = element.getAnnotation(BindDrawable.class).value();
+            kind = FieldResourceInjecting.Kind.DRAWABLE;
+        } else {
+            throw new IllegalArgumentException("Unsupported resource annotation " + annotationClass);
+        }
+
+        String name = element.getSimpleName().toString();
+        InjectClass injectClass = _getOrCreateTargetClass(element, targetClassMap, elementUtils, messager);
+        injectClass.addResourceBinding(new FieldResourceInjecting(id, name, kind));
+        _log(messager, element, "parseResourceBind %s = %s(%d)", name, kind, id);
+
+        erasedTargetNames.add((TypeElement) element.getEnclosingElement());
+    }
+
+    /**
+     * 解析事件方法绑定
+     *
+     * @param element         使用注解的方法
+     * @param annotationClass @OnClick 或 @OnLongClick
+     * @param targetClassMap  映射表
+     * @param elementUtils    元素工具类
+     * @param typeHelper      本轮的类型判断缓存
+     */
+    public static void parseListenerBind(Element element, Class<? extends Annotation> annotationClass,
+                                         Map<TypeElement, InjectClass> targetClassMap,
+                                         Set<TypeElement> erasedTargetNames, Elements elementUtils,
+                                         TypeHelper typeHelper, ProcessorLog messager) {
+        ExecutableElement executableElement = (ExecutableElement) element;
+        TypeElement enclosingElement = (TypeElement) element.getEnclosingElement();
+        String annotationName = annotationClass.getSimpleName();
+
+        int[] ids;
+        MethodListenerInjecting.Type type;
+        if (annotationClass == OnClick.class) {
+            ids = element.getAnnotation(OnClick.class).value();
+            type = MethodListenerInjecting.Type.CLICK;
+        } else if (annotationClass == OnLongClick.class) {
+            ids = element.getAnnotation(OnLongClick.class).value();
+            type = MethodListenerInjecting.Type.LONG_CLICK;
+        } else {
+            throw new IllegalArgumentException("Unsupported listener annotation " + annotationClass);
+        }
+
+        if (ids.length == 0) {
+            _error(messager, element, "@%s must specify at least one ID. (%s.%s)", annotationName,
+                    enclosingElement.getQualifiedName(), element.getSimpleName());
+            return;
+        }
+        Integer duplicateId = _findDuplicate(ids);
+        if (duplicateId != null) {
+            _error(messager, element, "@%s annotation contains duplicate ID %d. (%s.%s)", annotationName,
+                    duplicateId, enclosingElement.getQualifiedName(), element.getSimpleName());
+            return;
+        }
+
+        // 参数只能没有，或者是一个 View 类型
+        List<? extends VariableElement> parameters = executableElement.getParameters();
+        TypeName parameterType = null;
+        if (parameters.size() > 1) {
+            _error(messager, element, "@%s methods can have at most one parameter. (%s.%s)", annotationName,
+                    enclosingElement.getQualifiedName(), element.getSimpleName());
+            return;
+        } else if (parameters.size() == 1) {
+            TypeMirror parameterMirror = parameters.get(0).asType();
+            if (parameterMirror.getKind() == TypeKind.TYPEVAR) {
+                parameterMirror = ((TypeVariable) parameterMirror).getUpperBound();
+            }
+            if (!typeHelper.isView(parameterMirror)) {
+                _error(messager, element, "@%s method parameter must extend from View. (%s.%s)", annotationName,
+                        enclosingElement.getQualifiedName(), element.getSimpleName());
+                return;
+            }
+            parameterType = TypeName.get(parameterMirror);
+        }
+
+        // 返回值必须是 void 或者监听回调的返回类型
+        TypeKind returnKind = executableElement.getReturnType().getKind();
+        boolean returnsValue = returnKind != TypeKind.VOID;
+        if (returnsValue && !TypeName.get(executableElement.getReturnType()).equals(type.returnType)) {
+            _error(messager, element, "@%s methods must have a '%s' return type. (%s.%s)", annotationName,
+                    type.returnType.equals(TypeName.VOID) ? "void" : "void' or '" + type.returnType,
+                    enclosingElement.getQualifiedName(), element.getSimpleName());
+            return;
+        }
+
+        InjectClass injectClass = _getOrCreateTargetClass(element, targetClassMap, elementUtils, messager);
+        String name = element.getSimpleName().toString();
+        MethodListenerInjecting binding = new MethodListenerInjecting(name, type, parameterType, returnsValue);
+        for (int id : ids) {
+            MethodListenerInjecting existBinding = injectClass.isExistListenerBinding(type, id);
+            if (existBinding != null) {
+                _error(messager, element, "Multiple @%s methods declared for ID %d: '%s' and '%s'. (%s)",
+                        annotationName, id, existBinding.getName(), name, enclosingElement.getQualifiedName());
+                return;
+            }
+        }
+        for (int id : ids) {
+            injectClass.addListenerBinding(id, binding);
+        }
+        _log(messager, element, "parseListenerBind %s %s %s", name, type, Arrays.toString(ids));
+
+        erasedTargetNames.add(enclosingElement);
+    }
+
     /*************************************************************************/
 
     /**
@@ -73,37 +222,50 @@ public final class ParseHelper {
      * @return InjectClass
      */
     private static InjectClass _getOrCreateTargetClass(Element element, Map<TypeElement, InjectClass> targetClassMap,
-                                                       Elements elementUtils, Messager messager) {
+                                                       Elements elementUtils, ProcessorLog messager) {
         TypeElement enclosingElement = (TypeElement) element.getEnclosingElement();
 
         _log(messager,enclosingElement,"_getOrCreateTargetClass enclosingElement = %s ",enclosingElement.getSimpleName());
 
         InjectClass injectClass = targetClassMap.get(enclosingElement);
-        // 以下以 com.butterknife.MainActivity 这个类为例
         if (injectClass == null) {
-            // 获取元素的完全限定名称：com.butterknife.MainActivity
-            String targetType = enclosingElement.getQualifiedName().toString();
-            _log(messager,element,"_getOrCreateTargetClass targetType = %s ",targetType);
-            // 获取元素所在包名：com.butterknife
-            String classPackage = elementUtils.getPackageOf(enclosingElement).getQualifiedName().toString();
-            _log(messager,element,"_getOrCreateTargetClass classPackage = %s ",classPackage);
-            // 获取要生成的Class的名称：MainActivity$$ViewBinder
-            int packageLen = classPackage.length() + 1;
-            String className = targetType.substring(packageLen).replace('.', '$') + INJECTING_CLASS_SUFFIX;
-            _log(messager,element,"_getOrCreateTargetClass className = %s ",className);
-            // 生成Class的完全限定名称：com.butterknife.MainActivity$$ViewBinder
-            String classFqcn = classPackage + "." + className;
-            _log(messager,element,"_getOrCreateTargetClass classFqcn = %s ",classFqcn);
-            /* 不要用下面这个来生成Class名称，内部类会出错,比如ViewHolder */
-//            String className = enclosingElement.getSimpleName() + INJECTING_CLASS_SUFFIX;
-
-            injectClass = new InjectClass(classPackage, className, targetType, classFqcn);
-
+            injectClass = createInjectClass(enclosingElement, elementUtils, messager);
             targetClassMap.put(enclosingElement, injectClass);
         }
         return injectClass;
     }
 
+    /**
+     * 为目标类创建 InjectClass，也用于增量编译时不在本轮处理范围内的父类
+     *
+     * @param enclosingElement 目标类
+     * @param elementUtils     元素工具类
+     * @return InjectClass
+     */
+    static InjectClass createInjectClass(TypeElement enclosingElement, Elements elementUtils, ProcessorLog messager) {
+        // 以下以 com.butterknife.MainActivity 这个类为例
+        // 获取元素的完全限定名称：com.butterknife.MainActivity
+        String targetType = enclosingElement.getQualifiedName().toString();
+        _log(messager,enclosingElement,"_getOrCreateTargetClass targetType = %s ",targetType);
+        // 获取元素所在包名：com.butterknife
+        String classPackage = elementUtils.getPackageOf(enclosingElement).getQualifiedName().toString();
+        _log(messager,enclosingElement,"_getOrCreateTargetClass classPackage = %s ",classPackage);
+        // 获取要生成的Class的名称：MainActivity$$ViewBinder
+        int packageLen = classPackage.length() + 1;
+        String className = targetType.substring(packageLen).replace('.', '$') + INJECTING_CLASS_SUFFIX;
+        _log(messager,enclosingElement,"_getOrCreateTargetClass className = %s ",className);
+        // 生成Class的完全限定名称：com.butterknife.MainActivity$$ViewBinder
+        String classFqcn = classPackage + "." + className;
+        _log(messager,enclosingElement,"_getOrCreateTargetClass classFqcn = %s ",classFqcn);
+        /* 不要用下面这个来生成Class名称，内部类会出错,比如ViewHolder */
+//            String className = enclosingElement.getSimpleName() + INJECTING_CLASS_SUFFIX;
+
+        InjectClass injectClass = new InjectClass(classPackage, className, targetType, classFqcn);
+        // 增量编译：生成的文件只依赖目标类本身
+        injectClass.setOriginatingElement(enclosingElement);
+        return injectClass;
+    }
+
     /**
      * 先通过 Types 工具对元素类型进行形式类型参数擦除，再通过字符比对进行二次擦除如果必要的话
      * 例：java.util.List<java.lang.String> -> java.util.List
@@ -121,57 +283,6 @@ public final class ParseHelper {
         return name;
     }
 
-    /**
-     * 判断该类型是否为 otherType 的子类型
-     *
-     * @param typeMirror 元素类型
-     * @param otherType  比对类型
-     * @return
-     */
-    private static boolean _isSubtypeOfType(TypeMirror typeMirror, String otherType) {
-        if (otherType.equals(typeMirror.toString())) {
-            return true;
-        }
-        if (typeMirror.getKind() != TypeKind.DECLARED) {
-            return false;
-        }
-        DeclaredType declaredType = (DeclaredType) typeMirror;
-        // 判断泛型参数列表
-        List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
-        if (typeArguments.size() > 0) {
-            StringBuilder typeString = new StringBuilder(declaredType.asElement().toString());
-            typeString.append('<');
-            for (int i = 0; i < typeArguments.size(); i++) {
-                if (i > 0) {
-                    typeString.append(',');
-                }
-                typeString.append('?');
-            }
-            typeString.append('>');
-            if (typeString.toString().equals(otherType)) {
-                return true;
-            }
-        }
-        // 判断是否为类或接口类型
-        Element element = declaredType.asElement();
-        if (!(element instanceof TypeElement)) {
-            return false;
-        }
-        // 判断父类
-        TypeElement typeElement = (TypeElement) element;
-        TypeMirror superType = typeElement.getSuperclass();
-        if (_isSubtypeOfType(superType, otherType)) {
-            return true;
-        }
-        // 判断接口
-        for (TypeMirror interfaceType : typeElement.getInterfaces()) {
-            if (_isSubtypeOfType(interfaceType, otherType)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     /**
      * 输出错误信息
      *
@@ -179,18 +290,15 @@ public final class ParseHelper {
      * @param message
      * @param args
      */
-    private static void _error(Messager messager, Element element, String message, Object... args) {
+    private static void _error(ProcessorLog messager, Element element, String message, Object... args) {
         if (args.length > 0) {
             message = String.format(message, args);
         }
         messager.printMessage(Diagnostic.Kind.ERROR, message, element);
     }
 
-    private static void _log(Messager messager, Element element, String message, Object... args) {
-        if (args.length > 0) {
-            message = String.format(message, args);
-        }
-        messager.printMessage(Diagnostic.Kind.NOTE, message, element);
+    private static void _log(ProcessorLog messager, Element element, String message, Object... args) {
+        messager.debug(element, message, args);
     }
 
     /**
@@ -201,17 +309,38 @@ public final class ParseHelper {
      * @param erasedTargetNames
      */
     private static void _parseBindOne(Element element, Map<TypeElement, InjectClass> targetClassMap,
-                                      Set<TypeElement> erasedTargetNames, Elements elementUtils, Messager messager) {
+                                      Set<TypeElement> erasedTargetNames, Elements elementUtils, Types typeUtils,
+                                      TypeHelper typeHelper, ProcessorLog messager) {
         TypeElement enclosingElement = (TypeElement) element.getEnclosingElement();
 
         TypeMirror elementType = element.asType();
+        int stubId = element.getAnnotation(InjectView.class).stub();
+        // ViewStub 中的 View 在 inflate 之前不存在，只能延迟绑定
+        boolean lazy = element.getAnnotation(InjectView.class).lazy() || stubId != 0;
+        if (lazy) {
+            // 延迟绑定，字段类型必须为 LazyView<V>，对 V 做 View 类型检查
+            List<? extends TypeMirror> typeArguments = elementType.getKind() == TypeKind.DECLARED
+                    ? ((DeclaredType) elementType).getTypeArguments() : null;
+            TypeMirror viewType = typeArguments == null || typeArguments.size() != 1 ? null : typeArguments.get(0);
+            if (viewType != null && viewType.getKind() == TypeKind.WILDCARD) {
+                // LazyView<? extends TextView> -> TextView，没有上边界的 LazyView<?> 无法确定类型
+                viewType = ((WildcardType) viewType).getExtendsBound();
+            }
+            if (!LAZY_VIEW_TYPE.equals(_doubleErasure(elementType, typeUtils)) || viewType == null) {
+                _error(messager, element, "@%s(%s) fields must be of type %s<? extends View>. (%s.%s)",
+                        InjectView.class.getSimpleName(), stubId != 0 ? "stub = ..." : "lazy = true",
+                        LAZY_VIEW_TYPE, enclosingElement.getQualifiedName(), element.getSimpleName());
+                return;
+            }
+            elementType = viewType;
+        }
         if (elementType.getKind() == TypeKind.TYPEVAR) {
             // 处理泛型，取它的上边界，例：<T extends TextView> -> TextView
             TypeVariable typeVariable = (TypeVariable) elementType;
             elementType = typeVariable.getUpperBound();
         }
-        // 不是View的子类型，且不是接口类型则报错
-        if (!_isSubtypeOfType(elementType, VIEW_TYPE) && !_isInterface(elementType)) {
+        // 不是View的子类型，且不是接口类型则报错；延迟绑定要求 LazyView<T extends View>，不能是接口
+        if (!typeHelper.isView(elementType) && (lazy || !_isInterface(elementType))) {
             _error(messager, element, "@%s fields must extend from View or be an interface. (%s.%s)",
                     InjectView.class.getSimpleName(), enclosingElement.getQualifiedName(), element.getSimpleName());
             return;
@@ -226,8 +355,15 @@ public final class ParseHelper {
             return;
         }
 
-        // 获取或创建绑定类
         int id = ids[0];
+        if (stubId == id) {
+            _error(messager, element, "@%s stub ID must differ from the view ID %d. (%s.%s)",
+                    InjectView.class.getSimpleName(), id, enclosingElement.getQualifiedName(),
+                    element.getSimpleName());
+            return;
+        }
+
+        // 获取或创建绑定类
         InjectClass injectClass = _getOrCreateTargetClass(element, targetClassMap, elementUtils, messager);
         FieldViewInjecting existViewBinding = injectClass.isExistViewBinding(id);
         if (existViewBinding != null) {
@@ -241,7 +377,7 @@ public final class ParseHelper {
         String name = element.getSimpleName().toString();
         TypeName type = TypeName.get(elementType);
         // 生成资源信息
-        FieldViewInjecting binding = new FieldViewInjecting(name, type, true);
+        FieldViewInjecting binding = new FieldViewInjecting(name, type, true, lazy, stubId);
         // 给BindingClass添加资源信息
         injectClass.addViewBinding(id, binding);
 
@@ -249,6 +385,81 @@ public final class ParseHelper {
     }
 
 
+    /**
+     * 解析数组或 List 的多个 View 绑定
+     *
+     * @param element
+     * @param kind           数组或 List
+     * @param targetClassMap
+     * @param erasedTargetNames
+     */
+    private static void _parseBindMany(Element element, FieldCollectionViewInjecting.Kind kind,
+                                       Map<TypeElement, InjectClass> targetClassMap,
+                                       Set<TypeElement> erasedTargetNames, Elements elementUtils,
+                                       TypeHelper typeHelper, ProcessorLog messager) {
+        TypeElement enclosingElement = (TypeElement) element.getEnclosingElement();
+        InjectView annotation = element.getAnnotation(InjectView.class);
+
+        if (annotation.lazy() || annotation.stub() != 0) {
+            _error(messager, element, "@%s(%s) is not supported for List or array fields. (%s.%s)",
+                    InjectView.class.getSimpleName(), annotation.lazy() ? "lazy = true" : "stub = ...",
+                    enclosingElement.getQualifiedName(), element.getSimpleName());
+            return;
+        }
+
+        // 获取元素类型：View[] -> View，List<? extends View> -> View
+        TypeMirror viewType = null;
+        TypeMirror elementType = element.asType();
+        if (kind == FieldCollectionViewInjecting.Kind.ARRAY) {
+            viewType = ((ArrayType) elementType).getComponentType();
+        } else {
+            List<? extends TypeMirror> typeArguments = ((DeclaredType) elementType).getTypeArguments();
+            if (typeArguments.size() == 1) {
+                viewType = typeArguments.get(0);
+                if (viewType.getKind() == TypeKind.WILDCARD) {
+                    viewType = ((WildcardType) viewType).getExtendsBound();
+                }
+            }
+        }
+        if (viewType == null) {
+            _error(messager, element, "@%s List must have a generic component. (%s.%s)",
+                    InjectView.class.getSimpleName(), enclosingElement.getQualifiedName(), element.getSimpleName());
+            return;
+        }
+        if (viewType.getKind() == TypeKind.TYPEVAR) {
+            // 生成的注入器拿不到目标类的类型参数，无法创建对应的数组或 List
+            _error(messager, element, "@%s List or array type must not be a type variable. (%s.%s)",
+                    InjectView.class.getSimpleName(), enclosingElement.getQualifiedName(), element.getSimpleName());
+            return;
+        }
+        if (!typeHelper.isView(viewType) && !_isInterface(viewType)) {
+            _error(messager, element, "@%s List or array type must extend from View or be an interface. (%s.%s)",
+                    InjectView.class.getSimpleName(), enclosingElement.getQualifiedName(), element.getSimpleName());
+            return;
+        }
+
+        int[] ids = annotation.value();
+        if (ids.length == 0) {
+            _error(messager, element, "@%s must specify at least one ID. (%s.%s)",
+                    InjectView.class.getSimpleName(), enclosingElement.getQualifiedName(), element.getSimpleName());
+            return;
+        }
+        Integer duplicateId = _findDuplicate(ids);
+        if (duplicateId != null) {
+            _error(messager, element, "@%s annotation contains duplicate ID %d. (%s.%s)",
+                    InjectView.class.getSimpleName(), duplicateId, enclosingElement.getQualifiedName(),
+                    element.getSimpleName());
+            return;
+        }
+
+        String name = element.getSimpleName().toString();
+        InjectClass injectClass = _getOrCreateTargetClass(element, targetClassMap, elementUtils, messager);
+        injectClass.addCollectionBinding(new FieldCollectionViewInjecting(name, TypeName.get(viewType), kind, ids));
+        _log(messager, element, "parseBindMany %s %s %s", name, kind, Arrays.toString(ids));
+
+        erasedTargetNames.add(enclosingElement);
+    }
+
     /**
      * 判断是否为接口
      *
@@ -0,0 +1,86 @@
+package com.margi.compile;
+
+import java.util.Locale;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.tools.Diagnostic;
+
+/**
+ * Created by allen on 10/18/16.
+ * 按日志级别过滤的 Messager，错误和警告始终输出，NOTE 只在对应级别开启时才格式化并输出
+ */
+final class ProcessorLog implements Messager {
+
+    /**
+     * 日志级别，通过 apt 参数 viewinject.logLevel 指定，默认 quiet
+     */
+    enum Level {
+        /** 只输出错误和警告 */
+        QUIET,
+        /** 每个生成的文件输出一行 */
+        INFO,
+        /** 每个注解元素的解析过程 */
+        DEBUG;
+
+        static Level parse(String value) {
+            if (value == null || value.isEmpty()) {
+                return QUIET;
+            }
+            return valueOf(value.toUpperCase(Locale.US));
+        }
+    }
+
+    private final Messager messager;
+    private final Level level;
+
+    ProcessorLog(Messager messager, Level level) {
+        this.messager = messager;
+        this.level = level;
+    }
+
+    boolean isEnabled(Level level) {
+        return this.level.compareTo(level) >= 0;
+    }
+
+    void info(Element element, String message, Object... args) {
+        _print(Level.INFO, element, message, args);
+    }
+
+    void debug(Element element, String message, Object... args) {
+        _print(Level.DEBUG, element, message, args);
+    }
+
+    private void _print(Level level, Element element, String message, Object... args) {
+        if (!isEnabled(level)) {
+            return;
+        }
+        if (args.length > 0) {
+            message = String.format(message, args);
+        }
+        messager.printMessage(Diagnostic.Kind.NOTE, message, element);
+    }
+
+    @Override
+    public void printMessage(Diagnostic.Kind kind, CharSequence msg) {
+        messager.printMessage(kind, msg);
+    }
+
+    @Override
+    public void printMessage(Diagnostic.Kind kind, CharSequence msg, Element e) {
+        messager.printMessage(kind, msg, e);
+    }
+
+    @Override
+    public void printMessage(Diagnostic.Kind kind, CharSequence msg, Element e, AnnotationMirror a) {
+        messager.printMessage(kind, msg, e, a);
+    }
+
+    @Override
+    public void printMessage(Diagnostic.Kind kind, CharSequence msg, Element e, AnnotationMirror a,
+                             AnnotationValue v) {
+        messager.printMessage(kind, msg, e, a, v);
+    }
+}
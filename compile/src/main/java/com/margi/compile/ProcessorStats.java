@@ -0,0 +1,86 @@
+package com.margi.compile;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by allen on 10/18/16.
+ * 处理器各阶段耗时统计，通过 apt 参数 viewinject.stats=true 开启，在最后一个 round 输出
+ */
+final class ProcessorStats {
+
+    /** 处理阶段 */
+    enum Phase {
+        VALIDATION("validation"),
+        PARSING("parsing"),
+        PARENT_RESOLUTION("parent resolution"),
+        LAYOUT_ANALYSIS("layout analysis"),
+        CODE_GENERATION("code generation"),
+        FILER_WRITES("filer writes");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+    }
+
+    private final long[] nanos = new long[Phase.values().length];
+    private int rounds;
+    private int elements;
+    private int targets;
+    private int files;
+
+    void addTime(Phase phase, long startNanos) {
+        nanos[phase.ordinal()] += System.nanoTime() - startNanos;
+    }
+
+    void addRound() {
+        rounds++;
+    }
+
+    void addElement() {
+        elements++;
+    }
+
+    void addTarget() {
+        targets++;
+    }
+
+    void addFile() {
+        files++;
+    }
+
+    /**
+     * @return 阶段累计耗时，纳秒
+     */
+    long getNanos(Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    int getTargets() {
+        return targets;
+    }
+
+    int getFiles() {
+        return files;
+    }
+
+    /**
+     * @return 单行统计信息，便于构建日志中按模块采集
+     */
+    String report() {
+        StringBuilder result = new StringBuilder("ViewInject stats: ")
+                .append(rounds).append(" rounds, ")
+                .append(elements).append(" elements, ")
+                .append(targets).append(" targets, ")
+                .append(files).append(" files");
+        long total = 0;
+        for (Phase phase : Phase.values()) {
+            long phaseNanos = nanos[phase.ordinal()];
+            total += phaseNanos;
+            result.append(", ").append(phase.label).append(' ')
+                    .append(TimeUnit.NANOSECONDS.toMillis(phaseNanos)).append("ms");
+        }
+        return result.append(", total ").append(TimeUnit.NANOSECONDS.toMillis(total)).append("ms").toString();
+    }
+}
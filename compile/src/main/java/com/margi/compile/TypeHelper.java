@@ -0,0 +1,72 @@
+package com.margi.compile;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * Created by allen on 10/18/16.
+ * 类型判断帮助类，每个 round 创建一次：比对用的 TypeMirror 只解析一次，
+ * 判断结果按 TypeElement 缓存，同一个类型的多个字段不再重复遍历父类和接口
+ */
+final class TypeHelper {
+
+    private final Types typeUtils;
+    private final TypeMirror viewType;
+    private final TypeMirror iterableType;
+    private final Map<TypeElement, Boolean> viewSubtypes = new HashMap<>();
+    private final Map<TypeElement, Boolean> iterableSubtypes = new HashMap<>();
+
+    TypeHelper(Elements elementUtils, Types typeUtils) {
+        this.typeUtils = typeUtils;
+        this.viewType = _erasedType(elementUtils, ParseHelper.VIEW_TYPE);
+        this.iterableType = _erasedType(elementUtils, Iterable.class.getCanonicalName());
+    }
+
+    /**
+     * 判断是否为 android.view.View 的子类型
+     */
+    boolean isView(TypeMirror typeMirror) {
+        return _isSubtype(typeMirror, viewType, viewSubtypes);
+    }
+
+    /**
+     * 判断是否为 java.lang.Iterable 的子类型
+     */
+    boolean isIterable(TypeMirror typeMirror) {
+        return _isSubtype(typeMirror, iterableType, iterableSubtypes);
+    }
+
+    private boolean _isSubtype(TypeMirror typeMirror, TypeMirror otherType, Map<TypeElement, Boolean> cache) {
+        if (otherType == null || typeMirror.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        Element element = ((DeclaredType) typeMirror).asElement();
+        if (!(element instanceof TypeElement)) {
+            return false;
+        }
+        TypeElement typeElement = (TypeElement) element;
+        Boolean result = cache.get(typeElement);
+        if (result == null) {
+            // 擦除泛型参数后比较，List<String> 与 Iterable 的判断结果只取决于 List
+            result = typeUtils.isSubtype(typeUtils.erasure(typeMirror), otherType);
+            cache.put(typeElement, result);
+        }
+        return result;
+    }
+
+    /**
+     * @return 擦除后的类型，类型不在 classpath 上时返回 null
+     */
+    private TypeMirror _erasedType(Elements elementUtils, String name) {
+        TypeElement typeElement = elementUtils.getTypeElement(name);
+        return typeElement == null ? null : typeUtils.erasure(typeElement.asType());
+    }
+}
@@ -1,7 +1,13 @@
 package com.margi.compile;
 
 import com.google.auto.common.SuperficialValidation;
+import com.margi.annotation.BindColor;
+import com.margi.annotation.BindDimen;
+import com.margi.annotation.BindDrawable;
+import com.margi.annotation.BindString;
 import com.margi.annotation.InjectView;
+import com.margi.annotation.OnClick;
+import com.margi.annotation.OnLongClick;
 
 import java.lang.annotation.Annotation;
 import java.util.Set;
@@ -9,8 +15,10 @@ import java.util.Set;
 import javax.annotation.processing.Messager;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
 import javax.tools.Diagnostic;
 
 
@@ -22,6 +30,7 @@ public final class VerifyHelper {
 
     private static final String STRING_TYPE = "java.lang.String";
     private static final String COLOR_STATE_LIST_TYPE = "android.content.res.ColorStateList";
+    private static final String DRAWABLE_TYPE = "android.graphics.drawable.Drawable";
 
 
     private VerifyHelper() {
@@ -37,6 +46,21 @@ public final class VerifyHelper {
         return _verifyElement(element, InjectView.class, messager);
     }
 
+    /**
+     * 验证资源：@BindString、@BindColor、@BindDimen、@BindDrawable
+     */
+    public static boolean verifyResource(Element element, Class<? extends Annotation> annotationClass,
+                                         Messager messager) {
+        return _verifyElement(element, annotationClass, messager);
+    }
+
+    /**
+     * 验证事件方法：@OnClick、@OnLongClick，参数和返回值由 ParseHelper 检查
+     */
+    public static boolean verifyListener(Element element, Class<? extends Annotation> annotationClass,
+                                         Messager messager) {
+        return _verifyElement(element, annotationClass, messager);
+    }
 
     /*************************************************************************/
 
@@ -59,25 +83,26 @@ public final class VerifyHelper {
         if (!_verifyElementType(element, annotationClass, messager)) {
             return false;
         }
-        // 使用该注解的字段访问权限不能为 private 和 static
+        String kind = element.getKind() == ElementKind.METHOD ? "methods" : "fields";
+        // 使用该注解的字段或方法访问权限不能为 private 和 static
         Set<Modifier> modifiers = element.getModifiers();
         if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC)) {
             _error(messager, element, "@%s %s must not be private or static. (%s.%s)",
-                    annotationClass.getSimpleName(), "fields", enclosingElement.getQualifiedName(),
+                    annotationClass.getSimpleName(), kind, enclosingElement.getQualifiedName(),
                     element.getSimpleName());
             return false;
         }
         // 包含该注解的外围元素种类必须为 Class
         if (enclosingElement.getKind() != ElementKind.CLASS) {
             _error(messager, enclosingElement, "@%s %s may only be contained in classes. (%s.%s)",
-                    annotationClass.getSimpleName(), "fields", enclosingElement.getQualifiedName(),
+                    annotationClass.getSimpleName(), kind, enclosingElement.getQualifiedName(),
                     element.getSimpleName());
             return false;
         }
         // 包含该注解的外围元素访问权限不能为 private
         if (enclosingElement.getModifiers().contains(Modifier.PRIVATE)) {
             _error(messager, enclosingElement, "@%s %s may not be contained in private classes. (%s.%s)",
-                    annotationClass.getSimpleName(), "fields", enclosingElement.getQualifiedName(),
+                    annotationClass.getSimpleName(), kind, enclosingElement.getQualifiedName(),
                     element.getSimpleName());
             return false;
         }
@@ -109,29 +134,44 @@ public final class VerifyHelper {
         // 获取最里层的外围元素
         TypeElement enclosingElement = (TypeElement) element.getEnclosingElement();
 
-//        // 检测使用该注解的元素类型是否正确
-//        if (annotationClass == BindString.class) {
-//            if (!STRING_TYPE.equals(element.asType().toString())) {
-//                _error(messager, element, "@%s field type must be 'String'. (%s.%s)",
-//                        annotationClass.getSimpleName(), enclosingElement.getQualifiedName(),
-//                        element.getSimpleName());
-//                return false;
-//            }
-//        } else if (annotationClass == BindColor.class) {
-//            if (COLOR_STATE_LIST_TYPE.equals(element.asType().toString())) {
-//                return true;
-//            } else if (element.asType().getKind() != TypeKind.INT) {
-//                _error(messager, element, "@%s field type must be 'int' or 'ColorStateList'. (%s.%s)",
-//                        BindColor.class.getSimpleName(), enclosingElement.getQualifiedName(),
-//                        element.getSimpleName());
-//                return false;
-//            }
-//        } else if (annotationClass == OnClick.class) {
-//            if (!(element instanceof ExecutableElement) || (element.getKind() != ElementKind.METHOD)) {
-//                _error(messager, element, "@%s annotation must be on a method.", annotationClass.getSimpleName());
-//                return false;
-//            }
-//        }
+        // 检测使用该注解的元素类型是否正确
+        if (annotationClass == BindString.class) {
+            if (!STRING_TYPE.equals(element.asType().toString())) {
+                _error(messager, element, "@%s field type must be 'String'. (%s.%s)",
+                        annotationClass.getSimpleName(), enclosingElement.getQualifiedName(),
+                        element.getSimpleName());
+                return false;
+            }
+        } else if (annotationClass == BindColor.class) {
+            if (COLOR_STATE_LIST_TYPE.equals(element.asType().toString())) {
+                return true;
+            } else if (element.asType().getKind() != TypeKind.INT) {
+                _error(messager, element, "@%s field type must be 'int' or 'ColorStateList'. (%s.%s)",
+                        BindColor.class.getSimpleName(), enclosingElement.getQualifiedName(),
+                        element.getSimpleName());
+                return false;
+            }
+        } else if (annotationClass == BindDimen.class) {
+            TypeKind kind = element.asType().getKind();
+            if (kind != TypeKind.INT && kind != TypeKind.FLOAT) {
+                _error(messager, element, "@%s field type must be 'int' or 'float'. (%s.%s)",
+                        BindDimen.class.getSimpleName(), enclosingElement.getQualifiedName(),
+                        element.getSimpleName());
+                return false;
+            }
+        } else if (annotationClass == BindDrawable.class) {
+            if (!DRAWABLE_TYPE.equals(element.asType().toString())) {
+                _error(messager, element, "@%s field type must be 'Drawable'. (%s.%s)",
+                        BindDrawable.class.getSimpleName(), enclosingElement.getQualifiedName(),
+                        element.getSimpleName());
+                return false;
+            }
+        } else if (annotationClass == OnClick.class || annotationClass == OnLongClick.class) {
+            if (!(element instanceof ExecutableElement) || (element.getKind() != ElementKind.METHOD)) {
+                _error(messager, element, "@%s annotation must be on a method.", annotationClass.getSimpleName());
+                return false;
+            }
+        }
 
         return true;
     }
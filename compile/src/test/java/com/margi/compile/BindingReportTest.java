@@ -0,0 +1,45 @@
+package com.margi.compile;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * 构建报告的 JSON 输出和继承链查找次数汇总
+ */
+public class BindingReportTest {
+
+    @Test
+    public void totalLookupsIncludesParentsInTheReport() {
+        BindingReport report = new BindingReport();
+        report.addTarget("com.example.BaseActivity", "com.example.BaseActivity$$ViewInjector",
+                Collections.<String>emptyList()).setLookups(2);
+        BindingReport.Target detail = report.addTarget("com.example.DetailActivity",
+                "com.example.DetailActivity$$ViewInjector",
+                Collections.singletonList("com.example.BaseActivity$$ViewInjector"));
+        detail.addBinding("view", "content", new int[]{2}, "android.widget.TextView");
+        detail.setLookups(1);
+
+        String json = report.toJson();
+        assertTrue(json, json.contains("\"parents\": [\"com.example.BaseActivity$$ViewInjector\"],\n"
+                + "      \"bindingCount\": 1,\n"
+                + "      \"lookups\": 1,\n"
+                + "      \"totalLookups\": 3,"));
+        assertTrue(json, json.contains(
+                "{\"kind\": \"view\", \"name\": \"content\", \"ids\": [2], \"type\": \"android.widget.TextView\"}"));
+    }
+
+    @Test
+    public void totalLookupsIsOmittedForParentsFromOtherModules() {
+        BindingReport report = new BindingReport();
+        report.addTarget("com.example.DetailActivity", "com.example.DetailActivity$$ViewInjector",
+                Arrays.asList("com.library.BaseActivity$$ViewInjector")).setLookups(1);
+
+        String json = report.toJson();
+        assertTrue(json, json.contains("\"lookups\": 1,"));
+        assertFalse(json, json.contains("totalLookups"));
+    }
+}
@@ -0,0 +1,116 @@
+package com.margi.compile;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+import static com.margi.compile.ProcessorRunner.count;
+import static com.margi.compile.ProcessorRunner.method;
+import static org.junit.Assert.*;
+
+/**
+ * 紧凑模式（-Aviewinject.compact=true）：名称常量与 VIEW_IDS 对应、显式类型转换、每个 ID 只查找一次
+ */
+public class CompactModeTest {
+
+    private static final String INJECTOR = "com/example/ListActivity$$ViewInjector.java";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private ProcessorRunner runner;
+
+    @Before
+    public void setUp() throws IOException {
+        runner = new ProcessorRunner(temp);
+        // ID 故意不按声明顺序排列，VIEW_IDS 和 VIEW_NAMES 按 ID 升序
+        runner.source("com/example/ListActivity.java",
+                "package com.example;\n"
+                        + "import android.view.View;\n"
+                        + "import android.widget.ImageView;\n"
+                        + "import android.widget.TextView;\n"
+                        + "import java.util.List;\n"
+                        + "import com.margi.annotation.*;\n"
+                        + "public class ListActivity {\n"
+                        + "    @InjectView(7) TextView title;\n"
+                        + "    @InjectView(2) View header;\n"
+                        + "    @InjectView(5) ImageView icon;\n"
+                        + "    @InjectView({8, 3}) List<TextView> labels;\n"
+                        + "    @OnClick(5) void onIcon() {}\n"
+                        + "    @OnClick(9) void onMore() {}\n"
+                        + "}\n");
+    }
+
+    @Test
+    public void namesFollowSortedIds() throws IOException {
+        for (boolean singlePass : new boolean[]{false, true}) {
+            String injector = _run(singlePass);
+            assertTrue(injector, injector.contains("private static final int[] VIEW_IDS = { 2, 3, 5, 7, 8, 9 };"));
+            // 集合中的 ID 报告集合字段名，只绑定了事件的 ID 报告方法名加 "()"
+            assertTrue(injector, injector.contains("private static final String VIEW_NAMES = \"header\\n\"\n"
+                    + "      + \"labels\\n\"\n"
+                    + "      + \"icon\\n\"\n"
+                    + "      + \"title\\n\"\n"
+                    + "      + \"labels\\n\"\n"
+                    + "      + \"onMore()\";"));
+        }
+    }
+
+    @Test
+    public void castsByIndexOfSortedIds() throws IOException {
+        for (boolean singlePass : new boolean[]{false, true}) {
+            String inject = method(_run(singlePass), "public void inject(");
+            assertTrue(inject, inject.contains("target.title = (TextView) views[3];"));
+            // View 类型的字段不需要转换
+            assertTrue(inject, inject.contains("target.header = views[0];"));
+            // 同时绑定了事件的 ID 先取出 View 设置监听，字段再转换
+            assertTrue(inject, inject.contains("view = views[2];\n"
+                    + "    target.icon = (ImageView) view;\n"
+                    + "    ListenerDispatcher dispatcher = ListenerBinding.reuse(view, ListenerDispatcher.class, target);\n"
+                    + "    if (dispatcher == null) {\n"
+                    + "      dispatcher = new ListenerDispatcher(target);\n"
+                    + "      ListenerBinding.attach(view, dispatcher);\n"
+                    + "    }\n"
+                    + "    view.setOnClickListener(dispatcher);\n"
+                    + "    dispatcher.view0 = view;"));
+            assertTrue(inject, inject.contains("view = views[5];\n"
+                    + "    view.setOnClickListener(dispatcher);\n"
+                    + "    dispatcher.view1 = view;"));
+            // 集合元素按声明顺序，下标按排序后的 ID
+            assertTrue(inject, inject.contains("target.labels = Utils.listOf(\n"
+                    + "        (TextView) views[4],\n"
+                    + "        (TextView) views[1]);"));
+            assertEquals(inject, 0, count(inject, "castView("));
+            assertEquals(inject, 0, count(inject, "requireView("));
+        }
+    }
+
+    @Test
+    public void singlePassIsPassedToFinder() throws IOException {
+        String inject = method(_run(true), "public void inject(");
+        assertEquals(inject, 1, count(inject, "finder."));
+        assertTrue(inject, inject.contains(
+                "View[] views = finder.findRequiredViews(source, VIEW_IDS, VIEW_NAMES, true);"));
+    }
+
+    @Test
+    public void withoutSinglePassLooksUpEachIdOnce() throws IOException {
+        String inject = method(_run(false), "public void inject(");
+        // 所有查找都交给 findRequiredViews，由它对 VIEW_IDS 中的每个 ID 各查找一次
+        assertEquals(inject, 1, count(inject, "finder."));
+        assertTrue(inject, inject.contains(
+                "View[] views = finder.findRequiredViews(source, VIEW_IDS, VIEW_NAMES, false);"));
+        // 每个结果只读取一次，不再单独查找
+        for (int index = 0; index < 6; index++) {
+            assertEquals(inject, 1, count(inject, "views[" + index + "]"));
+        }
+    }
+
+    private String _run(boolean singlePass) throws IOException {
+        return runner.run("-Aviewinject.compact=true", "-Aviewinject.singlePass=" + singlePass)
+                .assertSuccess().source(INJECTOR);
+    }
+}
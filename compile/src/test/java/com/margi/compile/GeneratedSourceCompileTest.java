@@ -0,0 +1,100 @@
+package com.margi.compile;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 每种模式生成的注入器和注册表都能和目标类一起通过完整编译，而不只是 -proc:only 下的文本比对
+ */
+@RunWith(Parameterized.class)
+public class GeneratedSourceCompileTest {
+
+    @Parameterized.Parameters(name = "{0}")
+    public static List<Object[]> modes() {
+        return Arrays.asList(new Object[][]{
+                {"default", new String[]{}},
+                {"singlePass", new String[]{"-Aviewinject.singlePass=true"}},
+                {"compact", new String[]{"-Aviewinject.compact=true"}},
+                {"isolating", new String[]{"-Aviewinject.isolating=true"}},
+        });
+    }
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final String mode;
+    private final String[] options;
+    private ProcessorRunner runner;
+
+    public GeneratedSourceCompileTest(String mode, String[] options) {
+        this.mode = mode;
+        this.options = options;
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        runner = new ProcessorRunner(temp);
+        runner.source("com/example/BaseActivity.java",
+                "package com.example;\n"
+                        + "import android.view.View;\n"
+                        + "import com.margi.annotation.*;\n"
+                        + "public class BaseActivity {\n"
+                        + "    @InjectView(1) View header;\n"
+                        + "    @OnClick(1) void onHeader() {}\n"
+                        + "}\n");
+        // 字段、集合、延迟绑定、事件（包括窄化的参数类型）和父类注入器
+        runner.source("com/example/MainActivity.java",
+                "package com.example;\n"
+                        + "import android.view.View;\n"
+                        + "import android.widget.ImageView;\n"
+                        + "import android.widget.TextView;\n"
+                        + "import java.util.List;\n"
+                        + "import com.margi.annotation.*;\n"
+                        + "import com.margi.core.LazyView;\n"
+                        + "public class MainActivity extends BaseActivity {\n"
+                        + "    @InjectView(2) TextView title;\n"
+                        + "    @InjectView(3) ImageView icon;\n"
+                        + "    @InjectView({4, 5}) List<TextView> labels;\n"
+                        + "    @InjectView(value = 6, lazy = true) LazyView<TextView> detail;\n"
+                        + "    @OnClick(3) void onIcon(ImageView icon) {}\n"
+                        + "    @OnLongClick(2) boolean onHold() { return true; }\n"
+                        + "    @OnClick({7, 8}) void onMore(View view) {}\n"
+                        + "}\n");
+        // 只绑定事件的类
+        runner.source("com/example/Footer.java",
+                "package com.example;\n"
+                        + "import android.widget.TextView;\n"
+                        + "import com.margi.annotation.OnClick;\n"
+                        + "public class Footer {\n"
+                        + "    @OnClick(9) void onLink(TextView link) {}\n"
+                        + "}\n");
+    }
+
+    @Test
+    public void generatedSourcesCompile() throws IOException {
+        ProcessorRunner.Result result = runner.compile(options).assertSuccess();
+
+        _assertClass(result, "com/example/BaseActivity$$ViewInjector.class");
+        _assertClass(result, "com/example/MainActivity$$ViewInjector.class");
+        _assertClass(result, "com/example/MainActivity$$ViewInjector$ListenerDispatcher.class");
+        _assertClass(result, "com/example/Footer$$ViewInjector.class");
+        // 隔离模式不生成注册表
+        File registry = new File(result.classes, "com/margi/core/InjectorRegistry$$Generated.class");
+        assertEquals(mode, !"isolating".equals(mode), registry.isFile());
+    }
+
+    private void _assertClass(ProcessorRunner.Result result, String path) {
+        assertTrue(mode + ": " + path, new File(result.classes, path).isFile());
+    }
+}
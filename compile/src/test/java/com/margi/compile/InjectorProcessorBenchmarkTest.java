@@ -0,0 +1,614 @@
+package com.margi.compile;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.processing.Completion;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import static org.junit.Assert.*;
+
+/**
+ * 在内存中编译合成的大型工程，检查生成结果；按 singlePass、compact 和 parallelism 的组合各运行一次。
+ * 耗时和内存分配的回归测试依赖机器且耗时较长，只在 -Dviewinject.benchmark=true 时运行，结果输出到标准输出。
+ * 规模可以通过系统属性调整，例如 -Dviewinject.benchmark.classes=2000 -Dviewinject.benchmark.fields=20
+ * 模拟实际工程
+ */
+@RunWith(Parameterized.class)
+public class InjectorProcessorBenchmarkTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final boolean BENCHMARK = Boolean.getBoolean("viewinject.benchmark");
+
+    private static final int CLASSES = Integer.getInteger("viewinject.benchmark.classes", 100);
+    private static final int FIELDS = Integer.getInteger("viewinject.benchmark.fields", 10);
+    private static final int DEPTH = Integer.getInteger("viewinject.benchmark.depth", 3);
+
+    /** 规模放大的倍数，线性的实现耗时也约为同样的倍数 */
+    private static final int SCALE = 4;
+    /** 放大后各阶段耗时允许的最大倍数，留出 GC 和 JIT 的误差，二次复杂度会达到 SCALE * SCALE */
+    private static final double MAX_SCALING = 3.0 * SCALE;
+    /** 不足这个时间的阶段误差太大，按这个时间计 */
+    private static final long MIN_PHASE_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    /** 处理器每个绑定允许的内存分配，包括生成代码时 javac 补全符号和 Filer 的开销，当前约为 55KB */
+    private static final long MAX_ALLOCATED_PER_BINDING = 128 * 1024;
+    private static final int REPEAT = 3;
+
+    /** 分别对应 VerifyHelper、ParseHelper 和 InjectClass */
+    private static final ProcessorStats.Phase[] CHECKED_PHASES = {
+            ProcessorStats.Phase.VALIDATION,
+            ProcessorStats.Phase.PARSING,
+            ProcessorStats.Phase.CODE_GENERATION,
+    };
+
+    @Parameterized.Parameters(name = "{0}")
+    public static List<Object[]> modes() {
+        return Arrays.asList(new Object[][]{
+                {new Mode(false, false, 1)},
+                {new Mode(true, false, 1)},
+                {new Mode(false, true, 1)},
+                {new Mode(true, true, 1)},
+                {new Mode(false, false, 4)},
+        });
+    }
+
+    private final Mode mode;
+
+    public InjectorProcessorBenchmarkTest(Mode mode) {
+        this.mode = mode;
+    }
+
+    @Test
+    public void generatesEveryInjectorWithItsParent() {
+        Run run = _compile(CLASSES, FIELDS, DEPTH);
+
+        // 每个类一个注入器，加上模块注册表
+        assertEquals(CLASSES + 1, run.generated.size());
+        assertEquals(CLASSES, run.stats.getTargets());
+        String registry = run.generated.get("com.margi.core.InjectorRegistry$$Generated");
+        assertNotNull(registry);
+        // 注册表声明模块编译的包，运行时这些包中的未命中不再反射探测
+        assertTrue(registry, registry.contains("implements InjectorRegistry.Preloadable, "
+                + "InjectorRegistry.Authoritative"));
+        assertTrue(registry, registry.contains("case \"com.example\":\n"));
+        for (int i = 0; i < CLASSES; i++) {
+            String name = _className(i);
+            String injector = run.generated.get("com.example." + name + "$$ViewInjector");
+            assertNotNull(name, injector);
+            _assertLookups(injector);
+            if (i % DEPTH > 0) {
+                assertTrue(injector, injector.contains("extends " + _className(i - 1) + "$$ViewInjector<T>"));
+                assertTrue(injector, injector.contains("super.inject(finder, target, source)"));
+            }
+            // 注册表返回注入器类持有的单例
+            assertTrue(injector, injector.contains("public static final " + name + "$$ViewInjector INSTANCE = new "
+                    + name + "$$ViewInjector();"));
+            assertTrue(name, registry.contains("case \"com.example." + name + "\": return (ViewInjector<Object>) "
+                    + name + "$$ViewInjector.INSTANCE;"));
+        }
+    }
+
+    @Test
+    public void parallelGenerationMatchesSequential() {
+        Assume.assumeTrue(mode.parallelism > 1);
+        Run parallel = _compile(CLASSES, FIELDS, DEPTH);
+        Run sequential = new InjectorProcessorBenchmarkTest(mode.sequential())._compile(CLASSES, FIELDS, DEPTH);
+
+        // 生成的源码逐字节相同，写入顺序和 originating elements 也相同，增量编译的依赖关系不受并行影响
+        assertEquals(sequential.generated.keySet(), parallel.generated.keySet());
+        for (Map.Entry<String, String> entry : sequential.generated.entrySet()) {
+            assertArrayEquals(entry.getKey(), entry.getValue().getBytes(UTF_8),
+                    parallel.generated.get(entry.getKey()).getBytes(UTF_8));
+        }
+        assertEquals(CLASSES + 1, parallel.originatingElements.size());
+        for (int i = 0; i < CLASSES; i++) {
+            String name = "com.example." + _className(i);
+            List<String> elements = parallel.originatingElements.get(name + "$$ViewInjector");
+            assertTrue(name + ": " + elements, elements.contains(name));
+        }
+        assertEquals(new ArrayList<>(sequential.originatingElements.entrySet()),
+                new ArrayList<>(parallel.originatingElements.entrySet()));
+    }
+
+    @Test
+    public void phasesScaleLinearly() {
+        Assume.assumeTrue(BENCHMARK);
+        // 预热 JIT
+        _compile(CLASSES * SCALE, FIELDS, DEPTH);
+
+        long[] small = _fastestPhases(CLASSES);
+        long[] large = _fastestPhases(CLASSES * SCALE);
+        for (ProcessorStats.Phase phase : CHECKED_PHASES) {
+            double ratio = (double) Math.max(large[phase.ordinal()], MIN_PHASE_NANOS)
+                    / Math.max(small[phase.ordinal()], MIN_PHASE_NANOS);
+            assertTrue(String.format(Locale.US, "%s grew %.1fx for %dx more bindings", phase, ratio, SCALE),
+                    ratio <= MAX_SCALING);
+        }
+    }
+
+    @Test
+    public void allocationPerBindingWithinBudget() {
+        // 只统计调用线程的分配，并行生成时工作线程的分配不计入
+        Assume.assumeTrue(BENCHMARK && mode.parallelism == 1 && _allocatedBytes() >= 0);
+        Run run = _compile(CLASSES, FIELDS, DEPTH);
+        System.out.println(run);
+        long perBinding = run.processorAllocatedBytes / ((long) CLASSES * FIELDS);
+        assertTrue("allocated " + perBinding + " bytes per binding", perBinding <= MAX_ALLOCATED_PER_BINDING);
+    }
+
+    /**
+     * 每个字段都按当前模式的方式查找
+     */
+    private void _assertLookups(String injector) {
+        if (mode.compact) {
+            assertEquals(injector, 1, _count(injector,
+                    "finder.findRequiredViews(source, VIEW_IDS, VIEW_NAMES, " + mode.singlePass + ")"));
+            assertEquals(injector, FIELDS, _count(injector, "views["));
+        } else if (mode.singlePass) {
+            assertEquals(injector, 1, _count(injector, "finder.findViews(source, VIEW_IDS)"));
+            assertEquals(injector, FIELDS, _count(injector, "finder.requireView(source, views["));
+        } else {
+            assertEquals(injector, FIELDS, _count(injector, "finder.findRequiredView(source, "));
+        }
+    }
+
+    /**
+     * 重复编译，每个阶段取最短的耗时，减少 GC 和调度的干扰
+     *
+     * @return 按 Phase.ordinal() 排列的纳秒数
+     */
+    private long[] _fastestPhases(int classes) {
+        long[] fastest = new long[ProcessorStats.Phase.values().length];
+        Arrays.fill(fastest, Long.MAX_VALUE);
+        for (int i = 0; i < REPEAT; i++) {
+            Run run = _compile(classes, FIELDS, DEPTH);
+            System.out.println(run);
+            for (ProcessorStats.Phase phase : ProcessorStats.Phase.values()) {
+                fastest[phase.ordinal()] = Math.min(fastest[phase.ordinal()], run.stats.getNanos(phase));
+            }
+        }
+        return fastest;
+    }
+
+    private Run _compile(int classes, int fields, int depth) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        List<JavaFileObject> sources = _sources(classes, fields, depth);
+        MeasuredProcessor processor = new MeasuredProcessor(new InjectorProcessor());
+        Run run = new Run(mode, classes, fields, depth);
+        try (MemoryFileManager fileManager =
+                     new MemoryFileManager(compiler.getStandardFileManager(diagnostics, null, UTF_8))) {
+            List<String> options = new ArrayList<>(Arrays.asList("-proc:only",
+                    "-classpath", System.getProperty("java.class.path")));
+            options.addAll(mode.options());
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null,
+                    sources);
+            task.setProcessors(Collections.<Processor>singletonList(processor));
+            long allocated = _allocatedBytes();
+            long start = System.nanoTime();
+            boolean success = task.call();
+            run.wallNanos = System.nanoTime() - start;
+            run.allocatedBytes = _allocatedBytes() - allocated;
+            run.processorNanos = processor.nanos;
+            run.processorAllocatedBytes = processor.allocatedBytes;
+            assertTrue(diagnostics.getDiagnostics().toString(), success);
+            for (Map.Entry<String, MemorySource> entry : fileManager.generated.entrySet()) {
+                run.generated.put(entry.getKey(), entry.getValue().content());
+            }
+            run.originatingElements.putAll(processor.filer.originatingElements);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        run.stats = processor.delegate.getStats();
+        return run;
+    }
+
+    /**
+     * 生成合成工程：每 depth 个类组成一条继承链，每个类绑定 fields 个 View，一半为 TextView
+     */
+    private static List<JavaFileObject> _sources(int classes, int fields, int depth) {
+        List<JavaFileObject> sources = new ArrayList<>();
+        sources.add(new MemorySource("android.view.View",
+                "package android.view;\n"
+                        + "public class View {}\n"));
+        sources.add(new MemorySource("android.widget.TextView",
+                "package android.widget;\n"
+                        + "public class TextView extends android.view.View {}\n"));
+        // 生成代码引用的 core-lib 类型，core-lib 是 Android 库，这里用最小的替身
+        sources.add(new MemorySource("com.margi.core.Finder",
+                "package com.margi.core;\n"
+                        + "public enum Finder {\n"
+                        + "    VIEW;\n"
+                        + "    public <T> T findRequiredView(Object source, int id, String who) { return null; }\n"
+                        + "    public android.view.View[] findViews(Object source, int[] ids) { return null; }\n"
+                        + "    public android.view.View[] findRequiredViews(Object source, int[] ids, String names,"
+                        + " boolean singlePass) { return null; }\n"
+                        + "    public <T> T requireView(Object source, android.view.View view, int id, String who)"
+                        + " { return null; }\n"
+                        + "}\n"));
+        sources.add(new MemorySource("com.margi.core.ViewInjector",
+                "package com.margi.core;\n"
+                        + "public interface ViewInjector<T> {\n"
+                        + "    void inject(Finder finder, T target, Object source);\n"
+                        + "    void unbind(T target);\n"
+                        + "}\n"));
+        sources.add(new MemorySource("com.margi.core.InjectorRegistry",
+                "package com.margi.core;\n"
+                        + "public interface InjectorRegistry {\n"
+                        + "    ViewInjector<Object> findInjector(Class<?> cls);\n"
+                        + "    interface Preloadable extends InjectorRegistry {\n"
+                        + "        String[] getTargetNames();\n"
+                        + "    }\n"
+                        + "    interface Authoritative extends InjectorRegistry {\n"
+                        + "        boolean ownsPackage(String packageName);\n"
+                        + "    }\n"
+                        + "}\n"));
+        for (int i = 0; i < classes; i++) {
+            StringBuilder source = new StringBuilder()
+                    .append("package com.example;\n")
+                    .append("import android.view.View;\n")
+                    .append("import android.widget.TextView;\n")
+                    .append("import com.margi.annotation.InjectView;\n")
+                    .append("public class ").append(_className(i));
+            if (i % depth > 0) {
+                source.append(" extends ").append(_className(i - 1));
+            }
+            source.append(" {\n");
+            for (int j = 0; j < fields; j++) {
+                source.append("    @InjectView(").append(0x7f000000 + i * fields + j + 1).append(") ")
+                        .append(j % 2 == 0 ? "View" : "TextView")
+                        .append(" view").append(i).append('_').append(j).append(";\n");
+            }
+            source.append("}\n");
+            sources.add(new MemorySource("com.example." + _className(i), source.toString()));
+        }
+        return sources;
+    }
+
+    private static String _className(int index) {
+        return "Screen" + index;
+    }
+
+    private static int _count(String text, String token) {
+        int count = 0;
+        for (int i = text.indexOf(token); i >= 0; i = text.indexOf(token, i + token.length())) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return 当前线程累计分配的字节数，虚拟机不支持时为 -1。javac 和处理器都在调用线程中执行，
+     * parallelism 大于 1 时格式化源码除外
+     */
+    private static long _allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * 处理器选项的一种组合
+     */
+    static final class Mode {
+        final boolean singlePass;
+        final boolean compact;
+        final int parallelism;
+
+        Mode(boolean singlePass, boolean compact, int parallelism) {
+            this.singlePass = singlePass;
+            this.compact = compact;
+            this.parallelism = parallelism;
+        }
+
+        /**
+         * @return 其他选项相同的顺序生成
+         */
+        Mode sequential() {
+            return new Mode(singlePass, compact, 1);
+        }
+
+        List<String> options() {
+            return Arrays.asList(
+                    "-A" + InjectorProcessor.OPTION_SINGLE_PASS + "=" + singlePass,
+                    "-A" + InjectorProcessor.OPTION_COMPACT + "=" + compact,
+                    "-A" + InjectorProcessor.OPTION_PARALLELISM + "=" + parallelism);
+        }
+
+        @Override
+        public String toString() {
+            return "singlePass=" + singlePass + ", compact=" + compact + ", parallelism=" + parallelism;
+        }
+    }
+
+    /**
+     * 一次编译的结果
+     */
+    private static final class Run {
+        final Mode mode;
+        final int classes;
+        final int fields;
+        final int depth;
+        final Map<String, String> generated = new TreeMap<>();
+        /** 按写入顺序排列的生成文件 -> originating elements */
+        final Map<String, List<String>> originatingElements = new LinkedHashMap<>();
+        long wallNanos;
+        long allocatedBytes;
+        long processorNanos;
+        long processorAllocatedBytes;
+        ProcessorStats stats;
+
+        Run(Mode mode, int classes, int fields, int depth) {
+            this.mode = mode;
+            this.classes = classes;
+            this.fields = fields;
+            this.depth = depth;
+        }
+
+        @Override
+        public String toString() {
+            long chars = 0;
+            for (String source : generated.values()) {
+                chars += source.length();
+            }
+            StringBuilder result = new StringBuilder(String.format(Locale.US,
+                    "%s, %d classes x %d fields, depth %d: javac %dms %dKB, processor %dms %dKB, %d files, %d chars",
+                    mode, classes, fields, depth, TimeUnit.NANOSECONDS.toMillis(wallNanos), allocatedBytes / 1024,
+                    TimeUnit.NANOSECONDS.toMillis(processorNanos), processorAllocatedBytes / 1024,
+                    generated.size(), chars));
+            for (ProcessorStats.Phase phase : ProcessorStats.Phase.values()) {
+                result.append(", ").append(phase.name().toLowerCase(Locale.US)).append(' ')
+                        .append(TimeUnit.NANOSECONDS.toMillis(stats.getNanos(phase))).append("ms");
+            }
+            return result.toString();
+        }
+    }
+
+    /**
+     * 只统计处理器自身的耗时和内存分配，javac 解析和进入符号表的开销不计入
+     */
+    private static final class MeasuredProcessor implements Processor {
+        final InjectorProcessor delegate;
+        RecordingFiler filer;
+        long nanos;
+        long allocatedBytes;
+
+        MeasuredProcessor(InjectorProcessor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Set<String> getSupportedOptions() {
+            return delegate.getSupportedOptions();
+        }
+
+        @Override
+        public Set<String> getSupportedAnnotationTypes() {
+            return delegate.getSupportedAnnotationTypes();
+        }
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return delegate.getSupportedSourceVersion();
+        }
+
+        @Override
+        public void init(final ProcessingEnvironment processingEnv) {
+            filer = new RecordingFiler(processingEnv.getFiler());
+            delegate.init(new ProcessingEnvironment() {
+                @Override
+                public Map<String, String> getOptions() {
+                    return processingEnv.getOptions();
+                }
+
+                @Override
+                public Messager getMessager() {
+                    return processingEnv.getMessager();
+                }
+
+                @Override
+                public Filer getFiler() {
+                    return filer;
+                }
+
+                @Override
+                public Elements getElementUtils() {
+                    return processingEnv.getElementUtils();
+                }
+
+                @Override
+                public Types getTypeUtils() {
+                    return processingEnv.getTypeUtils();
+                }
+
+                @Override
+                public SourceVersion getSourceVersion() {
+                    return processingEnv.getSourceVersion();
+                }
+
+                @Override
+                public Locale getLocale() {
+                    return processingEnv.getLocale();
+                }
+            });
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+            long allocated = _allocatedBytes();
+            long start = System.nanoTime();
+            try {
+                return delegate.process(annotations, roundEnv);
+            } finally {
+                nanos += System.nanoTime() - start;
+                allocatedBytes += _allocatedBytes() - allocated;
+            }
+        }
+
+        @Override
+        public Iterable<? extends Completion> getCompletions(Element element, AnnotationMirror annotation,
+                                                             ExecutableElement member, String userText) {
+            return delegate.getCompletions(element, annotation, member, userText);
+        }
+    }
+
+    /**
+     * 记录每个生成文件的 originating elements，增量编译按它们判断生成文件依赖哪些源文件
+     */
+    private static final class RecordingFiler implements Filer {
+        final Map<String, List<String>> originatingElements = new LinkedHashMap<>();
+        private final Filer delegate;
+
+        RecordingFiler(Filer delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public JavaFileObject createSourceFile(CharSequence name, Element... originatingElements)
+                throws IOException {
+            _record(name.toString(), originatingElements);
+            return delegate.createSourceFile(name, originatingElements);
+        }
+
+        @Override
+        public JavaFileObject createClassFile(CharSequence name, Element... originatingElements) throws IOException {
+            _record(name.toString(), originatingElements);
+            return delegate.createClassFile(name, originatingElements);
+        }
+
+        @Override
+        public FileObject createResource(JavaFileManager.Location location, CharSequence pkg,
+                                         CharSequence relativeName, Element... originatingElements)
+                throws IOException {
+            _record(pkg + "/" + relativeName, originatingElements);
+            return delegate.createResource(location, pkg, relativeName, originatingElements);
+        }
+
+        @Override
+        public FileObject getResource(JavaFileManager.Location location, CharSequence pkg,
+                                      CharSequence relativeName) throws IOException {
+            return delegate.getResource(location, pkg, relativeName);
+        }
+
+        private void _record(String name, Element[] elements) {
+            List<String> names = new ArrayList<>(elements.length);
+            for (Element element : elements) {
+                names.add(element.toString());
+            }
+            originatingElements.put(name, names);
+        }
+    }
+
+    /**
+     * 内存中的源码，输入的合成源码和处理器生成的源码都使用这个类
+     */
+    private static final class MemorySource extends SimpleJavaFileObject {
+        private String content;
+        private ByteArrayOutputStream output;
+
+        MemorySource(String className, String content) {
+            super(URI.create("memory:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.content = content;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return content();
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            output = new ByteArrayOutputStream();
+            return output;
+        }
+
+        @Override
+        public Writer openWriter() {
+            return new OutputStreamWriter(openOutputStream(), UTF_8);
+        }
+
+        String content() {
+            if (output != null) {
+                content = new String(output.toByteArray(), UTF_8);
+                output = null;
+            }
+            return content;
+        }
+    }
+
+    /**
+     * 生成的源码保存在内存中，不写入磁盘
+     */
+    private static final class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        final Map<String, MemorySource> generated = new TreeMap<>();
+
+        MemoryFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                                                   FileObject sibling) throws IOException {
+            if (location == StandardLocation.SOURCE_OUTPUT && kind == JavaFileObject.Kind.SOURCE) {
+                MemorySource source = new MemorySource(className, null);
+                generated.put(className, source);
+                return source;
+            }
+            return super.getJavaFileForOutput(location, className, kind, sibling);
+        }
+
+        @Override
+        public boolean isSameFile(FileObject a, FileObject b) {
+            if (a instanceof MemorySource || b instanceof MemorySource) {
+                return a == b;
+            }
+            return super.isSameFile(a, b);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.margi.compile;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import static org.junit.Assert.*;
+
+/**
+ * 隔离模式下只重新处理修改过的类，父类来自已编译的 class 文件
+ */
+public class InjectorProcessorIncrementalTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private File sources;
+    private File classes;
+
+    @Before
+    public void setUp() throws IOException {
+        sources = temp.newFolder("src");
+        classes = temp.newFolder("classes");
+        _write("android/view/View.java",
+                "package android.view;\n"
+                        + "public class View {}\n");
+        // 生成代码引用的 core-lib 类型，core-lib 是 Android 库，这里用最小的替身
+        _write("com/margi/core/Finder.java",
+                "package com.margi.core;\n"
+                        + "public enum Finder {\n"
+                        + "    VIEW;\n"
+                        + "    public <T> T findRequiredView(Object source, int id, String who) { return null; }\n"
+                        + "}\n");
+        _write("com/margi/core/ViewInjector.java",
+                "package com.margi.core;\n"
+                        + "public interface ViewInjector<T> {\n"
+                        + "    void inject(Finder finder, T target, Object source);\n"
+                        + "    void unbind(T target);\n"
+                        + "}\n");
+        _compile("com/margi/core/Finder.java", "com/margi/core/ViewInjector.java");
+        _write("com/example/BaseActivity.java",
+                "package com.example;\n"
+                        + "import android.view.View;\n"
+                        + "import com.margi.annotation.InjectView;\n"
+                        + "public class BaseActivity {\n"
+                        + "    @InjectView(1) View title;\n"
+                        + "}\n");
+        _write("com/example/DetailActivity.java",
+                "package com.example;\n"
+                        + "import android.view.View;\n"
+                        + "import com.margi.annotation.InjectView;\n"
+                        + "public class DetailActivity extends BaseActivity {\n"
+                        + "    @InjectView(2) View content;\n"
+                        + "}\n");
+        _write("com/example/SettingsActivity.java",
+                "package com.example;\n"
+                        + "import android.view.View;\n"
+                        + "import com.margi.annotation.InjectView;\n"
+                        + "public class SettingsActivity {\n"
+                        + "    @InjectView(3) View toggle;\n"
+                        + "}\n");
+    }
+
+    @Test
+    public void fullBuildGeneratesEveryInjector() throws IOException {
+        File generated = temp.newFolder("full");
+        _compile("android/view/View.java");
+        _process(generated, "com/example/BaseActivity.java",
+                "com/example/DetailActivity.java", "com/example/SettingsActivity.java");
+
+        assertEquals(Arrays.asList("BaseActivity$$ViewInjector.java", "DetailActivity$$ViewInjector.java",
+                "SettingsActivity$$ViewInjector.java"), _generatedFiles(generated));
+    }
+
+    @Test
+    public void singleFileEditRegeneratesOnlyItsInjector() throws IOException {
+        // 第一次完整编译，得到父类及其注入器的 class 文件
+        _run(Arrays.asList("-Aviewinject.isolating=true", "-processor", InjectorProcessor.class.getName(),
+                "-s", temp.newFolder("initial").getPath(), "-d", classes.getPath()),
+                "android/view/View.java", "com/example/BaseActivity.java",
+                "com/example/DetailActivity.java", "com/example/SettingsActivity.java");
+
+        // 只修改 DetailActivity，Gradle 只会把它交给处理器
+        File generated = temp.newFolder("incremental");
+        _process(generated, "com/example/DetailActivity.java");
+
+        assertEquals(Collections.singletonList("DetailActivity$$ViewInjector.java"), _generatedFiles(generated));
+        String injector = new String(Files.readAllBytes(
+                new File(generated, "com/example/DetailActivity$$ViewInjector.java").toPath()), UTF_8);
+        // 父类来自 class 文件，仍然要继承父类的注入器
+        assertTrue(injector, injector.contains("extends BaseActivity$$ViewInjector<T>"));
+        assertTrue(injector, injector.contains("super.inject(finder, target, source)"));
+    }
+
+    private void _write(String path, String content) throws IOException {
+        File file = new File(sources, path);
+        assertTrue(file.getParentFile().isDirectory() || file.getParentFile().mkdirs());
+        Files.write(file.toPath(), content.getBytes(UTF_8));
+    }
+
+    private void _compile(String... paths) throws IOException {
+        _run(Arrays.asList("-proc:none", "-d", classes.getPath()), paths);
+    }
+
+    private void _process(File generated, String... paths) throws IOException {
+        _run(Arrays.asList("-proc:only", "-Aviewinject.isolating=true", "-s", generated.getPath(),
+                "-processor", InjectorProcessor.class.getName()), paths);
+    }
+
+    private void _run(List<String> options, String... paths) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        List<String> arguments = new ArrayList<>(options);
+        arguments.add("-classpath");
+        arguments.add(classes.getPath() + File.pathSeparator + System.getProperty("java.class.path"));
+        List<File> files = new ArrayList<>();
+        for (String path : paths) {
+            files.add(new File(sources, path));
+        }
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, UTF_8)) {
+            boolean success = compiler.getTask(null, fileManager, null, arguments, null,
+                    fileManager.getJavaFileObjectsFromFiles(files)).call();
+            assertTrue("compilation failed", success);
+        }
+    }
+
+    private static List<String> _generatedFiles(File generated) {
+        List<String> names = new ArrayList<>();
+        File[] files = new File(generated, "com/example").listFiles();
+        if (files != null) {
+            for (File file : files) {
+                names.add(file.getName());
+            }
+        }
+        Collections.sort(names);
+        return names;
+    }
+}
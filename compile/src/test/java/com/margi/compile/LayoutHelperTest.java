@@ -0,0 +1,182 @@
+package com.margi.compile;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.tools.Diagnostic;
+
+import static com.margi.compile.ProcessorRunner.method;
+import static org.junit.Assert.*;
+
+/**
+ * 布局分析：展开 include 和 merge 计算子 View 下标路径，ID 重复时回退到 findViewById，检查未声明的 ID
+ */
+public class LayoutHelperTest {
+
+    private static final String INJECTOR = "com/example/MainActivity$$ViewInjector.java";
+    private static final String ANDROID = " xmlns:android=\"http://schemas.android.com/apk/res/android\"";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private ProcessorRunner runner;
+    private File res;
+
+    @Before
+    public void setUp() throws IOException {
+        runner = new ProcessorRunner(temp);
+        runner.source("com/example/R.java",
+                "package com.example;\n"
+                        + "public final class R {\n"
+                        + "    public static final class id {\n"
+                        + "        public static final int title = 1;\n"
+                        + "        public static final int icon = 2;\n"
+                        + "        public static final int body = 3;\n"
+                        + "        public static final int footer = 4;\n"
+                        + "        public static final int missing = 5;\n"
+                        + "    }\n"
+                        + "    public static final class layout {\n"
+                        + "        public static final int main = 100;\n"
+                        + "    }\n"
+                        + "}\n");
+        runner.source("com/example/MainActivity.java",
+                "package com.example;\n"
+                        + "import android.view.View;\n"
+                        + "import android.widget.ImageView;\n"
+                        + "import android.widget.TextView;\n"
+                        + "import com.margi.annotation.*;\n"
+                        + "@InjectLayout(100)\n"
+                        + "public class MainActivity {\n"
+                        + "    @InjectView(1) TextView title;\n"
+                        + "    @InjectView(2) ImageView icon;\n"
+                        + "    @InjectView(3) View body;\n"
+                        + "    @OnClick(4) void onFooter() {}\n"
+                        + "}\n");
+    }
+
+    @Test
+    public void includeAndMergeAreExpanded() throws IOException {
+        _layout("main", "<LinearLayout" + ANDROID + ">\n"
+                + "    <include layout=\"@layout/header\"/>\n"
+                + "    <FrameLayout android:id=\"@+id/body\"/>\n"
+                + "    <include layout=\"@layout/footer\"/>\n"
+                + "</LinearLayout>\n");
+        _header();
+        _layout("footer", "<merge" + ANDROID + ">\n"
+                + "    <View/>\n"
+                + "    <Button android:id=\"@+id/footer\"/>\n"
+                + "</merge>\n");
+
+        String injector = _run().assertSuccess().source(INJECTOR);
+        // include 的布局是一层子 View，merge 的子 View 直接加入父布局
+        assertTrue(injector, injector.contains(
+                "private static final int[][] VIEW_PATHS = { { 0, 1 }, { 0, 0 }, { 1 }, { 3 } };"));
+        String inject = method(injector, "public void inject(");
+        assertTrue(inject, inject.contains("View root = finder.getLayoutRoot(source, false);"));
+        // title 是事件分发对象的锚点，先取出 View 再转换
+        assertTrue(inject, inject.contains("view = finder.requireView(source, "
+                + "finder.findViewByPath(source, root, VIEW_PATHS[0], 1), 1, \"field 'title'\");"));
+        assertTrue(inject, inject.contains("view = finder.requireView(source, "
+                + "finder.findViewByPath(source, root, VIEW_PATHS[3], 4), 4, \"method 'onFooter'\");"));
+        assertFalse(inject, inject.contains("findRequiredView("));
+    }
+
+    @Test
+    public void mergeRootStartsFromSource() throws IOException {
+        _layout("main", "<merge" + ANDROID + ">\n"
+                + "    <include layout=\"@layout/header\"/>\n"
+                + "    <FrameLayout android:id=\"@+id/body\"/>\n"
+                + "    <Button android:id=\"@+id/footer\"/>\n"
+                + "</merge>\n");
+        _header();
+
+        String injector = _run().assertSuccess().source(INJECTOR);
+        assertTrue(injector, injector.contains(
+                "private static final int[][] VIEW_PATHS = { { 0, 1 }, { 0, 0 }, { 1 }, { 2 } };"));
+        assertTrue(injector, method(injector, "public void inject(").contains(
+                "View root = finder.getLayoutRoot(source, true);"));
+    }
+
+    @Test
+    public void duplicateIdFallsBackToFindViewById() throws IOException {
+        // header 中已经有 title，再声明一次时 findViewById 取先序遍历中的第一个，路径无法确定
+        _layout("main", "<LinearLayout" + ANDROID + ">\n"
+                + "    <include layout=\"@layout/header\"/>\n"
+                + "    <FrameLayout android:id=\"@+id/body\">\n"
+                + "        <TextView android:id=\"@+id/title\"/>\n"
+                + "    </FrameLayout>\n"
+                + "    <Button android:id=\"@+id/footer\"/>\n"
+                + "</LinearLayout>\n");
+        _header();
+
+        ProcessorRunner.Result result = _run().assertSuccess();
+        String injector = result.source(INJECTOR);
+        assertTrue(injector, injector.contains(
+                "private static final int[][] VIEW_PATHS = { { 0, 0 }, { 1 }, { 2 } };"));
+        String inject = method(injector, "public void inject(");
+        assertTrue(inject, inject.contains("view = finder.findRequiredView(source, 1, \"field 'title'\");"));
+        assertTrue(inject, inject.contains("target.icon = finder.requireView(source, "
+                + "finder.findViewByPath(source, root, VIEW_PATHS[0], 2), 2, \"field 'icon'\");"));
+        assertFalse(result.messages(Diagnostic.Kind.WARNING), result.messages(Diagnostic.Kind.WARNING)
+                .contains("not declared"));
+    }
+
+    @Test
+    public void undeclaredIdIsWarned() throws IOException {
+        _layout("main", "<LinearLayout" + ANDROID + ">\n"
+                + "    <include layout=\"@layout/header\"/>\n"
+                + "    <FrameLayout android:id=\"@+id/body\"/>\n"
+                + "</LinearLayout>\n");
+        _header();
+
+        ProcessorRunner.Result result = _run().assertSuccess();
+        String warnings = result.messages(Diagnostic.Kind.WARNING);
+        assertTrue(warnings, warnings.contains("R.id.footer bound by onFooter is not declared in layout main."));
+        // 未声明的 ID 仍然按 findViewById 查找
+        assertTrue(result.source(INJECTOR), method(result.source(INJECTOR), "public void inject(").contains(
+                "view = finder.findRequiredView(source, 4, \"method 'onFooter'\");"));
+    }
+
+    @Test
+    public void unresolvedIncludeSuppressesUndeclaredWarning() throws IOException {
+        // footer 可能在找不到的 library 布局中
+        _layout("main", "<LinearLayout" + ANDROID + ">\n"
+                + "    <include layout=\"@layout/header\"/>\n"
+                + "    <FrameLayout android:id=\"@+id/body\"/>\n"
+                + "    <include layout=\"@layout/library_footer\"/>\n"
+                + "</LinearLayout>\n");
+        _header();
+
+        ProcessorRunner.Result result = _run().assertSuccess();
+        String warnings = result.messages(Diagnostic.Kind.WARNING);
+        assertFalse(warnings, warnings.contains("not declared"));
+        String inject = method(result.source(INJECTOR), "public void inject(");
+        assertTrue(inject, inject.contains("view = finder.findRequiredView(source, 4, \"method 'onFooter'\");"));
+        // 无法解析的 include 之前的 View 仍然可以直接定位
+        assertTrue(inject, inject.contains("finder.findViewByPath(source, root, VIEW_PATHS[2], 3)"));
+    }
+
+    private ProcessorRunner.Result _run() throws IOException {
+        return runner.run("-Aviewinject.resDirs=" + res);
+    }
+
+    /**
+     * res/layout/header.xml：icon 和 title
+     */
+    private void _header() throws IOException {
+        _layout("header", "<LinearLayout" + ANDROID + ">\n"
+                + "    <ImageView android:id=\"@+id/icon\"/>\n"
+                + "    <TextView android:id=\"@+id/title\"/>\n"
+                + "</LinearLayout>\n");
+    }
+
+    private void _layout(String name, String content) throws IOException {
+        File layout = runner.file("res/layout/" + name + ".xml", content);
+        res = layout.getParentFile().getParentFile();
+    }
+}
@@ -0,0 +1,85 @@
+package com.margi.compile;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+import javax.tools.Diagnostic;
+
+import static com.margi.compile.ProcessorRunner.method;
+import static org.junit.Assert.*;
+
+/**
+ * 延迟绑定：LazyView 字段的类型检查以及生成的 LazyView
+ */
+public class LazyBindingTest {
+
+    private static final String INJECTOR = "com/example/DetailActivity$$ViewInjector.java";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private ProcessorRunner runner;
+
+    @Before
+    public void setUp() throws IOException {
+        runner = new ProcessorRunner(temp);
+    }
+
+    @Test
+    public void generatesLazyView() throws IOException {
+        _activity("@InjectView(value = 1, lazy = true) LazyView<TextView> title;");
+
+        String inject = method(runner.run().assertSuccess().source(INJECTOR), "public void inject(");
+        assertTrue(inject, inject.contains("target.title = new LazyView<>(finder, source, 1, \"field 'title'\");"));
+        assertFalse(inject, inject.contains("findRequiredView("));
+    }
+
+    @Test
+    public void wildcardTypeArgumentIsAccepted() throws IOException {
+        // 与类型错误提示中的写法一致
+        _activity("@InjectView(value = 1, lazy = true) LazyView<? extends TextView> title;\n"
+                + "    @InjectView(value = 2, lazy = true) LazyView<? extends View> icon;");
+
+        String inject = method(runner.run().assertSuccess().source(INJECTOR), "public void inject(");
+        assertTrue(inject, inject.contains("target.title = new LazyView<>(finder, source, 1, \"field 'title'\");"));
+        assertTrue(inject, inject.contains("target.icon = new LazyView<>(finder, source, 2, \"field 'icon'\");"));
+    }
+
+    @Test
+    public void unboundedWildcardIsAnError() throws IOException {
+        _activity("@InjectView(value = 1, lazy = true) LazyView<?> title;");
+
+        ProcessorRunner.Result result = runner.run();
+        assertFalse(result.success);
+        String errors = result.messages(Diagnostic.Kind.ERROR);
+        assertTrue(errors, errors.contains("@InjectView(lazy = true) fields must be of type "
+                + "com.margi.core.LazyView<? extends View>. (com.example.DetailActivity.title)"));
+    }
+
+    @Test
+    public void typeArgumentMustBeView() throws IOException {
+        _activity("@InjectView(value = 1, lazy = true) LazyView<? extends Runnable> title;");
+
+        ProcessorRunner.Result result = runner.run();
+        assertFalse(result.success);
+        String errors = result.messages(Diagnostic.Kind.ERROR);
+        assertTrue(errors, errors.contains("@InjectView fields must extend from View or be an interface. "
+                + "(com.example.DetailActivity.title)"));
+    }
+
+    private void _activity(String fields) throws IOException {
+        runner.source("com/example/DetailActivity.java",
+                "package com.example;\n"
+                        + "import android.view.View;\n"
+                        + "import android.widget.TextView;\n"
+                        + "import com.margi.annotation.*;\n"
+                        + "import com.margi.core.LazyView;\n"
+                        + "public class DetailActivity {\n"
+                        + "    " + fields + "\n"
+                        + "}\n");
+    }
+}
@@ -0,0 +1,161 @@
+package com.margi.compile;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+import javax.tools.Diagnostic;
+
+import static com.margi.compile.ProcessorRunner.count;
+import static com.margi.compile.ProcessorRunner.method;
+import static org.junit.Assert.*;
+
+/**
+ * 生成的事件分发类：按 ID 分发、分发对象挂在锚点 View 上重复注入时复用、解绑时移除所有监听
+ */
+public class ListenerDispatcherTest {
+
+    private static final String INJECTOR = "com/example/ListActivity$$ViewInjector.java";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private ProcessorRunner runner;
+
+    @Before
+    public void setUp() throws IOException {
+        runner = new ProcessorRunner(temp);
+        runner.source("com/example/ListActivity.java",
+                "package com.example;\n"
+                        + "import android.view.View;\n"
+                        + "import android.widget.TextView;\n"
+                        + "import com.margi.annotation.*;\n"
+                        + "public class ListActivity {\n"
+                        + "    @InjectView(2) TextView title;\n"
+                        + "    @OnClick({2, 3}) void onItem(View view) {}\n"
+                        + "    @OnClick(4) void onMore() {}\n"
+                        + "    @OnLongClick(2) boolean onHold() { return true; }\n"
+                        + "}\n");
+    }
+
+    @Test
+    public void dispatcherSwitchesOnViewId() throws IOException {
+        String dispatcher = method(runner.run().assertSuccess().source(INJECTOR),
+                "private static final class ListenerDispatcher");
+
+        assertTrue(dispatcher, dispatcher.contains(
+                "extends ListenerBinding<ListActivity> implements View.OnClickListener, View.OnLongClickListener"));
+        String onClick = method(dispatcher, "public void onClick(View view)");
+        // 同一个方法绑定的多个 ID 合并为一组 case
+        assertTrue(onClick, onClick.contains("switch (view.getId()) {\n"
+                + "        case 2:\n"
+                + "        case 3:\n"
+                + "          target.onItem(view);\n"
+                + "          break;\n"
+                + "        case 4:\n"
+                + "          target.onMore();\n"
+                + "          break;\n"));
+        String onLongClick = method(dispatcher, "public boolean onLongClick(View view)");
+        assertTrue(onLongClick, onLongClick.contains("case 2:\n          return target.onHold();\n"));
+        assertTrue(onLongClick, onLongClick.contains("default:\n          return false;\n"));
+    }
+
+    @Test
+    public void narrowedParameterIsCheckedWithMethodName() throws IOException {
+        runner.source("com/example/SearchActivity.java",
+                "package com.example;\n"
+                        + "import android.widget.TextView;\n"
+                        + "import com.margi.annotation.OnClick;\n"
+                        + "public class SearchActivity {\n"
+                        + "    @OnClick(5) void onLabel(TextView label) {}\n"
+                        + "}\n");
+
+        String onClick = method(runner.run().assertSuccess().source("com/example/SearchActivity$$ViewInjector.java"),
+                "public void onClick(View view)");
+        assertTrue(onClick, onClick.contains("target.onLabel(castParam(view, TextView.class, \"onLabel\"));"));
+        assertFalse(onClick, onClick.contains("(TextView) view"));
+    }
+
+    @Test
+    public void injectAllocatesOneDispatcherForAllListeners() throws IOException {
+        String inject = method(runner.run().assertSuccess().source(INJECTOR), "public void inject(");
+
+        assertEquals(inject, 1, count(inject, "new "));
+        // 锚点是同时绑定了字段和事件的 ID 2，在设置任何监听之前取出或创建分发对象
+        assertTrue(inject, inject.contains("target.title = finder.castView(view, 2, \"field 'title'\");\n"
+                + "    ListenerDispatcher dispatcher = ListenerBinding.reuse(view, ListenerDispatcher.class, target);\n"
+                + "    if (dispatcher == null) {\n"
+                + "      dispatcher = new ListenerDispatcher(target);\n"
+                + "      ListenerBinding.attach(view, dispatcher);\n"
+                + "    }\n"
+                + "    view.setOnClickListener(dispatcher);"));
+        // 每个设置了监听的 View 都记录在分发对象中，包括没有绑定字段的 ID 3 和 4
+        assertEquals(inject, 3, count(inject, "view.setOnClickListener(dispatcher);"));
+        assertEquals(inject, 1, count(inject, "view.setOnLongClickListener(dispatcher);"));
+        assertTrue(inject, inject.contains("dispatcher.view0 = view;"));
+        assertTrue(inject, inject.contains("dispatcher.view1 = view;"));
+        assertTrue(inject, inject.contains("dispatcher.view2 = view;"));
+        assertFalse(inject, inject.contains("register("));
+    }
+
+    @Test
+    public void unbindRemovesListenersFromEveryView() throws IOException {
+        String injector = runner.run().assertSuccess().source(INJECTOR);
+
+        String unbind = method(injector, "public void unbind(");
+        assertTrue(unbind, unbind.contains("ListenerBinding.unbind(target, target.title, ListenerDispatcher.class);\n"
+                + "    target.title = null;"));
+        String removeListeners = method(injector, "protected void removeListeners()");
+        assertEquals(removeListeners, "protected void removeListeners() {\n"
+                + "      view0.setOnClickListener(null);\n"
+                + "      view0.setOnLongClickListener(null);\n"
+                + "      view0 = null;\n"
+                + "      view1.setOnClickListener(null);\n"
+                + "      view1 = null;\n"
+                + "      view2.setOnClickListener(null);\n"
+                + "      view2 = null;\n"
+                + "    }", removeListeners);
+    }
+
+    @Test
+    public void childKeepsItsOwnDispatcherForOtherIds() throws IOException {
+        runner.source("com/example/SearchActivity.java",
+                "package com.example;\n"
+                        + "import com.margi.annotation.OnClick;\n"
+                        + "public class SearchActivity extends ListActivity {\n"
+                        + "    @OnClick(5) void onSearch() {}\n"
+                        + "}\n");
+
+        String child = runner.run().assertSuccess().source("com/example/SearchActivity$$ViewInjector.java");
+        assertTrue(child, child.contains("extends ListActivity$$ViewInjector<T>"));
+        assertTrue(child, child.contains("case 5:\n          target.onSearch();"));
+        assertFalse(child, child.contains("case 2:"));
+        // 子类没有 View 字段，分发对象挂在自己设置了监听的 View 上；父类的分发对象由父类的 unbind 解除
+        assertTrue(child, child.contains("ListenerDispatcher dispatcher = ListenerBinding.reuse(view, "
+                + "ListenerDispatcher.class, target);"));
+        assertFalse(child, child.contains("ListenerBinding.unbind("));
+    }
+
+    @Test
+    public void childBindingParentIdIsAnError() throws IOException {
+        runner.source("com/example/SearchActivity.java",
+                "package com.example;\n"
+                        + "import com.margi.annotation.*;\n"
+                        + "public class SearchActivity extends ListActivity {\n"
+                        + "    @OnClick(3) void onResult() {}\n"
+                        + "    @OnLongClick(3) boolean onResultHold() { return true; }\n"
+                        + "}\n");
+
+        ProcessorRunner.Result result = runner.run();
+        assertFalse(result.success);
+        // 子类的分发对象会替换父类在同一个 View 上设置的监听，父类的方法不会再被调用
+        String errors = result.messages(Diagnostic.Kind.ERROR);
+        assertTrue(errors, errors.contains("method 'onResult' for ID 3 replaces method 'onItem' declared in parent "
+                + "com.example.ListActivity. Override 'onItem' instead of binding the ID again."));
+        // 不同类型的事件互不影响
+        assertFalse(errors, errors.contains("onResultHold"));
+    }
+}
@@ -0,0 +1,259 @@
+package com.margi.compile;
+
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import static org.junit.Assert.*;
+
+/**
+ * 在临时目录中只运行处理器（-proc:only），收集生成的源码和诊断信息；{@link #compile} 连同生成的源码一起编译。
+ * 被注解的类引用的 android 类型用最小的替身，和源码一起交给 javac
+ */
+final class ProcessorRunner {
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File root;
+    private final File sources;
+    private final List<String> paths = new ArrayList<>();
+
+    ProcessorRunner(TemporaryFolder temp) throws IOException {
+        root = temp.newFolder();
+        sources = new File(root, "src");
+        source("android/view/View.java",
+                "package android.view;\n"
+                        + "public class View {\n"
+                        + "    public interface OnClickListener { void onClick(View view); }\n"
+                        + "    public interface OnLongClickListener { boolean onLongClick(View view); }\n"
+                        + "    public int getId() { return 0; }\n"
+                        + "    public void setOnClickListener(OnClickListener listener) {}\n"
+                        + "    public void setOnLongClickListener(OnLongClickListener listener) {}\n"
+                        + "}\n");
+        source("android/view/ViewGroup.java",
+                "package android.view;\n"
+                        + "public class ViewGroup extends View {}\n");
+        source("android/view/ViewStub.java",
+                "package android.view;\n"
+                        + "public final class ViewStub extends View {}\n");
+        source("android/widget/TextView.java",
+                "package android.widget;\n"
+                        + "public class TextView extends android.view.View {}\n");
+        source("android/widget/ImageView.java",
+                "package android.widget;\n"
+                        + "public class ImageView extends android.view.View {}\n");
+        source("android/content/Context.java",
+                "package android.content;\n"
+                        + "public class Context {}\n");
+        // 生成代码引用的 core-lib 类型，core-lib 是 Android 库，这里用签名一致的替身
+        source("com/margi/core/Finder.java",
+                "package com.margi.core;\n"
+                        + "import android.view.View;\n"
+                        + "public enum Finder {\n"
+                        + "    VIEW;\n"
+                        + "    public View findOptionalView(Object source, int id) { return null; }\n"
+                        + "    public <T> T findRequiredView(Object source, int id, String who) { return null; }\n"
+                        + "    public View[] findViews(Object source, int[] ids) { return null; }\n"
+                        + "    public View[] findRequiredViews(Object source, int[] ids, String names,"
+                        + " boolean singlePass) { return null; }\n"
+                        + "    public <T> T requireView(Object source, View view, int id, String who) { return null; }\n"
+                        + "    public View findViewByPath(Object source, View root, int[] path, int id) { return null; }\n"
+                        + "    public <T> T castView(View view, int id, String who) { return null; }\n"
+                        + "    public View getLayoutRoot(Object source, boolean merge) { return null; }\n"
+                        + "    public android.content.Context getContext(Object source) { return null; }\n"
+                        + "}\n");
+        source("com/margi/core/ViewInjector.java",
+                "package com.margi.core;\n"
+                        + "public interface ViewInjector<T> {\n"
+                        + "    void inject(Finder finder, T target, Object source);\n"
+                        + "    void unbind(T target);\n"
+                        + "}\n");
+        source("com/margi/core/InjectorRegistry.java",
+                "package com.margi.core;\n"
+                        + "public interface InjectorRegistry {\n"
+                        + "    ViewInjector<Object> findInjector(Class<?> cls);\n"
+                        + "    interface Preloadable extends InjectorRegistry {\n"
+                        + "        String[] getTargetNames();\n"
+                        + "    }\n"
+                        + "    interface Authoritative extends InjectorRegistry {\n"
+                        + "        boolean ownsPackage(String packageName);\n"
+                        + "    }\n"
+                        + "}\n");
+        source("com/margi/core/ListenerBinding.java",
+                "package com.margi.core;\n"
+                        + "public abstract class ListenerBinding<T> {\n"
+                        + "    protected T target;\n"
+                        + "    protected ListenerBinding(T target) { this.target = target; }\n"
+                        + "    protected abstract void removeListeners();\n"
+                        + "    protected static <V> V castParam(android.view.View view, Class<V> type, String method)"
+                        + " { return null; }\n"
+                        + "    public static <T, B extends ListenerBinding<T>> B reuse(android.view.View anchor,"
+                        + " Class<B> type, T target) { return null; }\n"
+                        + "    public static void attach(android.view.View anchor, ListenerBinding<?> binding) {}\n"
+                        + "    public static void unbind(Object target, Object anchor,"
+                        + " Class<? extends ListenerBinding<?>> type) {}\n"
+                        + "}\n");
+        source("com/margi/core/LazyView.java",
+                "package com.margi.core;\n"
+                        + "public final class LazyView<T> {\n"
+                        + "    public LazyView(Finder finder, Object source, int id, String who) {}\n"
+                        + "    public LazyView(Finder finder, Object source, int id, int stubId, String who) {}\n"
+                        + "}\n");
+        source("com/margi/core/Utils.java",
+                "package com.margi.core;\n"
+                        + "public final class Utils {\n"
+                        + "    @SafeVarargs\n"
+                        + "    public static <T> java.util.List<T> listOf(T... views) { return null; }\n"
+                        + "}\n");
+    }
+
+    /**
+     * 写入一个参与编译的源文件
+     */
+    ProcessorRunner source(String path, String content) throws IOException {
+        _write(new File(sources, path), content);
+        paths.add(path);
+        return this;
+    }
+
+    /**
+     * 写入不参与编译的文件，例如 res 目录下的布局
+     *
+     * @return 写入的文件
+     */
+    File file(String path, String content) throws IOException {
+        File file = new File(root, path);
+        _write(file, content);
+        return file;
+    }
+
+    /**
+     * 处理所有源文件，每次调用使用新的输出目录
+     *
+     * @param options 处理器参数，例：-Aviewinject.compact=true
+     */
+    Result run(String... options) throws IOException {
+        return _run(null, options);
+    }
+
+    /**
+     * 处理并编译所有源文件，包括生成的注入器和注册表，检查生成的代码能够通过编译
+     *
+     * @return {@link Result#classes} 为 class 文件的输出目录
+     */
+    Result compile(String... options) throws IOException {
+        return _run(Files.createTempDirectory(root.toPath(), "classes").toFile(), options);
+    }
+
+    /**
+     * @param classes class 文件的输出目录，为 null 时只运行处理器
+     */
+    private Result _run(File classes, String... options) throws IOException {
+        File generated = Files.createTempDirectory(root.toPath(), "generated").toFile();
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        List<String> arguments = new ArrayList<>(Arrays.asList(options));
+        if (classes == null) {
+            arguments.add("-proc:only");
+        } else {
+            arguments.addAll(Arrays.asList("-d", classes.getPath()));
+        }
+        arguments.addAll(Arrays.asList("-processor", InjectorProcessor.class.getName(),
+                "-s", generated.getPath(), "-classpath", System.getProperty("java.class.path")));
+        List<File> files = new ArrayList<>();
+        for (String path : paths) {
+            files.add(new File(sources, path));
+        }
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, UTF_8)) {
+            boolean success = compiler.getTask(null, fileManager, diagnostics, arguments, null,
+                    fileManager.getJavaFileObjectsFromFiles(files)).call();
+            return new Result(success, diagnostics.getDiagnostics(), generated, classes);
+        }
+    }
+
+    private static void _write(File file, String content) throws IOException {
+        assertTrue(file.getParentFile().isDirectory() || file.getParentFile().mkdirs());
+        Files.write(file.toPath(), content.getBytes(UTF_8));
+    }
+
+    static final class Result {
+        final boolean success;
+        final List<Diagnostic<? extends JavaFileObject>> diagnostics;
+        final File generated;
+        final File classes;
+
+        Result(boolean success, List<Diagnostic<? extends JavaFileObject>> diagnostics, File generated,
+               File classes) {
+            this.success = success;
+            this.diagnostics = diagnostics;
+            this.generated = generated;
+            this.classes = classes;
+        }
+
+        /**
+         * @param path 生成文件相对输出目录的路径，例：com/example/MainActivity$$ViewInjector.java
+         */
+        String source(String path) throws IOException {
+            File file = new File(generated, path);
+            assertTrue(path + " was not generated; " + messages(Diagnostic.Kind.ERROR), file.isFile());
+            return new String(Files.readAllBytes(file.toPath()), UTF_8);
+        }
+
+        /**
+         * @return 指定级别的诊断信息，每条一行
+         */
+        String messages(Diagnostic.Kind kind) {
+            StringBuilder messages = new StringBuilder();
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics) {
+                if (diagnostic.getKind() == kind) {
+                    messages.append(diagnostic.getMessage(Locale.US)).append('\n');
+                }
+            }
+            return messages.toString();
+        }
+
+        /**
+         * 断言处理成功，失败时带上错误信息
+         */
+        Result assertSuccess() {
+            assertTrue(messages(Diagnostic.Kind.ERROR), success);
+            return this;
+        }
+    }
+
+    /**
+     * @return 生成代码中一个方法或类的文本，从签名到与它缩进相同的右括号（包括右括号）
+     */
+    static String method(String source, String signature) {
+        int start = source.indexOf(signature);
+        assertTrue(signature + " not found in\n" + source, start >= 0);
+        String indent = source.substring(source.lastIndexOf('\n', start) + 1, start);
+        int end = source.indexOf("\n" + indent + "}\n", start);
+        return source.substring(start, end + indent.length() + 2);
+    }
+
+    /**
+     * @return text 中 fragment 出现的次数
+     */
+    static int count(String text, String fragment) {
+        int count = 0;
+        for (int i = text.indexOf(fragment); i >= 0; i = text.indexOf(fragment, i + fragment.length())) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,163 @@
+package com.margi.compile;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.tools.Diagnostic;
+
+import static com.margi.compile.ProcessorRunner.method;
+import static org.junit.Assert.*;
+
+/**
+ * ViewStub 中的 View：字段检查、布局中 ViewStub 的检查以及生成的 LazyView
+ */
+public class StubBindingTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private ProcessorRunner runner;
+
+    @Before
+    public void setUp() throws IOException {
+        runner = new ProcessorRunner(temp);
+        runner.source("com/example/R.java",
+                "package com.example;\n"
+                        + "public final class R {\n"
+                        + "    public static final class id {\n"
+                        + "        public static final int title = 1;\n"
+                        + "        public static final int details = 3;\n"
+                        + "        public static final int details_stub = 4;\n"
+                        + "        public static final int missing_stub = 5;\n"
+                        + "    }\n"
+                        + "    public static final class layout {\n"
+                        + "        public static final int detail = 100;\n"
+                        + "    }\n"
+                        + "}\n");
+    }
+
+    @Test
+    public void generatesLazyViewWithStubId() throws IOException {
+        _activity("@InjectView(value = 3, stub = 4) LazyView<TextView> details;");
+
+        String injector = runner.run().assertSuccess().source("com/example/DetailActivity$$ViewInjector.java");
+        String inject = method(injector, "public void inject(");
+        assertTrue(inject, inject.contains(
+                "target.details = new LazyView<>(finder, source, 3, 4, \"field 'details'\");"));
+        // 注入时不查找 ViewStub 和其中的 View
+        assertFalse(inject, inject.contains("findRequiredView(source, 3,"));
+        assertFalse(inject, inject.contains("findRequiredView(source, 4,"));
+        assertTrue(injector, method(injector, "public void unbind(").contains("target.details = null;"));
+    }
+
+    @Test
+    public void wildcardTypeArgumentIsAccepted() throws IOException {
+        _activity("@InjectView(value = 3, stub = 4) LazyView<? extends View> details;");
+
+        String inject = method(runner.run().assertSuccess().source("com/example/DetailActivity$$ViewInjector.java"),
+                "public void inject(");
+        assertTrue(inject, inject.contains(
+                "target.details = new LazyView<>(finder, source, 3, 4, \"field 'details'\");"));
+    }
+
+    @Test
+    public void stubFieldMustBeLazyView() throws IOException {
+        _activity("@InjectView(value = 3, stub = 4) TextView details;");
+
+        ProcessorRunner.Result result = runner.run();
+        assertFalse(result.success);
+        String errors = result.messages(Diagnostic.Kind.ERROR);
+        assertTrue(errors, errors.contains("@InjectView(stub = ...) fields must be of type "
+                + "com.margi.core.LazyView<? extends View>. (com.example.DetailActivity.details)"));
+    }
+
+    @Test
+    public void stubIdMustDifferFromViewId() throws IOException {
+        _activity("@InjectView(value = 3, stub = 3) LazyView<TextView> details;");
+
+        ProcessorRunner.Result result = runner.run();
+        assertFalse(result.success);
+        String errors = result.messages(Diagnostic.Kind.ERROR);
+        assertTrue(errors, errors.contains("@InjectView stub ID must differ from the view ID 3. "
+                + "(com.example.DetailActivity.details)"));
+    }
+
+    @Test
+    public void stubIsNotSupportedForCollections() throws IOException {
+        _activity("@InjectView(value = {1, 3}, stub = 4) View[] views;");
+
+        ProcessorRunner.Result result = runner.run();
+        assertFalse(result.success);
+        String errors = result.messages(Diagnostic.Kind.ERROR);
+        assertTrue(errors, errors.contains("@InjectView(stub = ...) is not supported for List or array fields. "
+                + "(com.example.DetailActivity.views)"));
+    }
+
+    @Test
+    public void layoutChecksOnlyTheStub() throws IOException {
+        _activity("@InjectView(value = 3, stub = 4) LazyView<TextView> details;");
+        File res = _layout("<ViewStub android:id=\"@+id/details_stub\" android:inflatedId=\"@+id/inflated\""
+                + " android:layout=\"@layout/details\"/>");
+
+        ProcessorRunner.Result result = runner.run("-Aviewinject.resDirs=" + res).assertSuccess();
+        // details 在 ViewStub 的布局中，不在当前布局里，不应警告
+        String warnings = result.messages(Diagnostic.Kind.WARNING);
+        assertFalse(warnings, warnings.contains("not declared"));
+    }
+
+    @Test
+    public void stubIdOfAnotherViewTypeIsAnError() throws IOException {
+        _activity("@InjectView(value = 3, stub = 4) LazyView<TextView> details;");
+        File res = _layout("<TextView android:id=\"@+id/details_stub\"/>");
+
+        ProcessorRunner.Result result = runner.run("-Aviewinject.resDirs=" + res);
+        assertFalse(result.success);
+        String errors = result.messages(Diagnostic.Kind.ERROR);
+        assertTrue(errors, errors.contains("R.id.details_stub in layout detail is a android.widget.TextView, "
+                + "which cannot be assigned to details of type android.view.ViewStub."));
+    }
+
+    @Test
+    public void undeclaredStubIsWarned() throws IOException {
+        _activity("@InjectView(value = 3, stub = 5) LazyView<TextView> details;");
+        File res = _layout("<ViewStub android:id=\"@+id/details_stub\"/>");
+
+        ProcessorRunner.Result result = runner.run("-Aviewinject.resDirs=" + res).assertSuccess();
+        String warnings = result.messages(Diagnostic.Kind.WARNING);
+        assertTrue(warnings, warnings.contains(
+                "R.id.missing_stub bound by details is not declared in layout detail."));
+    }
+
+    private void _activity(String field) throws IOException {
+        runner.source("com/example/DetailActivity.java",
+                "package com.example;\n"
+                        + "import android.view.View;\n"
+                        + "import android.widget.TextView;\n"
+                        + "import com.margi.annotation.*;\n"
+                        + "import com.margi.core.LazyView;\n"
+                        + "@InjectLayout(100)\n"
+                        + "public class DetailActivity {\n"
+                        + "    @InjectView(1) View title;\n"
+                        + "    " + field + "\n"
+                        + "}\n");
+    }
+
+    /**
+     * 写入 res/layout/detail.xml，根节点为包含 title 的 LinearLayout
+     *
+     * @return res 目录
+     */
+    private File _layout(String stub) throws IOException {
+        File layout = runner.file("res/layout/detail.xml",
+                "<LinearLayout xmlns:android=\"http://schemas.android.com/apk/res/android\">\n"
+                        + "    <TextView android:id=\"@+id/title\"/>\n"
+                        + "    " + stub + "\n"
+                        + "</LinearLayout>\n");
+        return layout.getParentFile().getParentFile();
+    }
+}
@@ -0,0 +1,203 @@
+package com.margi.core;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.LayoutRes;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Created by allen on 10/18/16.
+ *
+ * 在后台线程 inflate 布局并注入，完成后在主线程回调，把重页面的 inflate 和注入移出主线程的关键帧。
+ * 注入使用 Finder.VIEW 在 inflate 得到的布局中查找，Activity 在回调中调用 setContentView(view)。
+ * LayoutInflater 不是线程安全的，后台线程使用在调用线程中 cloneInContext 得到的副本，副本共享原来的 Factory，
+ * Factory 需要是线程安全的；后台执行失败时（例如布局中的 View 需要 Looper）用原来的 LayoutInflater 在主线程重新执行一遍，
+ * 异常与同步调用一致
+ */
+public final class AsyncInjector {
+
+    private AsyncInjector() {
+        throw new AssertionError("No instances.");
+    }
+
+    /**
+     * 注入完成的回调
+     */
+    public interface Callback<T> {
+        /**
+         * 在主线程调用，请求取消后不会再调用
+         *
+         * @param target 已经完成注入的目标对象
+         * @param view   inflate 得到的布局，没有添加到 parent 中
+         */
+        void onInjected(@NonNull T target, @NonNull View view);
+    }
+
+    /**
+     * 在默认的后台线程中 inflate 并注入
+     *
+     * @param inflater 用于 inflate 的 LayoutInflater
+     * @param layoutId 布局
+     * @param parent   用于生成 LayoutParams，不会添加到其中
+     * @param target   注入的目标对象
+     * @param callback 主线程回调
+     * @return 请求句柄，页面销毁时调用 {@link Request#cancel()}
+     */
+    @MainThread
+    public static <T> Request inflate(@NonNull LayoutInflater inflater, @LayoutRes int layoutId,
+                                      @Nullable ViewGroup parent, @NonNull T target, @NonNull Callback<T> callback) {
+        return inflate(WorkerExecutor.INSTANCE, inflater, layoutId, parent, target, callback);
+    }
+
+    /**
+     * 在指定的线程池中 inflate 并注入
+     *
+     * @param executor 执行 inflate 和注入的线程池
+     * @return 请求句柄，页面销毁时调用 {@link Request#cancel()}
+     */
+    @MainThread
+    public static <T> Request inflate(@NonNull Executor executor, @NonNull LayoutInflater inflater,
+                                      @LayoutRes int layoutId, @Nullable ViewGroup parent, @NonNull T target,
+                                      @NonNull Callback<T> callback) {
+        return start(executor, MainThreadExecutor.INSTANCE, inflater, layoutId, parent, target, callback);
+    }
+
+    static <T> Request start(Executor worker, Executor main, LayoutInflater inflater, int layoutId,
+                             ViewGroup parent, T target, Callback<T> callback) {
+        // 在调用线程中复制，后台线程不与主线程共用同一个 LayoutInflater
+        LayoutInflater workerInflater = inflater.cloneInContext(inflater.getContext());
+        Task<T> task = new Task<>(main, inflater, workerInflater, layoutId, parent, target, callback);
+        worker.execute(task);
+        return task;
+    }
+
+    /**
+     * 请求句柄
+     */
+    public static abstract class Request {
+        volatile boolean canceled;
+
+        Request() {
+        }
+
+        /**
+         * 取消请求，之后不会再回调，并且尽快释放目标对象。只能在主线程调用
+         */
+        @MainThread
+        public abstract void cancel();
+
+        public boolean isCanceled() {
+            return canceled;
+        }
+    }
+
+    /**
+     * 后台执行 inflate 和注入，结果交给主线程。
+     * callback 只在主线程读写；其余字段在构造时写入，之后只由当前持有任务的线程释放
+     */
+    private static final class Task<T> extends Request implements Runnable {
+        private final Executor main;
+        private final int layoutId;
+        private LayoutInflater inflater;
+        private LayoutInflater workerInflater;
+        private ViewGroup parent;
+        private T target;
+        private Callback<T> callback;
+
+        Task(Executor main, LayoutInflater inflater, LayoutInflater workerInflater, int layoutId, ViewGroup parent,
+             T target, Callback<T> callback) {
+            this.main = main;
+            this.inflater = inflater;
+            this.workerInflater = workerInflater;
+            this.layoutId = layoutId;
+            this.parent = parent;
+            this.target = target;
+            this.callback = callback;
+        }
+
+        @Override
+        public void cancel() {
+            canceled = true;
+            callback = null;
+        }
+
+        @Override
+        public void run() {
+            if (canceled) {
+                release();
+                return;
+            }
+            View view = null;
+            boolean injected = false;
+            try {
+                view = workerInflater.inflate(layoutId, parent, false);
+                if (!canceled) {
+                    Injector.inject(target, view);
+                    injected = true;
+                }
+            } catch (RuntimeException e) {
+                // 交给主线程重新执行
+                view = null;
+            }
+            final View result = view;
+            final boolean done = injected;
+            main.execute(new Runnable() {
+                @Override
+                public void run() {
+                    deliver(result, done);
+                }
+            });
+        }
+
+        /**
+         * 主线程：未完成时同步重试，然后回调
+         */
+        private void deliver(View view, boolean injected) {
+            if (canceled) {
+                release();
+                return;
+            }
+            if (!injected) {
+                view = inflater.inflate(layoutId, parent, false);
+                Injector.inject(target, view);
+            }
+            Callback<T> callback = this.callback;
+            T target = this.target;
+            release();
+            callback.onInjected(target, view);
+        }
+
+        private void release() {
+            inflater = null;
+            workerInflater = null;
+            parent = null;
+            target = null;
+            callback = null;
+        }
+    }
+
+    /**
+     * 默认的后台线程，与主线程相同的优先级，inflate 的结果决定页面何时能显示
+     */
+    private static final class WorkerExecutor {
+        static final Executor INSTANCE = BackgroundExecutor.create("ViewInject-inflate", Thread.NORM_PRIORITY);
+    }
+
+    private static final class MainThreadExecutor {
+        static final Executor INSTANCE = new Executor() {
+            private final Handler handler = new Handler(Looper.getMainLooper());
+
+            @Override
+            public void execute(@NonNull Runnable command) {
+                handler.post(command);
+            }
+        };
+    }
+}
@@ -0,0 +1,39 @@
+package com.margi.core;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by allen on 10/18/16.
+ * 库内部使用的后台线程池：最多一个守护线程，空闲后自动退出，不在应用中常驻线程
+ */
+final class BackgroundExecutor {
+
+    private BackgroundExecutor() {
+        throw new AssertionError("No instances.");
+    }
+
+    /**
+     * @param name     线程名，便于在 systrace 和 ANR 日志中识别
+     * @param priority Java 线程优先级，Android 上会映射为对应的 nice 值
+     */
+    static Executor create(final String name, final int priority) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull Runnable runnable) {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                thread.setPriority(priority);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -8,6 +8,9 @@ import android.app.Activity;
 import android.app.Dialog;
 import android.content.Context;
 import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.Arrays;
 
 @SuppressWarnings("UnusedDeclaration") // Used by generated code.
 public enum Finder {
@@ -20,6 +23,15 @@ public enum Finder {
             return ((View) source).getContext();
         }
 
+        @Override public View getRootView(Object source) {
+            return (View) source;
+        }
+
+        @Override public View getLayoutRoot(Object source, boolean merge) {
+            // 布局直接 inflate 成 source，或者以 merge 方式添加到 source 中
+            return (View) source;
+        }
+
         @Override protected String getResourceEntryName(Object source, int id) {
             final View view = (View) source;
             // In edit mode, getResourceEntryName() is unsupported due to use of BridgeResources
@@ -37,6 +49,10 @@ public enum Finder {
         @Override public Context getContext(Object source) {
             return (Activity) source;
         }
+
+        @Override public View getRootView(Object source) {
+            return ((Activity) source).getWindow().getDecorView();
+        }
     },
     DIALOG {
         @Override public View findOptionalView(Object source, int id) {
@@ -46,11 +62,54 @@ public enum Finder {
         @Override public Context getContext(Object source) {
             return ((Dialog) source).getContext();
         }
+
+        @Override public View getRootView(Object source) {
+            return ((Dialog) source).getWindow().getDecorView();
+        }
+    },
+    /** source 为 LookupSession，查找结果在会话内的多个目标之间共享 */
+    SESSION {
+        @Override public View findOptionalView(Object source, int id) {
+            return ((LookupSession) source).findOptionalView(id);
+        }
+
+        @Override public Context getContext(Object source) {
+            LookupSession session = (LookupSession) source;
+            return session.finder.getContext(session.source);
+        }
+
+        @Override public View getRootView(Object source) {
+            LookupSession session = (LookupSession) source;
+            return session.finder.getRootView(session.source);
+        }
+
+        @Override public View getLayoutRoot(Object source, boolean merge) {
+            LookupSession session = (LookupSession) source;
+            return session.finder.getLayoutRoot(session.source, merge);
+        }
+
+        @Override protected String getResourceEntryName(Object source, int id) {
+            if (!(source instanceof LookupSession)) {
+                // 类型不符时传入的是找到的 View
+                return VIEW.getResourceEntryName(source, id);
+            }
+            LookupSession session = (LookupSession) source;
+            return session.finder.getResourceEntryName(session.source, id);
+        }
+    };
+
+    /** 开启监控时当前线程累计的查找次数，见 InjectorMonitor.onInject */
+    static final ThreadLocal<int[]> LOOKUPS = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
     };
 
     public abstract View findOptionalView(Object source, int id);
 
     public final <T> T findOptionalViewAsType(Object source, int id, String who, Class<T> cls) {
+        countLookup();
         View view = findOptionalView(source, id);
         try {
             return cls.cast(view);
@@ -67,6 +126,7 @@ public enum Finder {
     }
 
     public <T>  T findRequiredView(Object source, int id, String who) {
+        countLookup();
         View view = findOptionalView(source, id);
         if (view != null) {
             return castView(view,id,who);
@@ -82,6 +142,139 @@ public enum Finder {
                 + " (methods) annotation.");
     }
 
+    /**
+     * 一次遍历 View 树查找所有 ID，每个 ID 取先序遍历中第一个匹配的 View（与 findViewById 一致），全部找到后提前结束
+     *
+     * @param source 查找的根对象
+     * @param ids    升序排列且不重复的 ID
+     * @return 与 ids 一一对应的 View，未找到的位置为 null
+     */
+    public final View[] findViews(Object source, int[] ids) {
+        countLookup();
+        if (this == SESSION) {
+            return ((LookupSession) source).findViews(ids);
+        }
+        return collectViews(source, ids);
+    }
+
+    /**
+     * findViews 的遍历部分，不计入查找次数
+     */
+    final View[] collectViews(Object source, int[] ids) {
+        View[] views = new View[ids.length];
+        View root = getRootView(source);
+        if (root != null && ids.length > 0) {
+            collectViews(root, ids, views, ids.length);
+        }
+        return views;
+    }
+
+    /**
+     * 紧凑模式：生成代码只保存 ID 数组和一个合并的名称字符串，查找和检查都在这里循环完成，
+     * 描述只在查找失败时才由名称拼出来
+     *
+     * @param ids        升序排列且不重复的 ID
+     * @param names      与 ids 一一对应、以换行分隔的字段名，只绑定了事件的 ID 为方法名加 "()"
+     * @param singlePass 是否一次遍历 View 树，见 findViews
+     * @return 与 ids 一一对应的 View，都不为 null
+     */
+    public final View[] findRequiredViews(Object source, int[] ids, String names, boolean singlePass) {
+        View[] views;
+        if (singlePass) {
+            views = findViews(source, ids);
+        } else {
+            views = new View[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                countLookup();
+                views[i] = findOptionalView(source, ids[i]);
+            }
+        }
+        for (int i = 0; i < views.length; i++) {
+            if (views[i] == null) {
+                String name = names.split("\n")[i];
+                String who = name.endsWith("()")
+                        ? "method '" + name.substring(0, name.length() - 2) + "'"
+                        : "field '" + name + "'";
+                requireView(source, null, ids[i], who);
+            }
+        }
+        return views;
+    }
+
+    /**
+     * 检查 findViews 的结果，未找到时按 findRequiredView 的方式报错
+     */
+    public final <T> T requireView(Object source, View view, int id, String who) {
+        if (view != null) {
+            return castView(view, id, who);
+        }
+        String name = getResourceEntryName(source, id);
+        throw new IllegalStateException("Required view '"
+                + name
+                + "' with ID "
+                + id
+                + " for "
+                + who
+                + " was not found. If this view is optional add '@Nullable' (fields) or '@Optional'"
+                + " (methods) annotation.");
+    }
+
+    /**
+     * 按编译时从布局文件计算的子 View 下标直接定位，层级与布局不一致或 ID 不符时回退到 findViewById
+     *
+     * @param root 布局根节点，见 getLayoutRoot
+     * @param path 从 root 开始每一层的子 View 下标
+     * @return 找到的 View，不存在时为 null
+     */
+    public final View findViewByPath(Object source, View root, int[] path, int id) {
+        countLookup();
+        View view = root;
+        for (int i = 0; i < path.length && view != null; i++) {
+            if (!(view instanceof ViewGroup)) {
+                view = null;
+                break;
+            }
+            ViewGroup group = (ViewGroup) view;
+            view = path[i] < group.getChildCount() ? group.getChildAt(path[i]) : null;
+        }
+        if (view != null && view.getId() == id) {
+            return view;
+        }
+        return findOptionalView(source, id);
+    }
+
+    /**
+     * 未开启监控时只有一次 volatile 读取
+     */
+    private static void countLookup() {
+        if (Injector.monitor != null) {
+            LOOKUPS.get()[0]++;
+        }
+    }
+
+    /**
+     * @return 剩余未找到的 ID 数量
+     */
+    private static int collectViews(View view, int[] ids, View[] views, int remaining) {
+        int id = view.getId();
+        if (id != View.NO_ID) {
+            int index = Arrays.binarySearch(ids, id);
+            if (index >= 0 && views[index] == null) {
+                views[index] = view;
+                if (--remaining == 0) {
+                    return 0;
+                }
+            }
+        }
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0, count = group.getChildCount(); i < count && remaining > 0; i++) {
+                remaining = collectViews(group.getChildAt(i), ids, views, remaining);
+            }
+        }
+        return remaining;
+    }
+
     public final <T> T findRequiredViewAsType(Object source, int id, String who, Class<T> cls) {
         View view = findRequiredView(source, id, who);
         try {
@@ -136,5 +329,25 @@ public enum Finder {
     }
 
     public abstract Context getContext(Object source);
+
+    /**
+     * @return 查找 View 时遍历的根节点
+     */
+    public abstract View getRootView(Object source);
+
+    /**
+     * Activity 和 Dialog 的布局添加在 android.R.id.content 中
+     *
+     * @param merge 布局根节点是否为 merge
+     * @return 布局根节点，merge 布局返回其子 View 所在的容器，找不到时返回 null
+     */
+    public View getLayoutRoot(Object source, boolean merge) {
+        View content = findOptionalView(source, android.R.id.content);
+        if (merge || !(content instanceof ViewGroup)) {
+            return content;
+        }
+        ViewGroup group = (ViewGroup) content;
+        return group.getChildCount() > 0 ? group.getChildAt(0) : null;
+    }
 }
 
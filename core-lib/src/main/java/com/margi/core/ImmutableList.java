@@ -0,0 +1,27 @@
+package com.margi.core;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Created by allen on 10/18/16.
+ * 基于数组的只读 List，数组由生成代码按绑定数量精确分配，不会再被修改
+ */
+final class ImmutableList<T> extends AbstractList<T> implements RandomAccess {
+
+    private final T[] views;
+
+    ImmutableList(T[] views) {
+        this.views = views;
+    }
+
+    @Override
+    public T get(int index) {
+        return views[index];
+    }
+
+    @Override
+    public int size() {
+        return views.length;
+    }
+}
@@ -1,67 +1,513 @@
 package com.margi.core;
 
 import android.app.Activity;
+import android.app.Dialog;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.View;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 /**
  * Created by allen on 8/24/16.
  */
 public class Injector {
 
-    static final Map<Class<?>, ViewInjector<Object>> INJECTORS = new LinkedHashMap<>();
+    static final InjectorCache INJECTORS = new InjectorCache(Injector.class.getClassLoader());
+
+    /** 负缓存标记，表示该类及其父类都没有注入器 */
+    static final ViewInjector<Object> NO_INJECTOR = new ViewInjector<Object>() {
+        @Override
+        public void inject(Finder finder, Object target, Object source) {
+        }
+
+        @Override
+        public void unbind(Object target) {
+        }
+    };
+
+    /** 编译期为 app 模块生成的默认注册表类名，与 InjectorProcessor 中的默认值保持一致 */
+    static final String DEFAULT_REGISTRY = "com.margi.core.InjectorRegistry$$Generated";
+
+    static final List<InjectorRegistry> REGISTRIES = new CopyOnWriteArrayList<>();
+
+    /** 运行时监控，null 表示关闭 */
+    static volatile InjectorMonitor monitor;
+
+    static {
+        InjectorRegistry registry = loadDefaultRegistry();
+        if (registry != null) {
+            REGISTRIES.add(registry);
+        }
+    }
 
     private Injector(){
         throw new AssertionError("No instances");
     }
 
+    /**
+     * 添加其他模块生成的注册表，library 模块通过 apt 参数 viewinject.registry 指定注册表类名，
+     * 然后在 Application 中调用此方法注册
+     *
+     * @param registry 生成的注册表实例
+     */
+    public static void addRegistry(@NonNull InjectorRegistry registry) {
+        REGISTRIES.add(registry);
+        // 新的注册表可能覆盖之前未找到的类，清除负缓存
+        INJECTORS.removeValue(NO_INJECTOR);
+    }
+
+    /**
+     * 移除注册表，插件卸载时调用，避免注册表持有插件的 ClassLoader
+     *
+     * @param registry 之前通过 addRegistry 添加的注册表
+     */
+    public static void removeRegistry(@NonNull InjectorRegistry registry) {
+        REGISTRIES.remove(registry);
+    }
+
+    /**
+     * 设置运行时监控，上报注入器缓存命中、每个目标类的注入耗时、View 查找次数和注入失败，
+     * 可以在 release 包中开启后导出到监控系统
+     *
+     * @param monitor 监控实现，传 null 关闭监控
+     */
+    public static void setMonitor(@Nullable InjectorMonitor monitor) {
+        Injector.monitor = monitor;
+    }
+
+    /**
+     * @return 注入器缓存项数量，包括未找到注入器的负缓存
+     */
+    public static int getCacheSize() {
+        return INJECTORS.size();
+    }
+
+    /**
+     * @return 因插件 ClassLoader 卸载而从缓存中移除的项数量
+     */
+    public static long getCacheEvictionCount() {
+        return INJECTORS.evictionCount();
+    }
+
+    /**
+     * 在后台线程预加载注入器，一般在 Application.onCreate 中调用，
+     * 把首次注入时的类加载、注入器类初始化和缓存填充从主线程移走
+     *
+     * @param targets 之后会被注入的目标类
+     * @return 预加载完成的 Future，不需要等待时可以忽略
+     */
+    public static Future<Void> preload(@NonNull Class<?>... targets) {
+        return preload(PreloadExecutor.INSTANCE, targets);
+    }
+
+    /**
+     * 在指定的线程池中预加载注入器，可以和主线程上的注入同时进行：
+     * 缓存是线程安全的，注入器无状态，类初始化由虚拟机加锁，主线程最多等待正在进行的初始化完成
+     *
+     * @param executor 执行预加载的线程池
+     * @param targets  之后会被注入的目标类
+     * @return 预加载完成的 Future，某个类加载失败不影响其他类，异常在 get() 时抛出
+     */
+    public static Future<Void> preload(@NonNull Executor executor, @NonNull Class<?>... targets) {
+        final Class<?>[] classes = targets.clone();
+        return submit(executor, new Runnable() {
+            @Override
+            public void run() {
+                RuntimeException failure = null;
+                for (Class<?> cls : classes) {
+                    try {
+                        findViewInjecterForClass(cls);
+                    } catch (RuntimeException e) {
+                        failure = failure == null ? e : failure;
+                    }
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+            }
+        });
+    }
+
+    /**
+     * 在后台线程预加载所有已注册注册表中的注入器，包括通过 {@link #addRegistry} 添加的 library 模块注册表
+     *
+     * @return 预加载完成的 Future
+     */
+    public static Future<Void> preloadAll() {
+        return preloadAll(PreloadExecutor.INSTANCE);
+    }
+
+    /**
+     * 在指定的线程池中预加载所有已注册注册表中的注入器，
+     * 只有实现了 {@link InjectorRegistry.Preloadable} 的注册表才能列出目标类
+     *
+     * @param executor 执行预加载的线程池
+     * @return 预加载完成的 Future
+     */
+    public static Future<Void> preloadAll(@NonNull Executor executor) {
+        return submit(executor, new Runnable() {
+            @Override
+            public void run() {
+                RuntimeException failure = null;
+                for (InjectorRegistry registry : REGISTRIES) {
+                    if (!(registry instanceof InjectorRegistry.Preloadable)) {
+                        continue;
+                    }
+                    ClassLoader classLoader = registry.getClass().getClassLoader();
+                    for (String name : ((InjectorRegistry.Preloadable) registry).getTargetNames()) {
+                        try {
+                            // 只加载不初始化目标类，目标类的静态代码块可能依赖主线程
+                            findViewInjecterForClass(Class.forName(name, false, classLoader));
+                        } catch (ClassNotFoundException e) {
+                            // 目标类被混淆工具移除，运行时也不会用到
+                        } catch (RuntimeException e) {
+                            failure = failure == null ? e : failure;
+                        }
+                    }
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+            }
+        });
+    }
+
+    private static Future<Void> submit(Executor executor, Runnable runnable) {
+        FutureTask<Void> task = new FutureTask<>(runnable, null);
+        executor.execute(task);
+        return task;
+    }
+
     /**
      * 绑定Activity
      * @param target 绑定的目标为activity
+     * @return 解绑句柄，在 onDestroy 中调用
+     */
+    public static Unbinder inject(@NonNull Activity target) {
+        return newUnbinder(target, doInject(target,target,Finder.ACTIVITY));
+    }
+
+    /**
+     * 绑定自定义View，例如组合控件
+     * @param target 绑定的目标为view本身
+     * @return 解绑句柄
+     */
+    public static Unbinder inject(@NonNull View target) {
+        return newUnbinder(target, doInject(target,target,Finder.VIEW));
+    }
+
+    /**
+     * 绑定Dialog
+     * @param target 绑定的目标为dialog
+     * @return 解绑句柄
+     */
+    public static Unbinder inject(@NonNull Dialog target) {
+        return newUnbinder(target, doInject(target,target,Finder.DIALOG));
+    }
+
+    /**
+     * 绑定任意对象，在source中查找View，例如 RecyclerView.ViewHolder 在 itemView 中查找。
+     * 预热后除了第一次注入一组 View 时创建的事件分发对象，整个调用过程不分配任何对象，
+     * 可以在 onBindViewHolder 等高频路径中使用，
+     * 所以这里不返回解绑句柄，需要解绑时（例如 Fragment 的 onDestroyView）调用 {@link #unbind(Object)}。
+     * 可以在后台线程调用，例如在后台 inflate 之后注入，见 {@link AsyncInjector}
+     * @param target 绑定的目标对象
+     * @param source 查找View的根节点
+     */
+    public static void inject(@NonNull Object target, @NonNull View source) {
+        doInject(target,source,Finder.VIEW);
+    }
+
+    /**
+     * 在会话中绑定任意对象，会话中已经找到的 View 直接复用，例如 Activity 注入后再注入 presenter 和辅助对象：
+     * <pre>
+     * LookupSession session = Injector.openSession(this);
+     * Injector.inject(this, session);
+     * Injector.inject(presenter, session);
+     * session.release();
+     * </pre>
+     * @param target  绑定的目标对象
+     * @param session 通过 {@link #openSession} 打开的会话
+     */
+    public static void inject(@NonNull Object target, @NonNull LookupSession session) {
+        doInject(target,session,Finder.SESSION);
+    }
+
+    /**
+     * 打开在Activity中查找的会话
+     * @param source 查找View的Activity
+     * @return 会话，使用完后调用 {@link LookupSession#release()}
+     */
+    public static LookupSession openSession(@NonNull Activity source) {
+        return new LookupSession(Finder.ACTIVITY, source);
+    }
+
+    /**
+     * 打开在View中查找的会话
+     * @param source 查找View的根节点
+     * @return 会话，使用完后调用 {@link LookupSession#release()}
+     */
+    public static LookupSession openSession(@NonNull View source) {
+        return new LookupSession(Finder.VIEW, source);
+    }
+
+    /**
+     * 打开在Dialog中查找的会话
+     * @param source 查找View的Dialog
+     * @return 会话，使用完后调用 {@link LookupSession#release()}
      */
-    public static void inject(@NonNull Activity target) {
-        doInject(target,target,Finder.ACTIVITY);
+    public static LookupSession openSession(@NonNull Dialog source) {
+        return new LookupSession(Finder.DIALOG, source);
     }
 
-    private static void doInject(@NonNull Object target, @NonNull Object source, @NonNull Finder finder){
+    /**
+     * 解绑，把目标对象上绑定的字段全部置空，不分配任何对象
+     * @param target 之前绑定过的目标对象
+     */
+    public static void unbind(@NonNull Object target) {
+        ViewInjector<Object> viewInjector = findViewInjecterForClass(target.getClass());
+        if (viewInjector != null) {
+            viewInjector.unbind(target);
+        }
+    }
+
+    /**
+     * @throws IllegalStateException 目标类及其父类都没有注入器
+     */
+    private static ViewInjector<Object> doInject(@NonNull Object target, @NonNull Object source, @NonNull Finder finder){
+        InjectorMonitor monitor = Injector.monitor;
+        if (monitor != null) {
+            return doInjectMonitored(target, source, finder, monitor);
+        }
+
         Class<?> targetClass = target.getClass();
 
-        ViewInjector<Object> viewInjector = findViewInjecterForClass(targetClass);
+        ViewInjector<Object> viewInjector = requireViewInjector(targetClass);
 
         viewInjector.inject(finder,target,source);
 
+        return viewInjector;
     }
 
     /**
-     * 通过目标class找到对应的ViewInjecter
+     * 开启监控时的注入，计时并统计当前线程上的查找次数，嵌套注入的查找会同时计入外层注入
+     */
+    private static ViewInjector<Object> doInjectMonitored(Object target, Object source, Finder finder,
+                                                          InjectorMonitor monitor) {
+        Class<?> targetClass = target.getClass();
+        int[] lookups = Finder.LOOKUPS.get();
+        int lookupsBefore = lookups[0];
+        long start = System.nanoTime();
+        ViewInjector<Object> viewInjector;
+        try {
+            viewInjector = requireViewInjector(targetClass);
+            viewInjector.inject(finder, target, source);
+        } catch (RuntimeException | Error e) {
+            monitor.onInjectFailed(targetClass, e);
+            throw e;
+        }
+        monitor.onInject(targetClass, System.nanoTime() - start, lookups[0] - lookupsBefore);
+        return viewInjector;
+    }
+
+    /**
+     * 注入时必须有注入器：目标类和父类都没有注解，或者注解处理器没有运行
+     */
+    private static ViewInjector<Object> requireViewInjector(Class<?> targetClass) {
+        ViewInjector<Object> viewInjector = findViewInjecterForClass(targetClass);
+        if (viewInjector == null) {
+            throw new IllegalStateException("No view injector found for " + targetClass.getName()
+                    + ". Make sure it or a superclass has @InjectView, resource or listener annotations"
+                    + " and that the annotation processor runs on its module.");
+        }
+        return viewInjector;
+    }
+
+    private static Unbinder newUnbinder(Object target, ViewInjector<Object> viewInjector) {
+        return new InjectorUnbinder(target, viewInjector);
+    }
+
+    /**
+     * 通过目标class找到对应的ViewInjecter，沿继承链向上查找，
+     * 查找结果（包括未找到）会缓存到链上经过的每一个类
      *
-     * @return
+     * @return 目标类及其父类都没有注入器时返回 null
      */
-    private static ViewInjector<Object> findViewInjecterForClass(Class<?> cls){
+    static ViewInjector<Object> findViewInjecterForClass(Class<?> cls){
         ViewInjector<Object> viewInjector = INJECTORS.get(cls);
+        InjectorMonitor monitor = Injector.monitor;
         if (viewInjector != null) {
-            return viewInjector;//缓存中已经存在，直接返回
+            if (monitor != null) {
+                monitor.onCacheHit(cls);
+            }
+            //缓存中已经存在，直接返回
+            return viewInjector == NO_INJECTOR ? null : viewInjector;
         }
+        long start = monitor != null ? System.nanoTime() : 0;
 
+        // 第一遍：向上查找，直到命中缓存、找到注入器或到达框架类
+        Class<?> resolvedClass = cls;
+        while (true) {
+            ViewInjector<Object> cached = INJECTORS.get(resolvedClass);
+            if (cached != null) {
+                viewInjector = cached;
+                break;
+            }
+            viewInjector = loadViewInjector(resolvedClass);
+            if (viewInjector != null) {
+                break;
+            }
+            //当前类没有找到去父类中查找
+            resolvedClass = resolvedClass.getSuperclass();
+            if (resolvedClass == null) {
+                viewInjector = NO_INJECTOR;
+                break;
+            }
+        }
+
+        // 第二遍：把结果缓存到经过的每一个类，注入器无状态，并发时重复创建也没有影响
+        for (Class<?> c = cls; c != null && c != resolvedClass; c = c.getSuperclass()) {
+            INJECTORS.putIfAbsent(c, viewInjector);
+        }
+        if (resolvedClass != null) {
+            INJECTORS.putIfAbsent(resolvedClass, viewInjector);
+        }
+        if (monitor != null) {
+            monitor.onCacheMiss(cls, System.nanoTime() - start);
+        }
+        return viewInjector == NO_INJECTOR ? null : viewInjector;
+    }
+
+    /**
+     * 只查找当前类自己的注入器，不向父类查找
+     *
+     * @return 框架类返回 NO_INJECTOR 终止查找，当前类没有注入器返回 null
+     */
+    @SuppressWarnings("unchecked")
+    private static ViewInjector<Object> loadViewInjector(Class<?> cls) {
         String className = cls.getName();
         if(className.startsWith("android.") || className.startsWith("java.") ){
+            return NO_INJECTOR;
+        }
+
+        // 优先从编译期生成的注册表中查找，无需反射
+        boolean owned = false;
+        String packageName = null;
+        for (InjectorRegistry registry : REGISTRIES) {
+            ViewInjector<Object> viewInjector = registry.findInjector(cls);
+            if (viewInjector != null) {
+                return viewInjector;
+            }
+            if (!owned && registry instanceof InjectorRegistry.Authoritative) {
+                if (packageName == null) {
+                    int lastDot = className.lastIndexOf('.');
+                    packageName = lastDot == -1 ? "" : className.substring(0, lastDot);
+                }
+                owned = ((InjectorRegistry.Authoritative) registry).ownsPackage(packageName);
+            }
+        }
+        if (owned) {
+            // 例如没有注解的子类，注册表已经说明没有注入器，直接向父类查找
             return null;
         }
 
+        // 注册表未覆盖的类（例如未注册的 library 模块），回退到反射查找。
+        // Android 上没有不抛异常的类探测方式，这里的 ClassNotFoundException 每个类最多出现一次，结果会被缓存
+        Class<?> viewInjectClass;
         try {
-            Class<?> viewInjectClass = Class.forName(className + "$$ViewInjector");
-            viewInjector = (ViewInjector<Object>) viewInjectClass.newInstance();
+            // 使用目标类自己的 ClassLoader，插件中的注入器才能被找到
+            viewInjectClass = Class.forName(className + "$$ViewInjector", true, cls.getClassLoader());
         } catch (ClassNotFoundException e) {
-            e.printStackTrace();
-            //当前类没有找到去父类中查找
-            viewInjector = findViewInjecterForClass(cls.getSuperclass());
+            return null;
+        }
+        try {
+            // 使用注入器类持有的单例，插件中的注入器才能随插件的 ClassLoader 存活，见 InjectorCache
+            return (ViewInjector<Object>) viewInjectClass.getDeclaredField("INSTANCE").get(null);
+        } catch (NoSuchFieldException e) {
+            // 旧版本生成的注入器没有单例
+            return newViewInjector(viewInjectClass, className);
         } catch (Exception e) {
             throw new RuntimeException("Unable to create view binder for " + className, e);
         }
-        INJECTORS.put(cls,viewInjector);
-        return viewInjector;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ViewInjector<Object> newViewInjector(Class<?> viewInjectClass, String className) {
+        return (ViewInjector<Object>) newInstance(viewInjectClass, "Unable to create view binder for " + className);
+    }
+
+    /**
+     * 通过无参构造方法创建实例。Class.newInstance() 已废弃，它会绕过编译期检查直接抛出构造方法中的受检异常
+     *
+     * @param error 创建失败时异常的描述
+     */
+    private static Object newInstance(Class<?> cls, String error) {
+        try {
+            return cls.getDeclaredConstructor().newInstance();
+        } catch (InvocationTargetException e) {
+            // 构造方法自己抛出的异常，原样抛出，不再包一层反射异常
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(error, cause);
+        } catch (Exception e) {
+            throw new RuntimeException(error, e);
+        }
+    }
+
+    /**
+     * 加载默认注册表，只在类初始化时反射一次
+     *
+     * @return 模块未生成注册表时返回 null
+     */
+    private static InjectorRegistry loadDefaultRegistry() {
+        Class<?> registryClass;
+        try {
+            registryClass = Class.forName(DEFAULT_REGISTRY);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        return (InjectorRegistry) newInstance(registryClass, "Unable to create injector registry " + DEFAULT_REGISTRY);
+    }
+
+    /**
+     * 默认的预加载线程池，低优先级，第一次预加载时才创建
+     */
+    private static final class PreloadExecutor {
+        static final Executor INSTANCE = BackgroundExecutor.create("ViewInject-preload", Thread.MIN_PRIORITY);
+    }
+
+    /**
+     * 解绑句柄，只能生效一次，之后不再持有目标对象
+     */
+    private static final class InjectorUnbinder implements Unbinder {
+        private Object target;
+        private final ViewInjector<Object> viewInjector;
+
+        InjectorUnbinder(Object target, ViewInjector<Object> viewInjector) {
+            this.target = target;
+            this.viewInjector = viewInjector;
+        }
+
+        @Override
+        public void unbind() {
+            Object target = this.target;
+            if (target == null) {
+                return;
+            }
+            this.target = null;
+            viewInjector.unbind(target);
+        }
     }
 
 }
@@ -0,0 +1,207 @@
+package com.margi.core;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Created by allen on 10/18/16.
+ *
+ * 注入器缓存，按目标类的 ClassLoader 分为两层：
+ * <ul>
+ * <li>与 core-lib 同一个 ClassLoader（或其父 ClassLoader）加载的类，进程内不会被卸载，使用无锁的强引用 map</li>
+ * <li>插件等其他 ClassLoader 加载的类，key 是弱引用；注入器来自同一个 ClassLoader 时 value 也只能是弱引用，
+ * 否则 value -&gt; ClassLoader -&gt; key 的强引用链会让插件永远无法卸载</li>
+ * </ul>
+ * Android 上没有 ClassValue，这里用生成的注入器类自己的 INSTANCE 常量代替按 ClassLoader 保存的附加表：
+ * 实例由注入器类强引用、注入器类由它的 ClassLoader 强引用，所以弱引用的 value 在插件存活期间不会因为普通的 GC 被清除，
+ * 插件卸载后整条链一起回收。没有 INSTANCE 的旧版本注入器只被弱引用，GC 后需要重新创建
+ */
+final class InjectorCache {
+
+    private final ClassLoader stableLoader;
+    private final ConcurrentMap<Class<?>, ViewInjector<Object>> stable = new ConcurrentHashMap<>();
+
+    // 以下字段都由 foreign 加锁保护
+    private final Map<WeakKey, Object> foreign = new HashMap<>();
+    private final ReferenceQueue<Class<?>> queue = new ReferenceQueue<>();
+    private final WeakKey lookupKey = new WeakKey(null, null);
+    private long evictionCount;
+
+    InjectorCache(ClassLoader stableLoader) {
+        this.stableLoader = stableLoader;
+    }
+
+    ViewInjector<Object> get(Class<?> cls) {
+        ViewInjector<Object> viewInjector = stable.get(cls);
+        if (viewInjector != null || _isStable(cls.getClassLoader())) {
+            return viewInjector;
+        }
+        synchronized (foreign) {
+            _expungeStaleEntries();
+            lookupKey.set(cls);
+            Object value = foreign.get(lookupKey);
+            lookupKey.set(null);
+            return _unwrap(cls, value);
+        }
+    }
+
+    void putIfAbsent(Class<?> cls, ViewInjector<Object> viewInjector) {
+        if (_isStable(cls.getClassLoader())) {
+            stable.putIfAbsent(cls, viewInjector);
+            return;
+        }
+        synchronized (foreign) {
+            _expungeStaleEntries();
+            lookupKey.set(cls);
+            Object existing = foreign.get(lookupKey);
+            lookupKey.set(null);
+            if (_unwrap(cls, existing) != null) {
+                return;
+            }
+            // 注入器本身来自插件 ClassLoader 时只能弱引用，实例由注入器类的 INSTANCE 常量持有，与 ClassLoader 同生命周期
+            Object value = _isStable(viewInjector.getClass().getClassLoader())
+                    ? viewInjector : new WeakReference<>(viewInjector);
+            foreign.put(new WeakKey(cls, queue), value);
+        }
+    }
+
+    /**
+     * 删除所有值为 viewInjector 的缓存项
+     */
+    void removeValue(ViewInjector<Object> viewInjector) {
+        Iterator<ViewInjector<Object>> stableValues = stable.values().iterator();
+        while (stableValues.hasNext()) {
+            if (stableValues.next() == viewInjector) {
+                stableValues.remove();
+            }
+        }
+        synchronized (foreign) {
+            Iterator<Object> foreignValues = foreign.values().iterator();
+            while (foreignValues.hasNext()) {
+                Object value = foreignValues.next();
+                // 插件中的注入器保存为弱引用，先取出再比较
+                if (value instanceof Reference) {
+                    value = ((Reference<?>) value).get();
+                }
+                if (value == viewInjector) {
+                    foreignValues.remove();
+                }
+            }
+        }
+    }
+
+    void clear() {
+        stable.clear();
+        synchronized (foreign) {
+            foreign.clear();
+            while (queue.poll() != null) {
+                // 丢弃已入队的引用
+            }
+            evictionCount = 0;
+        }
+    }
+
+    /**
+     * @return 当前缓存项数量，包括未找到注入器的负缓存
+     */
+    int size() {
+        synchronized (foreign) {
+            _expungeStaleEntries();
+            return stable.size() + foreign.size();
+        }
+    }
+
+    /**
+     * @return 因 ClassLoader 卸载（或没有 INSTANCE 的旧版本注入器被回收）而移除的缓存项数量
+     */
+    long evictionCount() {
+        synchronized (foreign) {
+            _expungeStaleEntries();
+            return evictionCount;
+        }
+    }
+
+    private boolean _isStable(ClassLoader loader) {
+        for (ClassLoader l = stableLoader; ; l = l.getParent()) {
+            if (l == loader) {
+                return true;
+            }
+            if (l == null) {
+                return false;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ViewInjector<Object> _unwrap(Class<?> cls, Object value) {
+        if (value instanceof Reference) {
+            ViewInjector<Object> viewInjector = ((Reference<ViewInjector<Object>>) value).get();
+            if (viewInjector == null) {
+                // 注入器已被回收，删除后由调用方重新查找
+                foreign.remove(lookupKey.set(cls));
+                lookupKey.set(null);
+                evictionCount++;
+            }
+            return viewInjector;
+        }
+        return (ViewInjector<Object>) value;
+    }
+
+    private void _expungeStaleEntries() {
+        Reference<? extends Class<?>> ref;
+        while ((ref = queue.poll()) != null) {
+            if (foreign.remove(ref) != null) {
+                evictionCount++;
+            }
+        }
+    }
+
+    /**
+     * 弱引用 key，按引用的 Class 判等，hash 在创建时固定以便引用被清除后仍能从 map 中删除
+     */
+    private static final class WeakKey extends WeakReference<Class<?>> {
+        private Class<?> lookup;
+        private int hash;
+
+        WeakKey(Class<?> cls, ReferenceQueue<Class<?>> queue) {
+            super(cls, queue);
+            this.hash = System.identityHashCode(cls);
+        }
+
+        /**
+         * 复用同一个 key 做查询，避免每次查找都分配对象，只能在持有锁时使用
+         */
+        WeakKey set(Class<?> cls) {
+            this.lookup = cls;
+            this.hash = System.identityHashCode(cls);
+            return this;
+        }
+
+        private Class<?> _referent() {
+            return lookup != null ? lookup : get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof WeakKey)) {
+                return false;
+            }
+            Class<?> referent = _referent();
+            return referent != null && referent == ((WeakKey) o)._referent();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.margi.core;
+
+/**
+ * Created by allen on 10/18/16.
+ *
+ * 运行时注入监控，通过 {@link Injector#setMonitor(InjectorMonitor)} 设置。
+ * 未设置时注入过程只多一次 volatile 读取，不计时也不计数；
+ * 回调在执行注入的线程上同步调用，实现需要线程安全并且尽量轻量，例如只累加计数或按比例采样
+ */
+public interface InjectorMonitor {
+
+    /**
+     * 注入器缓存命中
+     *
+     * @param targetClass 查找注入器的目标类
+     */
+    void onCacheHit(Class<?> targetClass);
+
+    /**
+     * 注入器缓存未命中，沿继承链加载注入器后写入缓存
+     *
+     * @param targetClass  查找注入器的目标类
+     * @param elapsedNanos 加载耗时，包括注册表查找、反射和注入器类初始化
+     */
+    void onCacheMiss(Class<?> targetClass, long elapsedNanos);
+
+    /**
+     * 一次注入完成
+     *
+     * @param targetClass  目标类
+     * @param elapsedNanos 注入耗时，包括注入器查找
+     * @param lookupCount  注入过程中 Finder 查找 View 的次数，一次遍历查找多个 ID 记为一次
+     */
+    void onInject(Class<?> targetClass, long elapsedNanos, int lookupCount);
+
+    /**
+     * 注入失败，回调之后异常会继续抛给调用方
+     *
+     * @param targetClass 目标类
+     * @param error       注入过程中抛出的异常，例如必需的 View 未找到或类型不匹配
+     */
+    void onInjectFailed(Class<?> targetClass, Throwable error);
+}
@@ -0,0 +1,40 @@
+package com.margi.core;
+
+/**
+ * Created by allen on 10/18/16.
+ *
+ * 编译期生成的注入器注册表，由 InjectorProcessor 为每个模块生成一个实现，
+ * 直接通过类名 switch 返回对应的 ViewInjector，避免 Class.forName 和 newInstance 反射
+ */
+public interface InjectorRegistry {
+    /**
+     * 查找目标类对应的注入器
+     *
+     * @param cls 目标类，不会向父类查找
+     * @return 注册表中存在则返回新建的注入器，否则返回 null
+     */
+    ViewInjector<Object> findInjector(Class<?> cls);
+
+    /**
+     * 能够列出全部目标类的注册表，编译期生成的注册表都实现了该接口，
+     * 供 {@link Injector#preloadAll()} 在后台预加载整个模块的注入器
+     */
+    interface Preloadable extends InjectorRegistry {
+        /**
+         * @return 注册表中所有目标类的二进制名称，与 Class.getName() 一致
+         */
+        String[] getTargetNames();
+    }
+
+    /**
+     * 知道模块中编译了哪些包的注册表，编译期生成的注册表都实现了该接口。
+     * 这些包中的类在所有注册表中都找不到注入器时就是没有注入器，不再用 Class.forName 反射探测
+     */
+    interface Authoritative extends InjectorRegistry {
+        /**
+         * @param packageName 包名，默认包为空字符串
+         * @return 模块编译了该包中的类时返回 true
+         */
+        boolean ownsPackage(String packageName);
+    }
+}
@@ -0,0 +1,89 @@
+package com.margi.core;
+
+import android.view.View;
+import android.view.ViewStub;
+
+/**
+ * Created by allen on 10/18/16.
+ *
+ * 延迟绑定的View，配合 @InjectView(value = R.id.xxx, lazy = true) 使用，
+ * 第一次调用 get() 时才查找View并缓存，很少显示的View不再占用页面启动时间。
+ * 配合 @InjectView(value = R.id.xxx, stub = R.id.xxx_stub) 使用时，View 在 ViewStub 的布局中，
+ * 第一次 get() 时才 inflate 该 ViewStub，同一个 ViewStub 中的其他字段直接查找已经 inflate 的 View
+ */
+public final class LazyView<T extends View> {
+
+    private Finder finder;
+    private Object source;
+    private final int id;
+    private final int stubId;
+    private final String who;
+    private T view;
+
+    @SuppressWarnings("UnusedDeclaration") // Used by generated code.
+    public LazyView(Finder finder, Object source, int id, String who) {
+        this(finder, source, id, 0, who);
+    }
+
+    /**
+     * @param stubId View 所在 ViewStub 的 ID，0 表示不在 ViewStub 中
+     */
+    @SuppressWarnings("UnusedDeclaration") // Used by generated code.
+    public LazyView(Finder finder, Object source, int id, int stubId, String who) {
+        if (finder == Finder.SESSION) {
+            // 第一次 get() 时 View 树可能已经变化，例如 ViewStub 已经 inflate，会话缓存的查找结果（包括未找到）不再可靠，
+            // 直接在会话的 source 中查找，也不再持有会话
+            LookupSession session = (LookupSession) source;
+            finder = session.finder;
+            source = session.source;
+        }
+        this.finder = finder;
+        this.source = source;
+        this.id = id;
+        this.stubId = stubId;
+        this.who = who;
+    }
+
+    /**
+     * 获取View，第一次调用时查找，之后直接返回缓存
+     *
+     * @return 绑定的View
+     */
+    public T get() {
+        T view = this.view;
+        if (view == null) {
+            if (stubId == 0) {
+                view = finder.findRequiredView(source, id, who);
+            } else {
+                view = findInStub();
+            }
+            this.view = view;
+            // 查找完成后不再需要持有查找源
+            finder = null;
+            source = null;
+        }
+        return view;
+    }
+
+    /**
+     * View 不存在时 inflate 所在的 ViewStub 后再查找，ViewStub 已经被其他字段 inflate 时直接找到
+     */
+    private T findInStub() {
+        View view = finder.findOptionalViewAsType(source, id, who, View.class);
+        if (view == null) {
+            ViewStub stub = finder.findOptionalViewAsType(source, stubId, who, ViewStub.class);
+            if (stub != null) {
+                stub.inflate();
+                view = finder.findOptionalViewAsType(source, id, who, View.class);
+            }
+        }
+        return finder.requireView(source, view, id, who);
+    }
+
+    /**
+     * @return 是否已经查找过
+     */
+    public boolean isResolved() {
+        return view != null;
+    }
+}
@@ -0,0 +1,86 @@
+package com.margi.core;
+
+import android.view.View;
+
+/**
+ * Created by allen on 10/18/16.
+ *
+ * 生成的事件分发类的基类。分发对象记录设置了监听的 View，解绑时移除这些监听并不再持有目标对象。
+ * 分发对象以 tag 的形式挂在目标对象的一个 View 上（锚点，优先选有字段的 View）：重新注入同一组 View 时
+ * （例如 RecyclerView 复用 ViewHolder）直接复用，不再分配；unbind 通过目标对象的字段取到锚点，不需要全局登记表
+ */
+public abstract class ListenerBinding<T> {
+
+    protected T target;
+
+    protected ListenerBinding(T target) {
+        this.target = target;
+    }
+
+    /**
+     * 移除设置的监听，置空记录的 View
+     */
+    protected abstract void removeListeners();
+
+    /**
+     * 把触发事件的 View 转换为方法声明的参数类型，类型不符时报告方法名和 View 的 ID
+     *
+     * @param method 绑定的方法名
+     */
+    protected static <V> V castParam(View view, Class<V> type, String method) {
+        try {
+            return type.cast(view);
+        } catch (ClassCastException e) {
+            throw new IllegalStateException("Parameter #1 of method '"
+                    + method
+                    + "' was of the wrong type for the view with ID "
+                    + view.getId()
+                    + ". See cause for more info.", e);
+        }
+    }
+
+    /**
+     * 取出之前注入时挂在锚点上的分发对象并改为分发给 target
+     *
+     * @param anchor 锚点 View
+     * @param type   生成的分发类
+     * @return 锚点上没有 type 类型的分发对象时返回 null，由调用方创建并 {@link #attach}
+     */
+    public static <T, B extends ListenerBinding<T>> B reuse(View anchor, Class<B> type, T target) {
+        Object tag = anchor.getTag(R.id.viewinject_listener_binding);
+        if (tag == null || tag.getClass() != type) {
+            return null;
+        }
+        B binding = type.cast(tag);
+        binding.target = target;
+        return binding;
+    }
+
+    /**
+     * 把新创建的分发对象挂在锚点上。View 只有一个监听槽位，锚点上原有的分发对象已经被替换，直接覆盖
+     */
+    public static void attach(View anchor, ListenerBinding<?> binding) {
+        anchor.setTag(R.id.viewinject_listener_binding, binding);
+    }
+
+    /**
+     * 解除锚点上分发给 target 的 type 类型的分发对象。分发对象保留在锚点上，再次注入时复用
+     *
+     * @param anchor 锚点 View 所在的字段，可以是接口类型；字段已经置空时为 null
+     */
+    public static void unbind(Object target, Object anchor, Class<? extends ListenerBinding<?>> type) {
+        if (!(anchor instanceof View)) {
+            return;
+        }
+        Object tag = ((View) anchor).getTag(R.id.viewinject_listener_binding);
+        if (tag == null || tag.getClass() != type) {
+            return;
+        }
+        ListenerBinding<?> binding = (ListenerBinding<?>) tag;
+        // 同一组 View 已经注入给另一个目标对象时，监听属于新的目标对象
+        if (binding.target == target) {
+            binding.removeListeners();
+            binding.target = null;
+        }
+    }
+}
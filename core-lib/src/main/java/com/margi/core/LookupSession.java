@@ -0,0 +1,153 @@
+package com.margi.core;
+
+import android.view.View;
+
+/**
+ * Created by allen on 10/18/16.
+ *
+ * 查找会话：在同一个 source 上注入多个目标时（例如 Activity 和它的 presenter、辅助对象）共享已经找到的 View，
+ * 后面的目标不再重复遍历 View 树。结果按 ID 缓存在 int 为键的开放寻址表中，未找到的 ID 也会缓存。
+ * 会话适用于在一个线程中连续完成的一批注入，注入之间 View 树发生变化（例如再次 setContentView）时应重新打开，
+ * 全部注入完成后调用 {@link #release()} 释放缓存的 View
+ */
+public final class LookupSession {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    final Finder finder;
+    final Object source;
+    /** 0 表示空位，资源ID不会为 0 */
+    private int[] keys = new int[INITIAL_CAPACITY];
+    private View[] values = new View[INITIAL_CAPACITY];
+    private int size;
+    private boolean released;
+    private int hitCount;
+    private int missCount;
+
+    LookupSession(Finder finder, Object source) {
+        this.finder = finder;
+        this.source = source;
+    }
+
+    /**
+     * 清空缓存的 View，之后的查找（例如延迟绑定的 View）直接在 source 中进行，不再缓存
+     */
+    public void release() {
+        released = true;
+        keys = null;
+        values = null;
+        size = 0;
+    }
+
+    /**
+     * @return 直接从缓存中取到 View 的次数
+     */
+    public int getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return 需要在 View 树中查找的次数
+     */
+    public int getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return 缓存的 ID 数量
+     */
+    public int size() {
+        return size;
+    }
+
+    View findOptionalView(int id) {
+        if (released || id == 0) {
+            return finder.findOptionalView(source, id);
+        }
+        int index = indexOf(id);
+        if (keys[index] == id) {
+            hitCount++;
+            return values[index];
+        }
+        missCount++;
+        View view = finder.findOptionalView(source, id);
+        put(index, id, view);
+        return view;
+    }
+
+    /**
+     * 先从缓存中取，剩余的 ID 一次遍历查找，见 Finder.findViews
+     *
+     * @param ids 升序排列且不重复的 ID
+     */
+    View[] findViews(int[] ids) {
+        if (released) {
+            return finder.collectViews(source, ids);
+        }
+        View[] views = new View[ids.length];
+        // 未命中的 ID 在 ids 中的下标
+        int[] positions = new int[ids.length];
+        int missing = 0;
+        for (int i = 0; i < ids.length; i++) {
+            int id = ids[i];
+            int index = id == 0 ? -1 : indexOf(id);
+            if (index >= 0 && keys[index] == id) {
+                views[i] = values[index];
+            } else {
+                positions[missing++] = i;
+            }
+        }
+        hitCount += ids.length - missing;
+        if (missing == 0) {
+            return views;
+        }
+        missCount += missing;
+        // 剩余的 ID 仍然升序
+        int[] remaining = new int[missing];
+        for (int i = 0; i < missing; i++) {
+            remaining[i] = ids[positions[i]];
+        }
+        View[] found = finder.collectViews(source, remaining);
+        for (int i = 0; i < missing; i++) {
+            views[positions[i]] = found[i];
+            if (remaining[i] != 0) {
+                put(indexOf(remaining[i]), remaining[i], found[i]);
+            }
+        }
+        return views;
+    }
+
+    /**
+     * @return id 所在的位置，不存在时为应插入的空位
+     */
+    private int indexOf(int id) {
+        int mask = keys.length - 1;
+        int index = (id ^ (id >>> 16)) & mask;
+        while (keys[index] != 0 && keys[index] != id) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void put(int index, int id, View view) {
+        keys[index] = id;
+        values[index] = view;
+        if (++size * 4 > keys.length * 3) {
+            grow();
+        }
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        View[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new View[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+}
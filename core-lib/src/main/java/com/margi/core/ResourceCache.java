@@ -0,0 +1,145 @@
+package com.margi.core;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.support.v4.content.ContextCompat;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Created by allen on 10/18/16.
+ *
+ * 资源绑定缓存，每个生成的注入器持有一个。一个目标类的所有资源一次性解析，按 Configuration 和主题缓存：
+ * 同一配置、同一主题下再次注入不访问 Resources，旋转屏幕、切换语言、字体缩放等配置变化后整批重新解析。
+ * 颜色和图片可能引用主题属性，换成另一个主题（例如另一个 Activity）注入时也重新解析；
+ * 主题按实例比较，注入之后再修改同一个主题（Theme.applyStyle）不会被发现
+ */
+@SuppressWarnings("UnusedDeclaration") // Used by generated code.
+public final class ResourceCache {
+
+    public static final int STRING = 0;
+    public static final int COLOR = 1;
+    public static final int COLOR_STATE_LIST = 2;
+    public static final int DIMEN = 3;
+    public static final int DIMEN_PIXEL_SIZE = 4;
+    public static final int DRAWABLE = 5;
+
+    private final int[] kinds;
+    private final int[] ids;
+    private volatile Values values;
+
+    /**
+     * @param kinds 每个资源的类型：STRING、COLOR 等
+     * @param ids   与 kinds 一一对应的资源ID
+     */
+    public ResourceCache(int[] kinds, int[] ids) {
+        if (kinds.length != ids.length) {
+            throw new IllegalArgumentException("kinds and ids must have the same length.");
+        }
+        this.kinds = kinds;
+        this.ids = ids;
+    }
+
+    /**
+     * 获取当前配置下的资源值，配置未变化时直接返回缓存
+     */
+    public Values resolve(Context context) {
+        Configuration configuration = context.getResources().getConfiguration();
+        Resources.Theme theme = context.getTheme();
+        Values current = values;
+        if (current != null && current.theme.get() == theme && current.configuration.equals(configuration)) {
+            return current;
+        }
+        // 并发解析时后写入的覆盖先写入的，两者内容相同
+        current = new Values(new Configuration(configuration), theme, ids, _resolveAll(context));
+        values = current;
+        return current;
+    }
+
+    private Object[] _resolveAll(Context context) {
+        Resources resources = context.getResources();
+        Object[] resolved = new Object[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            int id = ids[i];
+            switch (kinds[i]) {
+                case STRING:
+                    resolved[i] = resources.getString(id);
+                    break;
+                case COLOR:
+                    resolved[i] = ContextCompat.getColor(context, id);
+                    break;
+                case COLOR_STATE_LIST:
+                    resolved[i] = ContextCompat.getColorStateList(context, id);
+                    break;
+                case DIMEN:
+                    resolved[i] = resources.getDimension(id);
+                    break;
+                case DIMEN_PIXEL_SIZE:
+                    resolved[i] = resources.getDimensionPixelSize(id);
+                    break;
+                case DRAWABLE:
+                    // Drawable 有可变状态，不能在多个目标之间共享，只缓存 ConstantState
+                    Drawable drawable = ContextCompat.getDrawable(context, id);
+                    resolved[i] = drawable == null ? null : drawable.getConstantState();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown resource kind " + kinds[i] + " for ID " + id);
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * 某一配置和主题下解析好的资源值，按生成代码中的下标读取
+     */
+    public static final class Values {
+        private final Configuration configuration;
+        /** 只用于比较，注入器是单例，不能让缓存延长已经销毁的 Activity 的主题 */
+        private final WeakReference<Resources.Theme> theme;
+        private final int[] ids;
+        private final Object[] values;
+
+        Values(Configuration configuration, Resources.Theme theme, int[] ids, Object[] values) {
+            this.configuration = configuration;
+            this.theme = new WeakReference<>(theme);
+            this.ids = ids;
+            this.values = values;
+        }
+
+        public String getString(int index) {
+            return (String) values[index];
+        }
+
+        public int getInt(int index) {
+            return (Integer) values[index];
+        }
+
+        public float getFloat(int index) {
+            return (Float) values[index];
+        }
+
+        public ColorStateList getColorStateList(int index) {
+            return (ColorStateList) values[index];
+        }
+
+        /**
+         * @return 新的 Drawable 实例，与 Resources.getDrawable 一样共享 ConstantState
+         */
+        public Drawable getDrawable(int index, Context context) {
+            Drawable.ConstantState state = (Drawable.ConstantState) values[index];
+            if (state == null) {
+                // 没有 ConstantState 的 Drawable 无法复制，只能每次重新加载
+                return ContextCompat.getDrawable(context, ids[index]);
+            }
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                // 引用主题属性的 Drawable（例如 ?attr 着色）需要带上主题
+                return state.newDrawable(context.getResources(), context.getTheme());
+            }
+            return state.newDrawable(context.getResources());
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.margi.core;
+
+/**
+ * Created by allen on 10/18/16.
+ *
+ * 解绑句柄，在 onDestroy / onDestroyView 中调用，清空所有绑定的字段，避免持有已分离的 View 树
+ */
+public interface Unbinder {
+    /**
+     * 清空绑定的字段，重复调用无副作用
+     */
+    void unbind();
+
+    Unbinder EMPTY = new Unbinder() {
+        @Override
+        public void unbind() {
+        }
+    };
+}
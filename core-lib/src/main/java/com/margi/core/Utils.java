@@ -0,0 +1,25 @@
+package com.margi.core;
+
+import java.util.List;
+
+/**
+ * Created by allen on 10/18/16.
+ * 生成代码使用的工具方法
+ */
+@SuppressWarnings("UnusedDeclaration") // Used by generated code.
+public final class Utils {
+
+    private Utils() {
+        throw new AssertionError("No instances.");
+    }
+
+    /**
+     * 直接包装可变参数数组，不复制也不经过中间集合
+     *
+     * @return 不可修改的 List
+     */
+    @SafeVarargs
+    public static <T> List<T> listOf(T... views) {
+        return new ImmutableList<>(views);
+    }
+}
@@ -0,0 +1,179 @@
+package com.margi.core;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.annotation.LayoutRes;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayDeque;
+
+/**
+ * Created by allen on 10/18/16.
+ *
+ * 预先 inflate 并注入的 ViewHolder 池，在主线程空闲时每次补充一个，直到池满。
+ * 在 onCreateViewHolder 中调用 {@link #acquire()}，快速滑动时拿到的大多是已经绑定好的 holder。
+ * 一个池只对应一种布局，多种 viewType 各用一个池；holder 由池负责注入，构造方法中不需要再调用 Injector.inject
+ */
+public final class ViewHolderPool<T> {
+
+    /**
+     * 创建 holder
+     */
+    public interface Factory<T> {
+        /**
+         * @param itemView inflate 得到的布局，还没有注入
+         * @return holder，例如 new ItemHolder(itemView)
+         */
+        @NonNull
+        T create(@NonNull View itemView);
+    }
+
+    /**
+     * 空闲任务的调度，默认添加到当前线程的 MessageQueue
+     */
+    interface IdleScheduler {
+        void schedule(MessageQueue.IdleHandler handler);
+    }
+
+    private final LayoutInflater inflater;
+    private final int layoutId;
+    private final ViewGroup parent;
+    private final Factory<T> factory;
+    private final int maxSize;
+    private final IdleScheduler scheduler;
+    private final ArrayDeque<T> holders;
+    private final MessageQueue.IdleHandler filler = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            filling = fillOne();
+            return filling;
+        }
+    };
+    private boolean filling;
+    private boolean released;
+    private int hitCount;
+    private int missCount;
+
+    /**
+     * 在主线程创建
+     *
+     * @param inflater 用于 inflate 的 LayoutInflater
+     * @param layoutId item 布局
+     * @param parent   RecyclerView，用于生成 LayoutParams，不会添加到其中
+     * @param factory  创建 holder
+     * @param maxSize  池的大小，一般为一屏可见的 item 数量
+     */
+    @MainThread
+    public ViewHolderPool(@NonNull LayoutInflater inflater, @LayoutRes int layoutId, @Nullable ViewGroup parent,
+                          @NonNull Factory<T> factory, int maxSize) {
+        this(inflater, layoutId, parent, factory, maxSize, new IdleScheduler() {
+            @Override
+            public void schedule(MessageQueue.IdleHandler handler) {
+                Looper.myQueue().addIdleHandler(handler);
+            }
+        });
+    }
+
+    ViewHolderPool(LayoutInflater inflater, int layoutId, ViewGroup parent, Factory<T> factory, int maxSize,
+                   IdleScheduler scheduler) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize < 0: " + maxSize);
+        }
+        this.inflater = inflater;
+        this.layoutId = layoutId;
+        this.parent = parent;
+        this.factory = factory;
+        this.maxSize = maxSize;
+        this.scheduler = scheduler;
+        this.holders = new ArrayDeque<>(Math.max(maxSize, 1));
+    }
+
+    /**
+     * 开始在空闲时填充，一般在 Activity 的 onCreate 中设置 Adapter 之前调用
+     */
+    @MainThread
+    public void prefill() {
+        scheduleFill();
+    }
+
+    /**
+     * 取出一个已经注入的 holder，池为空时同步 inflate 并注入，然后在空闲时补充
+     *
+     * @return 已经注入的 holder
+     */
+    @MainThread
+    @NonNull
+    public T acquire() {
+        T holder = holders.poll();
+        if (holder != null) {
+            hitCount++;
+        } else {
+            missCount++;
+            holder = create();
+        }
+        scheduleFill();
+        return holder;
+    }
+
+    /**
+     * 清空池并停止填充，页面销毁时调用，之后 acquire 每次都同步创建
+     */
+    @MainThread
+    public void release() {
+        released = true;
+        holders.clear();
+    }
+
+    /**
+     * @return 从池中直接取到 holder 的次数
+     */
+    public int getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return 池为空、同步创建 holder 的次数
+     */
+    public int getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return 池中已经注入、等待使用的 holder 数量
+     */
+    public int size() {
+        return holders.size();
+    }
+
+    /**
+     * 补充一个 holder
+     *
+     * @return 是否还需要继续补充
+     */
+    boolean fillOne() {
+        if (released || holders.size() >= maxSize) {
+            return false;
+        }
+        holders.add(create());
+        return holders.size() < maxSize;
+    }
+
+    private T create() {
+        View itemView = inflater.inflate(layoutId, parent, false);
+        T holder = factory.create(itemView);
+        Injector.inject(holder, itemView);
+        return holder;
+    }
+
+    private void scheduleFill() {
+        if (!filling && !released && holders.size() < maxSize) {
+            filling = true;
+            scheduler.schedule(filler);
+        }
+    }
+}
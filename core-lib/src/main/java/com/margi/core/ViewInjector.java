@@ -12,4 +12,11 @@ public interface ViewInjector<T> {
      * @param source 所依附的对象，可能是target本身
      */
     void inject(Finder finder, T target, Object source);
+
+    /**
+     * 处理解绑操作，把绑定的字段置空，包括父类绑定的字段
+     *
+     * @param target 之前进行绑定的目标对象
+     */
+    void unbind(T target);
 }
@@ -0,0 +1,210 @@
+package com.margi.core;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * 后台 inflate 和注入、主线程回调以及取消
+ */
+public class AsyncInjectorTest {
+
+    static class Page {
+        View source;
+        String injectedOn;
+    }
+
+    /**
+     * 手动执行的线程池，模拟后台线程和主线程的消息队列
+     */
+    static class QueueExecutor implements Executor {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void drain() {
+            for (Runnable task; (task = tasks.poll()) != null; ) {
+                task.run();
+            }
+        }
+    }
+
+    /**
+     * 副本共享原来的计数，并记录每次 inflate 使用的实例和线程
+     */
+    static class FakeInflater extends LayoutInflater {
+        final FakeInflater original;
+        final List<FakeInflater> usedInflaters = new ArrayList<>();
+        final List<String> usedThreads = new ArrayList<>();
+        String clonedOn;
+        int inflates;
+        int failures;
+
+        FakeInflater(FakeInflater original) {
+            super(null);
+            this.original = original == null ? this : original;
+        }
+
+        @Override
+        public View inflate(int resource, ViewGroup root, boolean attachToRoot) {
+            synchronized (original) {
+                original.inflates++;
+                original.usedInflaters.add(this);
+                original.usedThreads.add(Thread.currentThread().getName());
+                if (original.failures > 0) {
+                    original.failures--;
+                    throw new RuntimeException(
+                            "Can't create handler inside thread that has not called Looper.prepare()");
+                }
+            }
+            return new View(null);
+        }
+
+        @Override
+        public LayoutInflater cloneInContext(Context context) {
+            FakeInflater clone = new FakeInflater(original);
+            clone.clonedOn = Thread.currentThread().getName();
+            return clone;
+        }
+    }
+
+    static class RecordingCallback implements AsyncInjector.Callback<Page> {
+        final List<Page> pages = new ArrayList<>();
+
+        @Override
+        public void onInjected(Page target, View view) {
+            assertSame(view, target.source);
+            pages.add(target);
+        }
+    }
+
+    private final QueueExecutor worker = new QueueExecutor();
+    private final QueueExecutor main = new QueueExecutor();
+    private final FakeInflater inflater = new FakeInflater(null);
+    private final RecordingCallback callback = new RecordingCallback();
+
+    @Before
+    public void setUp() {
+        Injector.INJECTORS.clear();
+        Injector.REGISTRIES.clear();
+        Injector.addRegistry(new InjectorRegistry() {
+            @Override
+            public ViewInjector<Object> findInjector(Class<?> cls) {
+                if (cls != Page.class) {
+                    return null;
+                }
+                return new ViewInjector<Object>() {
+                    @Override
+                    public void inject(Finder finder, Object target, Object source) {
+                        Page page = (Page) target;
+                        page.source = (View) source;
+                        page.injectedOn = Thread.currentThread().getName();
+                    }
+
+                    @Override
+                    public void unbind(Object target) {
+                    }
+                };
+            }
+        });
+    }
+
+    @Test
+    public void injectsOnWorkerAndDeliversOnMain() throws Exception {
+        final Page page = new Page();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                worker.drain();
+            }
+        }, "worker");
+        AsyncInjector.Request request = AsyncInjector.start(worker, main, inflater, 1, null, page, callback);
+
+        assertTrue(callback.pages.isEmpty());
+        thread.start();
+        thread.join();
+        assertEquals("worker", page.injectedOn);
+        assertTrue(callback.pages.isEmpty());
+
+        main.drain();
+        assertEquals(1, callback.pages.size());
+        assertSame(page, callback.pages.get(0));
+        assertFalse(request.isCanceled());
+    }
+
+    @Test
+    public void workerInflatesWithCloneMadeOnCallingThread() throws Exception {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                worker.drain();
+            }
+        }, "worker");
+        AsyncInjector.start(worker, main, inflater, 1, null, new Page(), callback);
+        thread.start();
+        thread.join();
+
+        assertEquals(1, inflater.usedInflaters.size());
+        FakeInflater used = inflater.usedInflaters.get(0);
+        assertNotSame(inflater, used);
+        assertEquals(Thread.currentThread().getName(), used.clonedOn);
+        assertEquals("worker", inflater.usedThreads.get(0));
+    }
+
+    @Test
+    public void cancelBeforeWorkerRunsSkipsInflation() {
+        AsyncInjector.Request request = AsyncInjector.start(worker, main, inflater, 1, null, new Page(), callback);
+        request.cancel();
+        worker.drain();
+        main.drain();
+
+        assertTrue(request.isCanceled());
+        assertEquals(0, inflater.inflates);
+        assertTrue(main.tasks.isEmpty());
+        assertTrue(callback.pages.isEmpty());
+    }
+
+    @Test
+    public void cancelAfterInjectionDropsDelivery() {
+        Page page = new Page();
+        AsyncInjector.Request request = AsyncInjector.start(worker, main, inflater, 1, null, page, callback);
+        worker.drain();
+        assertNotNull(page.source);
+
+        request.cancel();
+        main.drain();
+        assertTrue(callback.pages.isEmpty());
+    }
+
+    @Test
+    public void workerFailureIsRetriedOnMain() {
+        inflater.failures = 1;
+        Page page = new Page();
+        AsyncInjector.start(worker, main, inflater, 1, null, page, callback);
+        worker.drain();
+        assertNull(page.source);
+
+        main.drain();
+        assertEquals(2, inflater.inflates);
+        // 主线程重试使用调用方自己的 LayoutInflater
+        assertNotSame(inflater, inflater.usedInflaters.get(0));
+        assertSame(inflater, inflater.usedInflaters.get(1));
+        assertEquals(1, callback.pages.size());
+        assertEquals(Thread.currentThread().getName(), page.injectedOn);
+    }
+}
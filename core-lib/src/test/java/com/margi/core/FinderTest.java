@@ -0,0 +1,107 @@
+package com.margi.core;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.view.View;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 紧凑模式的查找和报错，按布局路径定位
+ */
+public class FinderTest {
+
+    static class NamedResources extends Resources {
+        @Override
+        public String getResourceEntryName(int id) {
+            return "view_" + id;
+        }
+    }
+
+    static class NamedContext extends Context {
+        private final Resources resources = new NamedResources();
+
+        @Override
+        public Resources getResources() {
+            return resources;
+        }
+    }
+
+    /**
+     * 包含 ID 为 1 到 count 的子 View，资源名为 view_ID
+     */
+    static class Root extends LookupSessionTest.CountingRoot {
+        private final Context context = new NamedContext();
+
+        Root(int count) {
+            super(count);
+        }
+
+        @Override
+        public Context getContext() {
+            return context;
+        }
+    }
+
+    private final Root root = new Root(3);
+
+    @Test
+    public void compactLooksUpEachIdOnce() {
+        View[] views = Finder.VIEW.findRequiredViews(root, new int[]{1, 2, 3}, "title\nicon\nonMore()", false);
+
+        assertArrayEquals(root.children, views);
+        assertEquals(1, root.finds(1));
+        assertEquals(1, root.finds(2));
+        assertEquals(1, root.finds(3));
+        assertEquals(0, root.walks);
+    }
+
+    @Test
+    public void compactSinglePassWalksOnce() {
+        View[] views = Finder.VIEW.findRequiredViews(root, new int[]{1, 2, 3}, "title\nicon\nonMore()", true);
+
+        assertArrayEquals(root.children, views);
+        assertEquals(0, root.finds(1));
+        assertEquals(1, root.walks);
+    }
+
+    @Test
+    public void compactMissingFieldIsReported() {
+        try {
+            Finder.VIEW.findRequiredViews(root, new int[]{1, 7}, "title\ndetails", false);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("Required view 'view_7' with ID 7 for field 'details' was not found. If this view is"
+                    + " optional add '@Nullable' (fields) or '@Optional' (methods) annotation.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void compactMissingListenerIsReported() {
+        try {
+            Finder.VIEW.findRequiredViews(root, new int[]{1, 9}, "title\nonMore()", true);
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("with ID 9 for method 'onMore' was not found."));
+        }
+    }
+
+    @Test
+    public void pathToMatchingIdNeedsNoLookup() {
+        assertSame(root.children[1], Finder.VIEW.findViewByPath(root, root, new int[]{1}, 2));
+        assertEquals(0, root.finds(2));
+    }
+
+    @Test
+    public void pathToWrongIdFallsBackToFindViewById() {
+        // 运行时的层级与编译时的布局不一致，路径上是另一个 View
+        assertSame(root.children[1], Finder.VIEW.findViewByPath(root, root, new int[]{0}, 2));
+        assertEquals(1, root.finds(2));
+        // 路径超出子 View 数量或者经过非 ViewGroup
+        assertSame(root.children[2], Finder.VIEW.findViewByPath(root, root, new int[]{5}, 3));
+        assertSame(root.children[2], Finder.VIEW.findViewByPath(root, root, new int[]{0, 0}, 3));
+        assertEquals(2, root.finds(3));
+    }
+}
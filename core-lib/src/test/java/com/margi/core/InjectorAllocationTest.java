@@ -0,0 +1,97 @@
+package com.margi.core;
+
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * ViewHolder 绑定路径预热后不应分配对象，解绑后不再持有 View
+ */
+public class InjectorAllocationTest {
+
+    static class Holder {
+        View title;
+        View icon;
+    }
+
+    @Before
+    public void setUp() {
+        Injector.INJECTORS.clear();
+        Injector.REGISTRIES.clear();
+        Injector.addRegistry(new InjectorRegistry() {
+            @Override
+            public ViewInjector<Object> findInjector(Class<?> cls) {
+                if (cls != Holder.class) {
+                    return null;
+                }
+                return new ViewInjector<Object>() {
+                    @Override
+                    public void inject(Finder finder, Object target, Object source) {
+                        Holder holder = (Holder) target;
+                        holder.title = finder.findOptionalView(source, 1);
+                        holder.icon = finder.findOptionalView(source, 2);
+                    }
+
+                    @Override
+                    public void unbind(Object target) {
+                        Holder holder = (Holder) target;
+                        holder.title = null;
+                        holder.icon = null;
+                    }
+                };
+            }
+        });
+    }
+
+    @Test
+    public void holderInjectDoesNotAllocateAfterWarmUp() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assertTrue(threads.isThreadAllocatedMemorySupported());
+        long threadId = Thread.currentThread().getId();
+
+        Holder holder = new Holder();
+        View itemView = new View(null);
+        for (int i = 0; i < 20000; i++) {
+            Injector.inject(holder, itemView);
+        }
+
+        int iterations = 100000;
+        // 先测一次空循环，扣除测量本身的开销
+        long before = threads.getThreadAllocatedBytes(threadId);
+        long overhead = threads.getThreadAllocatedBytes(threadId) - before;
+
+        before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            Injector.inject(holder, itemView);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before - overhead;
+
+        assertTrue("allocated " + allocated + " bytes over " + iterations + " injects", allocated < iterations);
+    }
+
+    @Test
+    public void unbindReleasesViews() throws Exception {
+        Holder holder = new Holder();
+        Injector.inject(holder, new View(null));
+        View detached = new View(null);
+        holder.title = detached;
+        WeakReference<View> ref = new WeakReference<>(detached);
+        detached = null;
+
+        Injector.unbind(holder);
+        assertNull(holder.title);
+        assertNull(holder.icon);
+        for (int i = 0; i < 50 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull(ref.get());
+    }
+}
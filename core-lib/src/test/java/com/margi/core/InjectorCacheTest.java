@@ -0,0 +1,132 @@
+package com.margi.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * 插件 ClassLoader 中的注入器随 ClassLoader 存活，普通的 GC 不会清除
+ */
+public class InjectorCacheTest {
+
+    private static final String PLUGIN = InjectorCacheTest.class.getName() + "$Plugin";
+
+    /**
+     * 插件中的目标类，由 PluginLoader 重新定义
+     */
+    public static class Plugin {
+    }
+
+    /**
+     * 插件中生成的注入器，与目标类在同一个 ClassLoader 中
+     */
+    public static class Plugin$$ViewInjector implements ViewInjector<Plugin> {
+        @SuppressWarnings("rawtypes")
+        public static final Plugin$$ViewInjector INSTANCE = new Plugin$$ViewInjector();
+
+        @Override
+        public void inject(Finder finder, Plugin target, Object source) {
+        }
+
+        @Override
+        public void unbind(Plugin target) {
+        }
+    }
+
+    /**
+     * 自己定义 Plugin 和它的注入器，其他类交给父 ClassLoader
+     */
+    static class PluginLoader extends ClassLoader {
+        PluginLoader() {
+            super(InjectorCacheTest.class.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.startsWith(PLUGIN)) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> cls = findLoadedClass(name);
+                if (cls == null) {
+                    byte[] bytes = _read(name.replace('.', '/') + ".class");
+                    cls = defineClass(name, bytes, 0, bytes.length);
+                }
+                return cls;
+            }
+        }
+
+        private byte[] _read(String resource) throws ClassNotFoundException {
+            try (InputStream in = getParent().getResourceAsStream(resource)) {
+                if (in == null) {
+                    throw new ClassNotFoundException(resource);
+                }
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                for (int n; (n = in.read(buffer)) != -1; ) {
+                    out.write(buffer, 0, n);
+                }
+                return out.toByteArray();
+            } catch (IOException e) {
+                throw new ClassNotFoundException(resource, e);
+            }
+        }
+    }
+
+    private final InjectorCache cache = new InjectorCache(InjectorCacheTest.class.getClassLoader());
+
+    @Test
+    public void pluginInjectorSurvivesGc() throws Exception {
+        Class<?> plugin = new PluginLoader().loadClass(PLUGIN);
+        cache.putIfAbsent(plugin, _instance(plugin));
+
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        assertSame(_instance(plugin), cache.get(plugin));
+        assertEquals(0, cache.evictionCount());
+    }
+
+    @Test
+    public void removeValueFindsPluginInjector() throws Exception {
+        Class<?> plugin = new PluginLoader().loadClass(PLUGIN);
+        cache.putIfAbsent(plugin, _instance(plugin));
+        assertEquals(1, cache.size());
+
+        cache.removeValue(_instance(plugin));
+        assertEquals(0, cache.size());
+        assertNull(cache.get(plugin));
+    }
+
+    @Test
+    public void unloadedPluginIsEvicted() throws Exception {
+        _putPlugin();
+
+        for (int i = 0; i < 20 && cache.evictionCount() == 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(1, cache.evictionCount());
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * 缓存插件的注入器，返回后测试不再持有插件的任何类
+     */
+    private void _putPlugin() throws Exception {
+        Class<?> plugin = new PluginLoader().loadClass(PLUGIN);
+        cache.putIfAbsent(plugin, _instance(plugin));
+        assertNotNull(cache.get(plugin));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ViewInjector<Object> _instance(Class<?> plugin) throws Exception {
+        Class<?> injector = Class.forName(plugin.getName() + "$$ViewInjector", true, plugin.getClassLoader());
+        assertNotSame(Plugin$$ViewInjector.class, injector);
+        return (ViewInjector<Object>) injector.getDeclaredField("INSTANCE").get(null);
+    }
+}
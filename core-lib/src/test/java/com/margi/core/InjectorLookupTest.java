@@ -0,0 +1,302 @@
+package com.margi.core;
+
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Injector 注入器查找与缓存
+ */
+public class InjectorLookupTest {
+
+    static class Parent {
+    }
+
+    static class Child extends Parent {
+    }
+
+    static class Unbound {
+    }
+
+    /**
+     * 反射探测能找到的注入器，用来区分是否调用了 Class.forName
+     */
+    static class Probed {
+    }
+
+    public static class Probed$$ViewInjector implements ViewInjector<Object> {
+        public static final Probed$$ViewInjector INSTANCE = new Probed$$ViewInjector();
+
+        @Override
+        public void inject(Finder finder, Object target, Object source) {
+        }
+
+        @Override
+        public void unbind(Object target) {
+        }
+    }
+
+    /**
+     * 旧版本生成的注入器，没有 INSTANCE 单例
+     */
+    static class Legacy {
+    }
+
+    public static class Legacy$$ViewInjector implements ViewInjector<Object> {
+        @Override
+        public void inject(Finder finder, Object target, Object source) {
+        }
+
+        @Override
+        public void unbind(Object target) {
+        }
+    }
+
+    static class Failing {
+    }
+
+    public static class Failing$$ViewInjector extends Legacy$$ViewInjector {
+        public Failing$$ViewInjector() {
+            throw new IllegalStateException("broken injector");
+        }
+    }
+
+    /**
+     * 编译了 packageName 包但没有任何注入器的模块注册表
+     */
+    static InjectorRegistry.Authoritative owning(final String packageName) {
+        return new InjectorRegistry.Authoritative() {
+            @Override
+            public ViewInjector<Object> findInjector(Class<?> cls) {
+                return null;
+            }
+
+            @Override
+            public boolean ownsPackage(String name) {
+                return name.equals(packageName);
+            }
+        };
+    }
+
+    public static class Plugin {
+    }
+
+    /**
+     * 模拟插件 ClassLoader，自己定义 Plugin 类而不委托给父 ClassLoader
+     */
+    static class PluginClassLoader extends ClassLoader {
+        PluginClassLoader() {
+            super(InjectorLookupTest.class.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.equals(Plugin.class.getName())) {
+                return super.loadClass(name, resolve);
+            }
+            String resource = name.replace('.', '/') + ".class";
+            try (InputStream in = getParent().getResourceAsStream(resource)) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                for (int n; (n = in.read(buffer)) != -1; ) {
+                    out.write(buffer, 0, n);
+                }
+                byte[] bytes = out.toByteArray();
+                return defineClass(name, bytes, 0, bytes.length);
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+        }
+    }
+
+    static final ViewInjector<Object> PARENT_INJECTOR = new ViewInjector<Object>() {
+        @Override
+        public void inject(Finder finder, Object target, Object source) {
+        }
+
+        @Override
+        public void unbind(Object target) {
+        }
+    };
+
+    @Before
+    public void setUp() {
+        Injector.INJECTORS.clear();
+        Injector.REGISTRIES.clear();
+        Injector.addRegistry(new InjectorRegistry() {
+            @Override
+            public ViewInjector<Object> findInjector(Class<?> cls) {
+                return cls == Parent.class ? PARENT_INJECTOR : null;
+            }
+        });
+    }
+
+    @Test
+    public void subclassResolvesParentInjectorAndCachesEveryLevel() {
+        assertSame(PARENT_INJECTOR, Injector.findViewInjecterForClass(Child.class));
+        assertSame(PARENT_INJECTOR, Injector.INJECTORS.get(Child.class));
+        assertSame(PARENT_INJECTOR, Injector.INJECTORS.get(Parent.class));
+    }
+
+    @Test
+    public void missIsCachedForWholeChain() {
+        assertNull(Injector.findViewInjecterForClass(Unbound.class));
+        assertSame(Injector.NO_INJECTOR, Injector.INJECTORS.get(Unbound.class));
+        assertSame(Injector.NO_INJECTOR, Injector.INJECTORS.get(Object.class));
+        assertNull(Injector.findViewInjecterForClass(Unbound.class));
+    }
+
+    @Test
+    public void missInOwnedPackageSkipsReflection() {
+        Injector.addRegistry(owning("com.margi.core"));
+        assertNull(Injector.findViewInjecterForClass(Probed.class));
+    }
+
+    @Test
+    public void classOutsideOwnedPackagesIsProbed() {
+        Injector.addRegistry(owning("com.example"));
+        assertSame(Probed$$ViewInjector.INSTANCE, Injector.findViewInjecterForClass(Probed.class));
+    }
+
+    @Test
+    public void ownedPackageStillResolvesOtherRegistries() {
+        Injector.addRegistry(owning("com.margi.core"));
+        // 同名包中的类由另一个注册表提供注入器，例如 library 模块
+        assertSame(PARENT_INJECTOR, Injector.findViewInjecterForClass(Child.class));
+    }
+
+    @Test
+    public void injectWithoutInjectorNamesTargetClass() {
+        try {
+            Injector.inject(new Unbound(), new View(null));
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(
+                    "No view injector found for " + Unbound.class.getName() + "."));
+        }
+        // 解绑没有注入器的对象仍然什么都不做
+        Injector.unbind(new Unbound());
+    }
+
+    @Test
+    public void legacyInjectorIsCreatedThroughConstructor() {
+        assertTrue(Injector.findViewInjecterForClass(Legacy.class) instanceof Legacy$$ViewInjector);
+    }
+
+    @Test
+    public void constructorFailureIsNotWrapped() {
+        try {
+            Injector.findViewInjecterForClass(Failing.class);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("broken injector", e.getMessage());
+        }
+    }
+
+    @Test
+    public void addRegistryClearsMisses() {
+        assertNull(Injector.findViewInjecterForClass(Unbound.class));
+        Injector.addRegistry(new InjectorRegistry() {
+            @Override
+            public ViewInjector<Object> findInjector(Class<?> cls) {
+                return cls == Unbound.class ? PARENT_INJECTOR : null;
+            }
+        });
+        assertSame(PARENT_INJECTOR, Injector.findViewInjecterForClass(Unbound.class));
+    }
+
+    @Test
+    public void pluginClassesAreReleasedWithTheirClassLoader() throws Exception {
+        Class<?> pluginClass = new PluginClassLoader().loadClass(Plugin.class.getName());
+        assertNotSame(Plugin.class, pluginClass);
+        assertNull(Injector.findViewInjecterForClass(pluginClass));
+        // Plugin 和 Object 各一项
+        assertEquals(2, Injector.getCacheSize());
+        assertEquals(0, Injector.getCacheEvictionCount());
+
+        pluginClass = null;
+        for (int i = 0; i < 50 && Injector.getCacheEvictionCount() == 0; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertEquals(1, Injector.getCacheEvictionCount());
+        assertEquals(1, Injector.getCacheSize());
+    }
+
+    @Test
+    public void preloadWarmsCacheOffTheCallingThread() throws Exception {
+        Injector.preload(Child.class, Unbound.class).get(5, TimeUnit.SECONDS);
+        assertSame(PARENT_INJECTOR, Injector.INJECTORS.get(Child.class));
+        assertSame(Injector.NO_INJECTOR, Injector.INJECTORS.get(Unbound.class));
+    }
+
+    @Test
+    public void preloadAllRunsConcurrentlyWithInjection() throws Exception {
+        Injector.addRegistry(new InjectorRegistry.Preloadable() {
+            @Override
+            public ViewInjector<Object> findInjector(Class<?> cls) {
+                return null;
+            }
+
+            @Override
+            public String[] getTargetNames() {
+                return new String[] { Child.class.getName(), "com.margi.core.Missing" };
+            }
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Void>> preloads = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                preloads.add(Injector.preloadAll(executor));
+            }
+            // 模拟主线程同时注入
+            for (int i = 0; i < 1000; i++) {
+                assertSame(PARENT_INJECTOR, Injector.findViewInjecterForClass(Child.class));
+            }
+            for (Future<Void> preload : preloads) {
+                preload.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertSame(PARENT_INJECTOR, Injector.INJECTORS.get(Child.class));
+    }
+
+    /**
+     * 预热后只读缓存，不再访问注册表；耗时见 benchmark 模块的 InjectBenchmark.injectorLookup
+     */
+    @Test
+    public void warmLookupDoesNotQueryRegistries() {
+        final int[] queries = new int[1];
+        Injector.REGISTRIES.clear();
+        Injector.addRegistry(new InjectorRegistry() {
+            @Override
+            public ViewInjector<Object> findInjector(Class<?> cls) {
+                queries[0]++;
+                return cls == Parent.class ? PARENT_INJECTOR : null;
+            }
+        });
+
+        assertSame(PARENT_INJECTOR, Injector.findViewInjecterForClass(Child.class));
+        assertNull(Injector.findViewInjecterForClass(Object.class));
+        int cold = queries[0];
+        for (int i = 0; i < 100; i++) {
+            assertSame(PARENT_INJECTOR, Injector.findViewInjecterForClass(Child.class));
+            assertNull(Injector.findViewInjecterForClass(Object.class));
+        }
+        assertEquals(cold, queries[0]);
+    }
+}
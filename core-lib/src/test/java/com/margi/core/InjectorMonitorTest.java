@@ -0,0 +1,161 @@
+package com.margi.core;
+
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Injector 运行时监控回调
+ */
+public class InjectorMonitorTest {
+
+    static class Holder {
+        View title;
+        View icon;
+    }
+
+    static class Broken {
+    }
+
+    /**
+     * 没有注解的持有类
+     */
+    static class Unannotated {
+        View title;
+    }
+
+    static class RecordingMonitor implements InjectorMonitor {
+        final List<Class<?>> hits = new ArrayList<>();
+        final List<Class<?>> misses = new ArrayList<>();
+        final List<Integer> lookups = new ArrayList<>();
+        final List<Throwable> failures = new ArrayList<>();
+        final List<Class<?>> failedClasses = new ArrayList<>();
+
+        @Override
+        public void onCacheHit(Class<?> targetClass) {
+            hits.add(targetClass);
+        }
+
+        @Override
+        public void onCacheMiss(Class<?> targetClass, long elapsedNanos) {
+            assertTrue(elapsedNanos >= 0);
+            misses.add(targetClass);
+        }
+
+        @Override
+        public void onInject(Class<?> targetClass, long elapsedNanos, int lookupCount) {
+            assertSame(Holder.class, targetClass);
+            assertTrue(elapsedNanos >= 0);
+            lookups.add(lookupCount);
+        }
+
+        @Override
+        public void onInjectFailed(Class<?> targetClass, Throwable error) {
+            failedClasses.add(targetClass);
+            failures.add(error);
+        }
+    }
+
+    private final RecordingMonitor monitor = new RecordingMonitor();
+
+    @Before
+    public void setUp() {
+        Injector.INJECTORS.clear();
+        Injector.REGISTRIES.clear();
+        Injector.addRegistry(new InjectorRegistry() {
+            @Override
+            public ViewInjector<Object> findInjector(Class<?> cls) {
+                if (cls == Holder.class) {
+                    return new ViewInjector<Object>() {
+                        @Override
+                        public void inject(Finder finder, Object target, Object source) {
+                            Holder holder = (Holder) target;
+                            holder.title = finder.findOptionalViewAsType(source, 1, "field 'title'", View.class);
+                            holder.icon = finder.findOptionalViewAsType(source, 2, "field 'icon'", View.class);
+                        }
+
+                        @Override
+                        public void unbind(Object target) {
+                        }
+                    };
+                }
+                if (cls == Broken.class) {
+                    return new ViewInjector<Object>() {
+                        @Override
+                        public void inject(Finder finder, Object target, Object source) {
+                            throw new IllegalStateException("Required view was not found.");
+                        }
+
+                        @Override
+                        public void unbind(Object target) {
+                        }
+                    };
+                }
+                return null;
+            }
+        });
+        Injector.setMonitor(monitor);
+    }
+
+    @After
+    public void tearDown() {
+        Injector.setMonitor(null);
+    }
+
+    @Test
+    public void reportsCacheMissThenHitsWithLookupCounts() {
+        View itemView = new View(null);
+        Injector.inject(new Holder(), itemView);
+        Injector.inject(new Holder(), itemView);
+
+        assertEquals(1, monitor.misses.size());
+        assertSame(Holder.class, monitor.misses.get(0));
+        assertEquals(1, monitor.hits.size());
+        assertEquals(2, monitor.lookups.size());
+        assertEquals(2, (int) monitor.lookups.get(0));
+        assertEquals(2, (int) monitor.lookups.get(1));
+        assertTrue(monitor.failures.isEmpty());
+    }
+
+    @Test
+    public void reportsFailureAndRethrows() {
+        try {
+            Injector.inject(new Broken(), new View(null));
+            fail();
+        } catch (IllegalStateException expected) {
+            assertEquals(1, monitor.failures.size());
+            assertSame(expected, monitor.failures.get(0));
+            assertSame(Broken.class, monitor.failedClasses.get(0));
+        }
+        assertTrue(monitor.lookups.isEmpty());
+    }
+
+    @Test
+    public void missingInjectorIsReportedAsFailure() {
+        try {
+            Injector.inject(new Unannotated(), new View(null));
+            fail();
+        } catch (IllegalStateException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().startsWith(
+                    "No view injector found for " + Unannotated.class.getName() + "."));
+            assertSame(expected, monitor.failures.get(0));
+            assertSame(Unannotated.class, monitor.failedClasses.get(0));
+        }
+        assertTrue(monitor.lookups.isEmpty());
+    }
+
+    @Test
+    public void removedMonitorReceivesNothing() {
+        Injector.setMonitor(null);
+        Injector.inject(new Holder(), new View(null));
+        assertTrue(monitor.misses.isEmpty());
+        assertTrue(monitor.lookups.isEmpty());
+    }
+}
@@ -0,0 +1,101 @@
+package com.margi.core;
+
+import android.view.View;
+import android.view.ViewStub;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * ViewStub 中的 View 第一次 get() 时才 inflate
+ */
+public class LazyViewTest {
+
+    private static final int CHILD = 20;
+    private static final int STUB = 30;
+
+    /**
+     * 返回 ViewStub 之后视为已经 inflate，之后才能找到其中的 View
+     */
+    static class StubRoot extends View {
+        final ViewStub stub = new ViewStub(null);
+        final View child = new View(null);
+        final List<Integer> finds = new ArrayList<>();
+        boolean hasStub = true;
+        boolean inflated;
+
+        StubRoot() {
+            super(null);
+        }
+
+        @Override
+        public View findViewById(int id) {
+            finds.add(id);
+            if (id == STUB && hasStub && !inflated) {
+                inflated = true;
+                return stub;
+            }
+            return id == CHILD && inflated ? child : null;
+        }
+
+        @Override
+        public boolean isInEditMode() {
+            return true;
+        }
+    }
+
+    private final StubRoot root = new StubRoot();
+
+    @Test
+    public void inflatesStubOnFirstGet() {
+        LazyView<View> lazy = new LazyView<>(Finder.VIEW, root, CHILD, STUB, "field 'details'");
+        assertFalse(lazy.isResolved());
+        assertTrue(root.finds.isEmpty());
+
+        assertSame(root.child, lazy.get());
+        assertEquals(Arrays.asList(CHILD, STUB, CHILD), root.finds);
+        assertSame(root.child, lazy.get());
+        assertEquals(3, root.finds.size());
+    }
+
+    @Test
+    public void stubInflatedBySiblingIsNotLookedUp() {
+        root.inflated = true;
+        LazyView<View> lazy = new LazyView<>(Finder.VIEW, root, CHILD, STUB, "field 'more'");
+
+        assertSame(root.child, lazy.get());
+        assertEquals(Arrays.asList(CHILD), root.finds);
+    }
+
+    @Test
+    public void sessionMissBeforeInflateIsNotServedAfterward() {
+        LookupSession session = Injector.openSession(root);
+        // 同一个会话中已经查找过 ViewStub 中的 View，缓存的是未找到
+        assertNull(Finder.SESSION.findOptionalView(session, CHILD));
+        LazyView<View> first = new LazyView<>(Finder.SESSION, session, CHILD, STUB, "field 'details'");
+        LazyView<View> second = new LazyView<>(Finder.SESSION, session, CHILD, STUB, "field 'more'");
+
+        assertSame(root.child, first.get());
+        // ViewStub 已经被 first inflate，second 在 View 树中直接找到
+        assertSame(root.child, second.get());
+        assertEquals(Arrays.asList(CHILD, CHILD, STUB, CHILD, CHILD), root.finds);
+    }
+
+    @Test
+    public void missingStubFailsLikeRequiredView() {
+        root.hasStub = false;
+        LazyView<View> lazy = new LazyView<>(Finder.VIEW, root, CHILD, STUB, "field 'details'");
+        try {
+            lazy.get();
+            fail();
+        } catch (IllegalStateException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("for field 'details' was not found"));
+        }
+        assertFalse(lazy.isResolved());
+    }
+}
@@ -0,0 +1,153 @@
+package com.margi.core;
+
+import android.view.View;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * 分发对象挂在锚点 View 上：重新注入时复用，解绑时只解除属于目标对象的分发对象
+ */
+public class ListenerBindingTest {
+
+    static class Page {
+    }
+
+    /**
+     * 保存 tag 的 View
+     */
+    static class TaggedView extends View {
+        private final Map<Integer, Object> tags = new HashMap<>();
+
+        TaggedView() {
+            super(null);
+        }
+
+        @Override
+        public Object getTag(int key) {
+            return tags.get(key);
+        }
+
+        @Override
+        public void setTag(int key, Object tag) {
+            tags.put(key, tag);
+        }
+    }
+
+    /**
+     * 记录移除监听的次数，对应生成的 ListenerDispatcher
+     */
+    static class Dispatcher extends ListenerBinding<Page> {
+        View view0 = new View(null);
+        int removed;
+
+        Dispatcher(Page target) {
+            super(target);
+        }
+
+        @Override
+        protected void removeListeners() {
+            assertNotNull(view0);
+            view0 = null;
+            removed++;
+        }
+    }
+
+    /**
+     * 父类注入器生成的分发类
+     */
+    static class ParentDispatcher extends Dispatcher {
+        ParentDispatcher(Page target) {
+            super(target);
+        }
+    }
+
+    private final TaggedView anchor = new TaggedView();
+
+    @Test
+    public void reuseRetargetsAttachedDispatcher() {
+        Page page = new Page();
+        assertNull(ListenerBinding.reuse(anchor, Dispatcher.class, page));
+        Dispatcher dispatcher = new Dispatcher(page);
+        ListenerBinding.attach(anchor, dispatcher);
+
+        // 例如 RecyclerView 把同一个 itemView 交给另一个 ViewHolder
+        Page other = new Page();
+        assertSame(dispatcher, ListenerBinding.reuse(anchor, Dispatcher.class, other));
+        assertSame(other, dispatcher.target);
+    }
+
+    @Test
+    public void reuseIgnoresOtherDispatcherClass() {
+        Page page = new Page();
+        ListenerBinding.attach(anchor, new ParentDispatcher(page));
+
+        assertNull(ListenerBinding.reuse(anchor, Dispatcher.class, page));
+    }
+
+    @Test
+    public void unbindRemovesListenersAndReleasesTarget() {
+        Page page = new Page();
+        Dispatcher dispatcher = new Dispatcher(page);
+        ListenerBinding.attach(anchor, dispatcher);
+
+        ListenerBinding.unbind(page, anchor, Dispatcher.class);
+        assertEquals(1, dispatcher.removed);
+        assertNull(dispatcher.view0);
+        assertNull(dispatcher.target);
+
+        // 重复解绑没有副作用，分发对象留在锚点上等待复用
+        ListenerBinding.unbind(page, anchor, Dispatcher.class);
+        assertEquals(1, dispatcher.removed);
+        assertSame(dispatcher, ListenerBinding.reuse(anchor, Dispatcher.class, page));
+    }
+
+    @Test
+    public void unbindOnlyMatchesTargetAndDispatcherClass() {
+        Page page = new Page();
+        Dispatcher dispatcher = new Dispatcher(page);
+        ListenerBinding.attach(anchor, dispatcher);
+
+        ListenerBinding.unbind(page, anchor, ParentDispatcher.class);
+        assertEquals(0, dispatcher.removed);
+        // 同一组 View 已经注入给另一个目标对象，旧的目标对象解绑时不能移除新的监听
+        Page other = new Page();
+        ListenerBinding.reuse(anchor, Dispatcher.class, other);
+        ListenerBinding.unbind(page, anchor, Dispatcher.class);
+        assertEquals(0, dispatcher.removed);
+
+        ListenerBinding.unbind(other, anchor, Dispatcher.class);
+        assertEquals(1, dispatcher.removed);
+    }
+
+    @Test
+    public void castParamReportsMethodAndId() {
+        View view = new View(null) {
+            @Override
+            public int getId() {
+                return 5;
+            }
+        };
+        assertSame(view, ListenerBinding.castParam(view, View.class, "onLabel"));
+        try {
+            ListenerBinding.castParam(view, TaggedView.class, "onLabel");
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("Parameter #1 of method 'onLabel' was of the wrong type for the view with ID 5."
+                    + " See cause for more info.", e.getMessage());
+            assertTrue(e.getCause() instanceof ClassCastException);
+        }
+    }
+
+    @Test
+    public void unbindWithoutAnchorIsIgnored() {
+        // 锚点字段已经置空
+        ListenerBinding.unbind(new Page(), null, Dispatcher.class);
+        // 没有注入过的 View
+        ListenerBinding.unbind(new Page(), anchor, Dispatcher.class);
+    }
+}
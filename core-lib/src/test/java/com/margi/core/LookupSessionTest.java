@@ -0,0 +1,200 @@
+package com.margi.core;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * 同一个 source 上多个目标共享查找结果
+ */
+public class LookupSessionTest {
+
+    static class Page {
+        View title;
+        View icon;
+        View badge;
+    }
+
+    static class Presenter {
+        View title;
+        View icon;
+    }
+
+    static class Leaf extends View {
+        private final int id;
+
+        Leaf(int id) {
+            super(null);
+            this.id = id;
+        }
+
+        @Override
+        public int getId() {
+            return id;
+        }
+    }
+
+    /**
+     * 包含 ID 为 1 到 count 的子 View，记录 findViewById 和单次遍历的次数
+     */
+    static class CountingRoot extends ViewGroup {
+        final View[] children;
+        final Map<Integer, Integer> finds = new HashMap<>();
+        int walks;
+
+        CountingRoot(int count) {
+            super(null);
+            children = new View[count];
+            for (int i = 0; i < count; i++) {
+                children[i] = new Leaf(i + 1);
+            }
+        }
+
+        @Override
+        public View findViewById(int id) {
+            Integer count = finds.get(id);
+            finds.put(id, count == null ? 1 : count + 1);
+            return id >= 1 && id <= children.length ? children[id - 1] : null;
+        }
+
+        @Override
+        public int getId() {
+            return NO_ID;
+        }
+
+        @Override
+        public int getChildCount() {
+            walks++;
+            return children.length;
+        }
+
+        @Override
+        public View getChildAt(int i) {
+            return children[i];
+        }
+
+        int finds(int id) {
+            Integer count = finds.get(id);
+            return count == null ? 0 : count;
+        }
+    }
+
+    private final CountingRoot root = new CountingRoot(40);
+
+    @Before
+    public void setUp() {
+        Injector.INJECTORS.clear();
+        Injector.REGISTRIES.clear();
+        Injector.addRegistry(new InjectorRegistry() {
+            @Override
+            public ViewInjector<Object> findInjector(Class<?> cls) {
+                if (cls == Page.class) {
+                    return new ViewInjector<Object>() {
+                        @Override
+                        public void inject(Finder finder, Object target, Object source) {
+                            Page page = (Page) target;
+                            page.title = finder.findRequiredView(source, 1, "field 'title'");
+                            page.icon = finder.findRequiredView(source, 2, "field 'icon'");
+                            page.badge = finder.findOptionalView(source, 99);
+                        }
+
+                        @Override
+                        public void unbind(Object target) {
+                        }
+                    };
+                }
+                if (cls == Presenter.class) {
+                    return new ViewInjector<Object>() {
+                        @Override
+                        public void inject(Finder finder, Object target, Object source) {
+                            Presenter presenter = (Presenter) target;
+                            View[] views = finder.findViews(source, new int[]{1, 2, 3});
+                            presenter.title = finder.requireView(source, views[0], 1, "field 'title'");
+                            presenter.icon = finder.requireView(source, views[1], 2, "field 'icon'");
+                            assertNull(finder.findOptionalView(source, 99));
+                        }
+
+                        @Override
+                        public void unbind(Object target) {
+                        }
+                    };
+                }
+                return null;
+            }
+        });
+    }
+
+    @Test
+    public void laterTargetsReuseResolvedViews() {
+        LookupSession session = Injector.openSession(root);
+        Page first = new Page();
+        Page second = new Page();
+        Injector.inject(first, session);
+        Injector.inject(second, session);
+
+        assertSame(root.children[0], second.title);
+        assertSame(first.icon, second.icon);
+        assertNull(second.badge);
+        assertEquals(1, root.finds(1));
+        assertEquals(1, root.finds(2));
+        // 未找到的 ID 也只查找一次
+        assertEquals(1, root.finds(99));
+        assertEquals(3, session.getMissCount());
+        assertEquals(3, session.getHitCount());
+        assertEquals(3, session.size());
+    }
+
+    @Test
+    public void singlePassWalksOnlyForUncachedIds() {
+        LookupSession session = Injector.openSession(root);
+        Injector.inject(new Page(), session);
+        root.walks = 0;
+
+        Presenter presenter = new Presenter();
+        Injector.inject(presenter, session);
+        assertSame(root.children[0], presenter.title);
+        assertSame(root.children[1], presenter.icon);
+        // 只有 ID 3 需要遍历
+        assertEquals(1, root.walks);
+        assertEquals(4, session.size());
+
+        root.walks = 0;
+        Injector.inject(new Presenter(), session);
+        assertEquals(0, root.walks);
+        assertEquals(0, root.finds(3));
+    }
+
+    @Test
+    public void growsPastInitialCapacity() {
+        LookupSession session = Injector.openSession(root);
+        for (int id = 1; id <= 40; id++) {
+            assertSame(root.children[id - 1], Finder.SESSION.findOptionalView(session, id));
+        }
+        for (int id = 1; id <= 40; id++) {
+            assertSame(root.children[id - 1], Finder.SESSION.findOptionalView(session, id));
+            assertEquals(1, root.finds(id));
+        }
+        assertEquals(40, session.size());
+    }
+
+    @Test
+    public void releaseDropsViewsAndFallsThrough() {
+        LookupSession session = Injector.openSession(root);
+        Injector.inject(new Page(), session);
+        session.release();
+        assertEquals(0, session.size());
+
+        Page page = new Page();
+        Injector.inject(page, session);
+        assertSame(root.children[0], page.title);
+        assertEquals(2, root.finds(1));
+        assertEquals(3, session.getMissCount());
+    }
+}
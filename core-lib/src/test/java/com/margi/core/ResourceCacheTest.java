@@ -0,0 +1,131 @@
+package com.margi.core;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 资源按配置和主题整批解析，同一配置和主题下不再访问 Resources
+ */
+public class ResourceCacheTest {
+
+    private static final int[] KINDS = {ResourceCache.STRING, ResourceCache.COLOR, ResourceCache.COLOR_STATE_LIST,
+            ResourceCache.DIMEN, ResourceCache.DIMEN_PIXEL_SIZE};
+    private static final int[] IDS = {1, 2, 3, 4, 5};
+
+    /**
+     * 记录取资源值的次数，getConfiguration 只用来比较配置，不计入
+     */
+    static class CountingResources extends Resources {
+        final Configuration configuration = new Configuration();
+        int lookups;
+
+        @Override
+        public Configuration getConfiguration() {
+            return configuration;
+        }
+
+        @Override
+        public String getString(int id) {
+            lookups++;
+            return "string " + id;
+        }
+
+        @Override
+        public int getColor(int id) {
+            lookups++;
+            return id;
+        }
+
+        @Override
+        public ColorStateList getColorStateList(int id) {
+            lookups++;
+            return new ColorStateList();
+        }
+
+        @Override
+        public float getDimension(int id) {
+            lookups++;
+            return id * 1.5f;
+        }
+
+        @Override
+        public int getDimensionPixelSize(int id) {
+            lookups++;
+            return id * 2;
+        }
+    }
+
+    static class ThemedContext extends Context {
+        final Resources resources;
+        final Resources.Theme theme;
+
+        ThemedContext(CountingResources resources) {
+            this.resources = resources;
+            this.theme = resources.newTheme();
+        }
+
+        @Override
+        public Resources getResources() {
+            return resources;
+        }
+
+        @Override
+        public Resources.Theme getTheme() {
+            return theme;
+        }
+    }
+
+    private final CountingResources resources = new CountingResources();
+    private final ThemedContext context = new ThemedContext(resources);
+    private final ResourceCache cache = new ResourceCache(KINDS, IDS);
+
+    @Test
+    public void tenthInstanceDoesNotTouchResources() {
+        ResourceCache.Values first = cache.resolve(context);
+        assertEquals(KINDS.length, resources.lookups);
+
+        ResourceCache.Values values = null;
+        for (int i = 1; i < 10; i++) {
+            values = cache.resolve(context);
+        }
+        assertSame(first, values);
+        assertEquals(KINDS.length, resources.lookups);
+        assertEquals("string 1", values.getString(0));
+        assertEquals(2, values.getInt(1));
+        assertNotNull(values.getColorStateList(2));
+        assertEquals(6f, values.getFloat(3), 0f);
+        assertEquals(10, values.getInt(4));
+        // 读取缓存的值也不访问 Resources
+        assertEquals(KINDS.length, resources.lookups);
+    }
+
+    @Test
+    public void configurationChangeResolvesAgain() {
+        ResourceCache.Values portrait = cache.resolve(context);
+        resources.configuration.orientation = 2;
+
+        ResourceCache.Values landscape = cache.resolve(context);
+        assertNotSame(portrait, landscape);
+        assertEquals(2 * KINDS.length, resources.lookups);
+        assertSame(landscape, cache.resolve(context));
+        assertEquals(2 * KINDS.length, resources.lookups);
+    }
+
+    @Test
+    public void anotherThemeResolvesAgain() {
+        ResourceCache.Values values = cache.resolve(context);
+        // 同一个 Resources、同一配置，但是另一个 Activity 的主题
+        ThemedContext other = new ThemedContext(resources);
+
+        assertNotSame(values, cache.resolve(other));
+        assertEquals(2 * KINDS.length, resources.lookups);
+        assertNotSame(values, cache.resolve(context));
+        assertEquals(3 * KINDS.length, resources.lookups);
+    }
+}
@@ -0,0 +1,159 @@
+package com.margi.core;
+
+import android.content.Context;
+import android.os.MessageQueue;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 空闲时预先 inflate 并注入的 holder 池
+ */
+public class ViewHolderPoolTest {
+
+    static class Holder {
+        final View itemView;
+        View injected;
+
+        Holder(View itemView) {
+            this.itemView = itemView;
+        }
+    }
+
+    static class CountingInflater extends LayoutInflater {
+        int inflates;
+
+        CountingInflater() {
+            super(null);
+        }
+
+        @Override
+        public View inflate(int resource, ViewGroup root, boolean attachToRoot) {
+            inflates++;
+            return new View(null);
+        }
+
+        @Override
+        public LayoutInflater cloneInContext(Context context) {
+            return this;
+        }
+    }
+
+    /**
+     * 记录添加的空闲任务，手动模拟主线程空闲
+     */
+    static class ManualIdle implements ViewHolderPool.IdleScheduler {
+        final List<MessageQueue.IdleHandler> handlers = new ArrayList<>();
+
+        @Override
+        public void schedule(MessageQueue.IdleHandler handler) {
+            handlers.add(handler);
+        }
+
+        /**
+         * 执行一次空闲回调，返回 false 的任务被移除
+         */
+        void idle() {
+            for (int i = handlers.size() - 1; i >= 0; i--) {
+                if (!handlers.get(i).queueIdle()) {
+                    handlers.remove(i);
+                }
+            }
+        }
+    }
+
+    private final CountingInflater inflater = new CountingInflater();
+    private final ManualIdle idle = new ManualIdle();
+    private ViewHolderPool<Holder> pool;
+
+    @Before
+    public void setUp() {
+        Injector.INJECTORS.clear();
+        Injector.REGISTRIES.clear();
+        Injector.addRegistry(new InjectorRegistry() {
+            @Override
+            public ViewInjector<Object> findInjector(Class<?> cls) {
+                if (cls != Holder.class) {
+                    return null;
+                }
+                return new ViewInjector<Object>() {
+                    @Override
+                    public void inject(Finder finder, Object target, Object source) {
+                        ((Holder) target).injected = (View) source;
+                    }
+
+                    @Override
+                    public void unbind(Object target) {
+                    }
+                };
+            }
+        });
+        pool = new ViewHolderPool<>(inflater, 1, null, new ViewHolderPool.Factory<Holder>() {
+            @Override
+            public Holder create(View itemView) {
+                return new Holder(itemView);
+            }
+        }, 3, idle);
+    }
+
+    @Test
+    public void prefillFillsOneHolderPerIdlePass() {
+        pool.prefill();
+        assertEquals(0, inflater.inflates);
+
+        idle.idle();
+        assertEquals(1, pool.size());
+        idle.idle();
+        idle.idle();
+        assertEquals(3, pool.size());
+        assertTrue(idle.handlers.isEmpty());
+
+        idle.idle();
+        assertEquals(3, inflater.inflates);
+    }
+
+    @Test
+    public void acquireCountsHitsAndMissesAndRefills() {
+        Holder missed = pool.acquire();
+        assertSame(missed.itemView, missed.injected);
+        assertEquals(0, pool.getHitCount());
+        assertEquals(1, pool.getMissCount());
+
+        for (int i = 0; i < 3; i++) {
+            idle.idle();
+        }
+        assertEquals(3, pool.size());
+
+        Holder hit = pool.acquire();
+        assertSame(hit.itemView, hit.injected);
+        assertEquals(1, pool.getHitCount());
+        assertEquals(2, pool.size());
+        // 取出后只注册一个补充任务
+        pool.acquire();
+        assertEquals(1, idle.handlers.size());
+        idle.idle();
+        assertEquals(2, pool.size());
+    }
+
+    @Test
+    public void releaseStopsFilling() {
+        pool.prefill();
+        idle.idle();
+        pool.release();
+        assertEquals(0, pool.size());
+
+        idle.idle();
+        assertEquals(0, pool.size());
+        assertTrue(idle.handlers.isEmpty());
+        assertNotNull(pool.acquire());
+        assertTrue(idle.handlers.isEmpty());
+    }
+}